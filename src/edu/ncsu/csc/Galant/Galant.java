@@ -3,6 +3,7 @@ package edu.ncsu.csc.Galant;
 import javax.swing.SwingUtilities;
 import java.awt.Dimension;
 
+import edu.ncsu.csc.Galant.algorithm.code.CompilerService;
 import edu.ncsu.csc.Galant.gui.editor.GEditorFrame;
 import edu.ncsu.csc.Galant.gui.util.ExceptionDialog;
 import edu.ncsu.csc.Galant.gui.util.WindowUtil;
@@ -17,6 +18,8 @@ public class Galant {
   public static final String VERSION = "v6.0.2";
   public static void main(String[] args) {
     ExceptionDialog.setDialogExceptionHandlerAsDefault();
+    // get the compiler going while the windows come up
+    CompilerService.warmUp();
     SwingUtilities.invokeLater(new Runnable() {
         @Override
         public void run() {
@@ -36,4 +39,4 @@ public class Galant {
   }
 }
 
-//  [Last modified: 2017 07 25 at 19:21:14 GMT]
+//  [Last modified: 2026 10 17 at 21:54:02 GMT]
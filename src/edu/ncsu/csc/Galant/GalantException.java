@@ -104,7 +104,7 @@ public class GalantException extends Exception {
         }
         // end of unclear code
         /**
-         * signals the main thread to get out of its busy-wait loop
+         * wakes up the main thread, which waits for the current step
          */
         if ( synchronizer != null ) {
             synchronizer.reportExceptionThrown();
@@ -114,4 +114,4 @@ public class GalantException extends Exception {
     }
 }
 
-//  [Last modified: 2016 12 16 at 13:11:26 GMT]
+//  [Last modified: 2026 10 17 at 18:06:13 GMT]
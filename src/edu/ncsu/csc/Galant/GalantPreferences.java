@@ -19,6 +19,7 @@ import javax.swing.JSpinner;
 import edu.ncsu.csc.Galant.gui.editor.GEditorFrame;
 import edu.ncsu.csc.Galant.gui.prefs.components.ColorPanel;
 import edu.ncsu.csc.Galant.gui.prefs.components.FilePanel;
+import edu.ncsu.csc.Galant.gui.prefs.components.PreferenceCheckBox;
 import edu.ncsu.csc.Galant.gui.prefs.components.PreferenceSpinner;
 import edu.ncsu.csc.Galant.prefs.Accessors;
 import edu.ncsu.csc.Galant.prefs.Preference;
@@ -80,6 +81,28 @@ public class GalantPreferences {
 
   public static final Preference<File> OUTPUT_DIRECTORY;
 
+  public static final Preference<Boolean> WRITE_CLASS_FILES;
+
+  public static final Preference<Integer> CACHE_SIZE;
+
+  public static final Preference<Boolean> COMPILE_WHILE_EDITING;
+
+  // Animation
+
+  public static final PreferenceGroup ANIMATION;
+
+  public static final Preference<Integer> KEYFRAME_INTERVAL;
+
+  public static final Preference<Integer> HISTORY_WINDOW;
+
+  public static final Preference<File> SPILL_DIRECTORY;
+
+  public static final Preference<Integer> MEMORY_BUDGET;
+
+  public static final Preference<Integer> LOOK_AHEAD;
+
+  public static final Preference<Boolean> VIRTUAL_THREADS;
+
   // ======== Initialization ========
 
   static {
@@ -238,6 +261,80 @@ public class GalantPreferences {
                                                      new File(".galant"),
                                                      Accessors.FILE_ACCESSOR));
     new FilePanel(OUTPUT_DIRECTORY, "Select", JFileChooser.DIRECTORIES_ONLY);
+
+    // write the class files of compiled algorithms to the output directory,
+    // for debugging; they are otherwise kept in memory only
+    WRITE_CLASS_FILES =
+      COMPILATION.addPreference(new Preference<Boolean>("Write Class Files",
+                                                        false,
+                                                        Accessors.BOOLEAN_ACCESSOR));
+    new PreferenceCheckBox(WRITE_CLASS_FILES);
+
+    // megabytes of compiled algorithms cached in memory and, in the cache
+    // subdirectory of the output directory, on disk; 0 for no cache
+    CACHE_SIZE =
+      COMPILATION.addPreference(new Preference<Integer>("Cache Size (MB)",
+                                                        16,
+                                                        Accessors.INT_ACCESSOR));
+    new PreferenceSpinner(CACHE_SIZE, 0, null, 16);
+
+    // compile an algorithm in the background whenever the user pauses
+    // while editing it, to show the errors in the editor
+    COMPILE_WHILE_EDITING =
+      COMPILATION.addPreference(new Preference<Boolean>("Compile While Editing",
+                                                        true,
+                                                        Accessors.BOOLEAN_ACCESSOR));
+    new PreferenceCheckBox(COMPILE_WHILE_EDITING);
+
+    // -------- Animation --------
+
+    ANIMATION = PreferenceGroup.ROOT.addNewChild("Animation");
+
+    // number of algorithm states between keyframes, 0 for none
+    KEYFRAME_INTERVAL =
+      ANIMATION.addPreference(new Preference<Integer>("Keyframe Interval",
+                                                      64,
+                                                      Accessors.INT_ACCESSOR));
+    new PreferenceSpinner(KEYFRAME_INTERVAL, 0, null, 16);
+
+    // number of algorithm states kept in memory, 0 for all; older states
+    // are spilled to a file in the spill directory
+    HISTORY_WINDOW =
+      ANIMATION.addPreference(new Preference<Integer>("History Window",
+                                                      0,
+                                                      Accessors.INT_ACCESSOR));
+    new PreferenceSpinner(HISTORY_WINDOW, 0, null, 1000);
+
+    SPILL_DIRECTORY =
+      ANIMATION.addPreference(new Preference<File>("Spill Directory",
+                                                   new File(System.getProperty("java.io.tmpdir")),
+                                                   Accessors.FILE_ACCESSOR));
+    new FilePanel(SPILL_DIRECTORY, "Select", JFileChooser.DIRECTORIES_ONLY);
+
+    // megabytes the history of an animation may take before the status
+    // line of the graph window shows it as over budget, 0 for no limit
+    MEMORY_BUDGET =
+      ANIMATION.addPreference(new Preference<Integer>("Memory Budget (MB)",
+                                                      0,
+                                                      Accessors.INT_ACCESSOR));
+    new PreferenceSpinner(MEMORY_BUDGET, 0, null, 64);
+
+    // number of states the algorithm may run ahead of the display in the
+    // background, 0 for none; looking ahead stops while a query waits for
+    // the display to catch up and while the memory budget is exceeded
+    LOOK_AHEAD =
+      ANIMATION.addPreference(new Preference<Integer>("Look-ahead Steps",
+                                                      0,
+                                                      Accessors.INT_ACCESSOR));
+    new PreferenceSpinner(LOOK_AHEAD, 0, null, 16);
+
+    // run each algorithm on a virtual thread instead of a platform thread
+    // of its own; ignored if the Java runtime has no virtual threads
+    VIRTUAL_THREADS =
+      ANIMATION.addPreference(new Preference<Boolean>("Virtual Threads",
+                                                      false,
+                                                      Accessors.BOOLEAN_ACCESSOR));
+    new PreferenceCheckBox(VIRTUAL_THREADS);
   }
 
   /** Make sure all this stuff is actually called. */
@@ -245,4 +342,4 @@ public class GalantPreferences {
 
 }
 
-//  [Last modified: 2017 04 26 at 20:30:41 GMT]
+//  [Last modified: 2026 10 18 at 02:58:44 GMT]
@@ -19,19 +19,29 @@ import edu.ncsu.csc.Galant.algorithm.Terminate;
  * information about window width and height to other classes as appropriate;
  * and for passing information about current mode (animation vs. editing)
  *
+ * An instance is the context of one session, i.e., a working graph with
+ * the executor, synchronizer and display state of the algorithm animating
+ * it. getInstance() returns the session of the current thread: the
+ * default one, that of the editor and graph window, unless another one,
+ * obtained from newSession(), has been bound to the thread. Graphs, graph
+ * elements and algorithm executors make a note of the session in which
+ * they are created, and the thread running an algorithm is bound to the
+ * session of its executor, so that several algorithms can run on
+ * different graphs at the same time, e.g., one per batch job.
+ *
  * @author Jason Cockrell, Ty Devries, Alex McCabe, Michael Owoc; edited by
  * Matthias Stallmann, Weijia Li, and Yuang Ni.
- *
- * @todo I'm puzzled by the need for getIntance() when there is only one
- * instance at any given time. Seems like all information should be static
- * and initialized appropriately when Galant execution begins. A more
- * appropriate name for this class, given its current usage, would be
- * Globals. The original intent may have been to have multiple instances for
- * multiple communication channels between graphs, algorithms and editors.
  */
 public class GraphDispatch {
 
-  private static GraphDispatch instance;
+  private static final GraphDispatch instance = new GraphDispatch();
+
+  /**
+   * The session bound to each thread, if it is not the default one
+   */
+  private static final ThreadLocal<GraphDispatch> boundSession
+    = new ThreadLocal<GraphDispatch>();
+
   private Graph workingGraph;
   /**
    * A unique identifier for a graph.
@@ -134,7 +144,8 @@ public class GraphDispatch {
   }
 
   /**
-   * @return the (unique) instance of a GraphDispatch; this method allows
+   * @return the GraphDispatch of the session of the current thread, the
+   * default one unless another was bound; this method allows
    * various parts of the code to communicate with each other indirectly;
    * for example, an instance of the Graph class does not have to be
    * associated with a GraphDispatch instance upon creation in order for it
@@ -146,10 +157,43 @@ public class GraphDispatch {
    * changes.
    */
   public static GraphDispatch getInstance() {
-    if (instance == null) {
-      instance = new GraphDispatch();
-    }
-    return instance;
+    GraphDispatch session = boundSession.get();
+    return ( session != null ) ? session : instance;
+  }
+
+  /**
+   * @return a new session, independent of all others, with the window
+   * size of the default one; it has to be bound to the threads that work
+   * in it, except for the algorithm thread, which is bound by its executor
+   */
+  public static GraphDispatch newSession() {
+    GraphDispatch session = new GraphDispatch();
+    session.windowWidth = instance.windowWidth;
+    session.windowHeight = instance.windowHeight;
+    return session;
+  }
+
+  /**
+   * Makes this the session of the current thread, i.e., the one returned
+   * by getInstance() from now on
+   */
+  public void bind() {
+    if ( this == instance ) boundSession.remove();
+    else boundSession.set(this);
+  }
+
+  /**
+   * Returns the current thread to the default session
+   */
+  public static void unbind() {
+    boundSession.remove();
+  }
+
+  /**
+   * @return true if this is the session of the editor and graph window
+   */
+  public boolean isDefaultSession() {
+    return this == instance;
   }
 
   public Graph getWorkingGraph() {
@@ -237,12 +281,25 @@ public class GraphDispatch {
     return 0;
   }
 
+  /**
+   * Moves the display to the given state if in animation mode.
+   * @see AlgorithmExecutor#seekDisplayState(int)
+   */
+  public void seekDisplayState(int state) {
+    if ( animationMode ) algorithmExecutor.seekDisplayState(state);
+  }
+
+  /**
+   * Called before each change the algorithm makes; within a locked step
+   * only checks whether the algorithm has been stopped, so that a long
+   * step ends promptly when the user quits.
+   */
   public void startStepIfRunning() throws Terminate {
-    if ( animationMode
-         && ! algorithmSynchronizer.isLocked()
-         ) {
+    if ( ! animationMode ) return;
+    if ( algorithmSynchronizer.isLocked() )
+      algorithmSynchronizer.checkTerminated();
+    else
       algorithmSynchronizer.startStep();
-    }
   }
 
   /**
@@ -256,6 +313,25 @@ public class GraphDispatch {
     }
   }
 
+  /**
+   * Called before the algorithm asks the user something; if the algorithm
+   * is running ahead of the display, waits until the display catches up.
+   * @see AlgorithmSynchronizer#beginQuery()
+   */
+  public void beginQueryIfRunning() {
+    if ( animationMode )
+      algorithmSynchronizer.beginQuery();
+  }
+
+  /**
+   * Called once the user has answered a query that does not pause
+   * execution
+   */
+  public void endQueryIfRunning() {
+    if ( animationMode )
+      algorithmSynchronizer.endQuery();
+  }
+
   public void pauseExecutionIfRunning() throws Terminate {
     if ( animationMode )
       algorithmSynchronizer.pauseExecution();
@@ -345,4 +421,4 @@ public class GraphDispatch {
 
 }
 
-//  [Last modified: 2017 03 13 at 19:47:59 GMT]
+//  [Last modified: 2026 10 17 at 20:54:11 GMT]
@@ -15,6 +15,7 @@ package edu.ncsu.csc.Galant.algorithm;
 
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
@@ -31,6 +32,7 @@ import edu.ncsu.csc.Galant.graph.component.LayeredGraph;
 import edu.ncsu.csc.Galant.graph.component.GraphElement;
 import edu.ncsu.csc.Galant.graph.component.Node;
 import edu.ncsu.csc.Galant.graph.component.Edge;
+import edu.ncsu.csc.Galant.graph.component.MemoryUsage;
 import edu.ncsu.csc.Galant.graph.datastructure.NodeSet;
 import edu.ncsu.csc.Galant.graph.datastructure.EdgeSet;
 import edu.ncsu.csc.Galant.graph.datastructure.NodeList;
@@ -51,8 +53,12 @@ import edu.ncsu.csc.Galant.algorithm.AlgorithmExecutor;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 public abstract class Algorithm implements Runnable {
-  /** A list of all the runnable algorithms. */
-  public static final List<Algorithm> algorithms = new ArrayList<Algorithm>();
+  /**
+   * A list of all the runnable algorithms; synchronized, since an
+   * algorithm may be created on a thread other than the event thread.
+   */
+  public static final List<Algorithm> algorithms
+    = Collections.synchronizedList(new ArrayList<Algorithm>());
 
   /** The graph on which the algorithm is being run. */
   public Graph graph;
@@ -121,6 +127,13 @@ public abstract class Algorithm implements Runnable {
 
   public Graph getGraph() { return this.graph; }
 
+  /**
+   * @return the number of states and attributes and the estimated bytes
+   * that the history of the animation takes so far, per kind of element and
+   * in total; e.g., print(memoryUsage().summary())
+   */
+  public MemoryUsage memoryUsage() { return graph.getMemoryUsage(); }
+
   /**
    * throws an exception if the element is null or not in the current
    * scope; used to catch null pointers early in all functions that call
@@ -1086,6 +1099,7 @@ public abstract class Algorithm implements Runnable {
    */
   public String getString(String prompt) throws Terminate {
     synchronizer.startStep();
+    synchronizer.beginQuery();
     StringQuery query = new StringQuery(prompt);
     synchronizer.pauseExecution();
     query = null;           // to keep window from lingering when
@@ -1152,6 +1166,7 @@ public abstract class Algorithm implements Runnable {
    */
   public Integer getInteger(String prompt) throws Terminate {
     synchronizer.startStep();
+    synchronizer.beginQuery();
     IntegerQuery query = new IntegerQuery(prompt);
     synchronizer.pauseExecution();
     query = null;           // to keep window from lingering when
@@ -1164,6 +1179,7 @@ public abstract class Algorithm implements Runnable {
    */
   public Double getDouble(String prompt) throws Terminate {
     synchronizer.startStep();
+    synchronizer.beginQuery();
     DoubleQuery query = new DoubleQuery(prompt);
     synchronizer.pauseExecution();
     query = null;           // to keep window from lingering when
@@ -1190,7 +1206,10 @@ public abstract class Algorithm implements Runnable {
   {
     // synchronizer.startStep();
     // synchronizer.pauseExecution();
-    return Queries.booleanQuery(question, yesText, noText);
+    dispatch.beginQueryIfRunning();
+    Boolean answer = Queries.booleanQuery(question, yesText, noText);
+    dispatch.endQueryIfRunning();
+    return answer;
   }
 
   public Boolean getBoolean(String question)
@@ -1493,4 +1512,4 @@ public abstract class Algorithm implements Runnable {
   public abstract void run();
 }
 
-//  [Last modified: 2017 05 20 at 19:16:59 GMT]
+//  [Last modified: 2026 10 18 at 01:54:50 GMT]
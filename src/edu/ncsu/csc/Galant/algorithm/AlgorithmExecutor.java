@@ -12,39 +12,50 @@
 package edu.ncsu.csc.Galant.algorithm;
 
 import java.lang.Thread;
+import javax.swing.SwingUtilities;
 import edu.ncsu.csc.Galant.algorithm.Algorithm;
 import edu.ncsu.csc.Galant.GraphDispatch;
+import edu.ncsu.csc.Galant.GalantPreferences;
+import edu.ncsu.csc.Galant.graph.component.FrameDiff;
+import edu.ncsu.csc.Galant.graph.component.Graph;
 import edu.ncsu.csc.Galant.gui.window.GraphWindow;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 public class AlgorithmExecutor {
 
     /**
-     * the amount of time to wait between polling the algorithm, in
+     * interval between debug log entries while waiting for a step, in
      * milliseconds
      */
-    final int WAIT_TIME = 10;
-
-    /**
-     * interval between console printouts during busy wait
-     */
     final int PRINT_INTERVAL = 500;
     
     /**
-     * amount of time to wait before concluding that the algorithm is in an
-     * infinite loop
+     * amount of time to wait for a step before concluding that the
+     * algorithm is in an infinite loop
      */
-    final int BUSY_WAIT_TIME_LIMIT = 5000;
+    final int STEP_TIME_LIMIT = 5000;
 
     private Algorithm algorithm;
     private AlgorithmSynchronizer synchronizer;
+    /**
+     * The session in which the executor was created; its working graph is
+     * the one the algorithm runs on
+     */
+    private final GraphDispatch dispatch;
     /**
      * Needs to be public so that it can be interrupted (not clear that it
      * helps)
      */
     public Thread algorithmThread;
-    private int algorithmState;
-    private int displayState;
+    private volatile int algorithmState;
+    private volatile int displayState;
+
+    /**
+     * The display state that getDisplayState() returns while a move of the
+     * display runs off the event thread, -1 if there is none
+     * @see #holdDisplay()
+     */
+    private volatile int heldDisplayState = -1;
 
     /**
      * true if an error or infinite loop occurred during execution
@@ -57,56 +68,154 @@ public class AlgorithmExecutor {
      */
     public boolean exceptionThrown = false;
 
+    /**
+     * true once the history has been compacted after the algorithm finished
+     */
+    private boolean historyCompacted = false;
+
+    /**
+     * The number of states the algorithm may run ahead of the display in
+     * the background, 0 for none
+     */
+    private int lookAhead = 0;
+
+    /**
+     * Run by the algorithm thread when it begins the next state without
+     * pausing
+     * @see AlgorithmSynchronizer#runAhead(int, Runnable)
+     */
+    private final Runnable nextState = new Runnable() {
+            public void run() { beginNextState(); }
+        };
+
+    /**
+     * The display state before the latest move of the display
+     * @see #getLastStepChanges()
+     */
+    private volatile int previousDisplayState = 0;
+
     /**
      * Makes a note of the algorithm and its synchronizer and creates a
      * thread to run the algorithm
      */
-    public AlgorithmExecutor(Algorithm algorithm,
-                             AlgorithmSynchronizer synchronizer) {
+    public AlgorithmExecutor(final Algorithm algorithm,
+                             final AlgorithmSynchronizer synchronizer) {
         this.algorithm = algorithm;
         this.synchronizer = synchronizer;
-        this.algorithmThread = new Thread(algorithm);
-		algorithmThread.setName("Execution thread");
+        this.dispatch = GraphDispatch.getInstance();
+        // the algorithm runs in the session of the executor; the
+        // synchronizer needs to know when the thread ends so that a step
+        // that ends with an uncaught exception does not keep the executor
+        // waiting; the thread is a virtual one if the preferences say so
+        this.algorithmThread = ExecutionThreads.newThread(new Runnable() {
+                public void run() {
+                    dispatch.bind();
+                    try {
+                        algorithm.run();
+                    }
+                    finally {
+                        synchronizer.algorithmExited();
+                    }
+                }
+            }, "Execution thread");
         this.infiniteLoop = false;
         this.exceptionThrown = false;
     }
 
+    /**
+     * Makes a note of the synchronizer for the replay of a recorded
+     * animation: there is no algorithm to run since all of its states are
+     * already there.
+     * @see edu.ncsu.csc.Galant.graph.component.AnimationTrace
+     */
+    public AlgorithmExecutor(AlgorithmSynchronizer synchronizer) {
+        this.synchronizer = synchronizer;
+        this.dispatch = GraphDispatch.getInstance();
+        this.infiniteLoop = false;
+        this.exceptionThrown = false;
+    }
+
+    /**
+     * Starts the replay of a recorded animation that has been loaded into
+     * the working graph; stepping forward and back then works as it does
+     * once an algorithm has finished.
+     * @param lastState the last algorithm state of the recording
+     */
+    public void startReplay(int lastState) {
+        dispatch.setActiveQuery(null);
+        synchronizer.finishAlgorithm();
+        historyCompacted = true;
+        algorithmState = lastState;
+        displayState = previousDisplayState = Math.min(1, lastState);
+    }
+
     /**
      * Starts the algorithm thread and causes it to execute the first step.
      * @todo not clear if we want the first step to execute
      */
     public void startAlgorithm() {
-        GraphDispatch dispatch = GraphDispatch.getInstance();
         dispatch.setActiveQuery(null);
-        algorithmState = displayState = 0;
+        algorithmState = displayState = previousDisplayState = 0;
+        historyCompacted = false;
+        // the keyframe for state 0 has to be taken before the algorithm
+        // thread can make any changes
+        Graph graph = dispatch.getWorkingGraph();
+        graph.getKeyframes().reset(GalantPreferences.KEYFRAME_INTERVAL.get());
+        graph.captureKeyframe(0);
+        graph.setHistoryWindow(GalantPreferences.HISTORY_WINDOW.get(),
+                               GalantPreferences.SPILL_DIRECTORY.get());
+        graph.setMemoryBudget(GalantPreferences.MEMORY_BUDGET.get()
+                              * (1L << 20));
+        lookAhead = GalantPreferences.LOOK_AHEAD.get();
         algorithmThread.start();
         incrementDisplayState();
     }
 
     /**
      * Informs the algorithm that it should terminate and then terminates the
-     * thread.
+     * thread. The algorithm is told first, without waiting for a step that
+     * may be in progress, so that the step ends at once.
      */
-    public synchronized void stopAlgorithm() {
+    public void stopAlgorithm() {
+        synchronizer.stop();
+        synchronized ( this ) {
+            stopAndJoin();
+        }
+    }
+
+    private void stopAndJoin() {
       LogHelper.disable();
         LogHelper.enterMethod(getClass(), "stopAlgorithm");
-        GraphDispatch dispatch = GraphDispatch.getInstance();
-        dispatch.setAnimationMode(false);
-        synchronized ( synchronizer ) {
-            synchronizer.stop();
-            synchronizer.notify();
+        // log the memory taken by keyframes and the size of the spilled
+        // history before the graph is reset
+        Graph graph = dispatch.getWorkingGraph();
+        if ( graph != null && graph.getKeyframes().size() > 0 ) {
+            LogHelper.logDebug("algorithm states: " + algorithmState
+                               + ", " + graph.getKeyframes());
         }
+        if ( graph != null && graph.getSpilledHistory() != null ) {
+            LogHelper.logDebug("history: " + graph.getSpilledHistory());
+        }
+        dispatch.setAnimationMode(false);
+        synchronizer.stop();
         LogHelper.logDebug("algorithm thread notified"
                            + ", infiniteLoop = " + infiniteLoop
                            + ", exceptionThrown = " + synchronizer.exceptionThrown()
                            + ", activeQuery = "
                            + dispatch.getActiveQuery());
         try {
-            if ( ! infiniteLoop
+            if ( algorithmThread != null
+                 && ! infiniteLoop
                  && ! synchronizer.exceptionThrown()
                  && dispatch.getActiveQuery() == null ) {
                 LogHelper.logDebug("stopAlgorithm(): about to join algorithm thread");
-                algorithmThread.join();
+                // the algorithm may be busy in the middle of a step that
+                // was still running when the user quit
+                algorithmThread.join(STEP_TIME_LIMIT);
+                // a step that still runs is not waiting at a step boundary,
+                // where it would have seen that it was stopped; it may be
+                // blocked elsewhere, e.g., sleeping, so it is interrupted
+                if ( algorithmThread.isAlive() ) algorithmThread.interrupt();
                 LogHelper.logDebug("stopAlgorithm(): joined algorithm thread");
             }
             LogHelper.logDebug("stopAlgorithm(): beyond (conditional) joining of algorithm thread");
@@ -116,7 +225,7 @@ public class AlgorithmExecutor {
         }
         if ( dispatch.getActiveQuery() != null )
             dispatch.getActiveQuery().dispose();
-        algorithmState = displayState = 0;
+        algorithmState = displayState = previousDisplayState = 0;
         LogHelper.exitMethod(getClass(), "stopAlgorithm");
         LogHelper.restoreState();
     }
@@ -129,15 +238,57 @@ public class AlgorithmExecutor {
     public int getAlgorithmState() { return algorithmState; }
 
     /**
-     * Needed for code that relies on knowing what the current display is showing
+     * Needed for code that relies on knowing what the current display is
+     * showing; while the display is held, this is the state it showed
+     * before the move began.
      */
-    public int getDisplayState() { return displayState; }
+    public int getDisplayState() {
+        int held = heldDisplayState;
+        return ( held >= 0 ) ? held : displayState;
+    }
 
     /**
-     * Called whenever user interaction requests a step forward; the
-     * algorithm is then responsible for calling incrementAlgorithmState() to
-     * put the algorithm in sync with the display; this is done in
-     * pauseExecution() in the AlgorithmSynchronizer.
+     * Called before a move of the display that has the algorithm execute
+     * runs off the event thread: until releaseDisplay(), the display keeps
+     * showing the state it shows now, since the algorithm is still working
+     * on the next one.
+     * @see edu.ncsu.csc.Galant.gui.window.GraphWindow#runAlgorithmStep
+     */
+    public synchronized void holdDisplay() {
+        heldDisplayState = displayState;
+    }
+
+    /** Called once the move of the display is done. */
+    public void releaseDisplay() {
+        heldDisplayState = -1;
+    }
+
+    /**
+     * @return what changed between the two display states
+     * @see Graph#changesBetween(int, int)
+     */
+    public FrameDiff changesBetween(int from, int to) {
+        return dispatch.getWorkingGraph()
+            .changesBetween(from, to);
+    }
+
+    /**
+     * @return what changed with the latest step, back or forward, or jump
+     * of the display
+     */
+    public FrameDiff getLastStepChanges() {
+        return changesBetween(previousDisplayState, displayState);
+    }
+
+    /**
+     * Called whenever user interaction requests a step forward; if the
+     * display has caught up with the algorithm, the algorithm is allowed to
+     * take a step and this blocks until it pauses again in
+     * pauseExecution() in the AlgorithmSynchronizer, or for at most
+     * STEP_TIME_LIMIT milliseconds, after which the algorithm is presumed
+     * to be in an infinite loop. It therefore should not be called on the
+     * event thread when nextStepRunsAlgorithm() is true.
+     * @see edu.ncsu.csc.Galant.gui.window.GraphWindow#runAlgorithmStep
      *
      * @todo needs to check if there's a query window open before releasing
      * control to the algorithm via synchronizer.notify(); ideally should
@@ -149,63 +300,285 @@ public class AlgorithmExecutor {
         LogHelper.logDebug("-> incrementDisplayState display = "
                            + displayState
                            + " algorithm = " + algorithmState);
-        GraphDispatch dispatch = GraphDispatch.getInstance();
-        if ( displayState == algorithmState
-             && ! synchronizer.algorithmFinished()
-             && ! synchronizer.stopped()
-             && ! synchronizer.exceptionThrown()
-             && dispatch.getActiveQuery() == null ) {
+        previousDisplayState = displayState;
+        if ( displayState == algorithmState && algorithmCanRun() ) {
+            // all changes for the current state have been made
             displayState++;
-            algorithmState++;
-
-            // wake up the algorithmThread, have it do something
-            synchronized ( synchronizer ) {
-                synchronizer.notify();
-            }
-            int timeInBusyWait = 0;
-            do {
-                try {
-                    Thread.sleep(WAIT_TIME);
-                    timeInBusyWait += WAIT_TIME;
-                    if ( timeInBusyWait % PRINT_INTERVAL == 0 ) {
-                        System.out.println("waiting "
-                                           + (timeInBusyWait / (double) 1000)
-                                           + " seconds");
-                    }
-                } catch (InterruptedException e) {
-                    System.out.printf("Error occured while trying to wait");
-                    e.printStackTrace(System.out);
-                }
-            } while ( ! synchronizer.stepFinished()
-                      && ! synchronizer.stopped()
-                      //                      && ! algorithmThread.interrupted()
-                      && ! synchronizer.exceptionThrown()
-                      && ! exceptionThrown
-                      && timeInBusyWait < BUSY_WAIT_TIME_LIMIT );
-            if ( timeInBusyWait >= BUSY_WAIT_TIME_LIMIT ) {
-                System.out.println("busy wait time limit exceeded");
-                infiniteLoop = true;
-            }
+            beginNextState();
+            // wake up the algorithmThread, have it do something, and
+            // wait until it is done
+            synchronizer.resumeStep();
+            awaitAlgorithm();
         }
         else if ( displayState < algorithmState ) {
             displayState++;
+            if ( displayState == algorithmState ) catchUpWithAlgorithm();
         }
-        if ( infiniteLoop || synchronizer.exceptionThrown() ) {
-            // need to let window know that algorithm was terminated due
-            // to unusual circumstances so that appropriate message will
-            // appear on the status bar
-            dispatch.getGraphWindow().performDone();
-        }
+        keepAhead();
+        doneIfInterrupted();
+        compactHistoryIfFinished();
         LogHelper.logDebug("<- incrementDisplayState display = "
                            + displayState
                            + " algorithm = " + algorithmState);
         LogHelper.restoreState();
     }
 
+    /**
+     * Lets the algorithm run to the end without pausing, recording every
+     * step as it goes; the display then shows the last state and all others
+     * can be stepped through at once. The run stops early if the algorithm
+     * asks the user a question -- the display moves to the state the
+     * algorithm has reached before the question goes up -- throws an
+     * exception or is stopped, or if a single step takes longer than
+     * STEP_TIME_LIMIT. Like incrementDisplayState(), this blocks until it
+     * is done and should not be called on the event thread.
+     */
+    public synchronized void runToCompletion() {
+        previousDisplayState = displayState;
+        if ( algorithmCanRun() ) {
+            synchronizer.runAhead(Integer.MAX_VALUE, nextState);
+            awaitAlgorithm();
+        }
+        if ( synchronizer.queryPending() ) {
+            // the question is about the state the algorithm has reached,
+            // so that is shown before it goes up
+            displayState = algorithmState;
+            showDisplayState();
+        }
+        catchUpWithAlgorithm();
+        displayState = algorithmState;
+        doneIfInterrupted();
+        compactHistoryIfFinished();
+    }
+
+    /**
+     * Has the window update its status line, on the event thread.
+     */
+    private void showStatus() {
+        final GraphWindow window = dispatch.getGraphWindow();
+        if ( window == null ) return;
+        SwingUtilities.invokeLater(new Runnable() {
+                public void run() { window.updateStatusLabel(); }
+            });
+    }
+
+    /**
+     * Stops holding the display and has the window show the current
+     * display state; the window is updated on the event thread.
+     */
+    private void showDisplayState() {
+        releaseDisplay();
+        final GraphWindow window = dispatch.getGraphWindow();
+        if ( window == null ) return;
+        SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    window.updateStatusLabel();
+                    GraphWindow.getGraphFrame().repaint();
+                }
+            });
+    }
+
+    /**
+     * Sets the number of states the algorithm may run ahead of the
+     * display in the background, 0 for none; the algorithm looks ahead
+     * only while no query is up and the memory budget of the graph is not
+     * exceeded, and waits for the display to catch up before asking the
+     * user anything.
+     * @see AlgorithmSynchronizer#beginQuery()
+     */
+    public synchronized void setLookAhead(int states) {
+        lookAhead = Math.max(0, states);
+        keepAhead();
+    }
+
+    public int getLookAhead() { return lookAhead; }
+
+    /**
+     * Lets the algorithm run ahead of the display, up to lookAhead states,
+     * if it may; returns right away. While it does, the display reads the
+     * graph under its read lock and the algorithm changes it under the
+     * write lock, see Graph.readLock().
+     */
+    private void keepAhead() {
+        if ( lookAhead <= 0 || ! algorithmCanRun() ) return;
+        Graph graph = dispatch.getWorkingGraph();
+        if ( graph.isOverMemoryBudget() ) return;
+        int states = lookAhead - (algorithmState - displayState);
+        if ( states > 0 ) synchronizer.runAhead(states, nextState);
+    }
+
+    /**
+     * Called when the display reaches the state the algorithm may still be
+     * working on: stops running ahead and waits until the state is done.
+     */
+    private void catchUpWithAlgorithm() {
+        synchronizer.stopRunningAhead();
+        if ( ! synchronizer.algorithmIdle() ) awaitAlgorithm();
+    }
+
+    /**
+     * @return true if the algorithm can be allowed to take another step
+     */
+    private boolean algorithmCanRun() {
+        return ! synchronizer.algorithmFinished()
+            && ! synchronizer.stopped()
+            && ! synchronizer.exceptionThrown()
+            && dispatch.getActiveQuery() == null;
+    }
+
+    /**
+     * Takes care of the history of the current algorithm state, all of
+     * whose changes have been made, and moves on to the next one. Called
+     * while the algorithm is paused: by the executor, or, while it runs
+     * ahead, by the algorithm thread itself, outside the handoff lock of
+     * the synchronizer.
+     */
+    private void beginNextState() {
+        Graph graph = dispatch.getWorkingGraph();
+        graph.captureKeyframe(algorithmState);
+        graph.trimHistory(algorithmState);
+        graph.checkMemoryBudget(algorithmState);
+        algorithmState++;
+    }
+
+    /**
+     * Waits until the algorithm is done with the steps it was granted;
+     * concludes that it is in an infinite loop if it makes no progress
+     * for STEP_TIME_LIMIT milliseconds.
+     */
+    private void awaitAlgorithm() {
+        int timeWaiting = 0;
+        int lastState = algorithmState;
+        Graph graph = dispatch.getWorkingGraph();
+        boolean overBudget = graph.isOverMemoryBudget();
+        while ( ! synchronizer.awaitStep(PRINT_INTERVAL) ) {
+            if ( ! overBudget && graph.isOverMemoryBudget() ) {
+                // the step is running away; say so before it ends
+                overBudget = true;
+                showStatus();
+            }
+            if ( algorithmState != lastState || synchronizer.inQuery() ) {
+                // running ahead and still moving along, or waiting for the
+                // user
+                lastState = algorithmState;
+                timeWaiting = 0;
+                continue;
+            }
+            timeWaiting += PRINT_INTERVAL;
+            if ( timeWaiting >= STEP_TIME_LIMIT
+                 || Thread.currentThread().isInterrupted() ) {
+                LogHelper.logDebug("step time limit exceeded");
+                infiniteLoop = true;
+                break;
+            }
+            LogHelper.logDebug("waiting "
+                               + (timeWaiting / (double) 1000)
+                               + " seconds");
+        }
+    }
+
+    /**
+     * Lets the window know that the algorithm was terminated due to
+     * unusual circumstances so that the appropriate message will appear on
+     * the status bar; steps may run off the event thread.
+     */
+    private void doneIfInterrupted() {
+        if ( ! ( infiniteLoop || synchronizer.exceptionThrown() )
+             || synchronizer.stopped() ) return;
+        final GraphWindow window = dispatch.getGraphWindow();
+        if ( window == null ) return;
+        if ( SwingUtilities.isEventDispatchThread() )
+            window.performDone();
+        else
+            SwingUtilities.invokeLater(new Runnable() {
+                    public void run() { window.performDone(); }
+                });
+    }
+
+    /**
+     * Once the algorithm has finished, drops the algorithm states in which
+     * nothing changed, so that stepping back and forth no longer shows the
+     * same picture twice. The display states are renumbered under the
+     * write lock of the graph along with the history, so that the display,
+     * which may be painting a held state meanwhile, sees either the old
+     * numbers or the new ones.
+     * @see Graph#compactHistory(int)
+     */
+    private void compactHistoryIfFinished() {
+        if ( historyCompacted
+             || ! synchronizer.algorithmFinished()
+             || synchronizer.exceptionThrown()
+             || infiniteLoop ) return;
+        historyCompacted = true;
+        Graph graph = dispatch.getWorkingGraph();
+        graph.writeLock().lock();
+        try {
+            int[] map = graph.compactHistory(algorithmState);
+            if ( map[algorithmState] < algorithmState ) {
+                LogHelper.logDebug("history compacted from " + algorithmState
+                                   + " to " + map[algorithmState] + " states");
+            }
+            displayState = renumber(map, displayState);
+            previousDisplayState = renumber(map, previousDisplayState);
+            if ( heldDisplayState >= 0 )
+                heldDisplayState = renumber(map, heldDisplayState);
+            algorithmState = map[algorithmState];
+        }
+        finally {
+            graph.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the new number of the given display state
+     */
+    private int renumber(int[] map, int state) {
+        return map[Math.max(0, Math.min(state, algorithmState))];
+    }
+
+    /**
+     * Moves the display directly to the given state. States the algorithm
+     * has already reached are displayed at once; for later ones the
+     * algorithm is run forward, step by step, until it reaches the state,
+     * finishes or is interrupted, e.g., by a query.
+     */
+    public synchronized void seekDisplayState(int state) {
+        if ( state < 1 ) state = 1;
+        int start = displayState;
+        if ( state <= algorithmState ) {
+            previousDisplayState = start;
+            displayState = state;
+            if ( displayState == algorithmState ) catchUpWithAlgorithm();
+            keepAhead();
+            return;
+        }
+        displayState = algorithmState;
+        while ( displayState < state && hasNextState() ) {
+            int previous = displayState;
+            incrementDisplayState();
+            if ( displayState == previous
+                 || infiniteLoop || synchronizer.exceptionThrown() ) break;
+        }
+        previousDisplayState = start;
+    }
+
+    /**
+     * @return true if stepping forward has the algorithm execute, or wait
+     * for the algorithm looking ahead, i.e., it may take a while
+     */
+    public boolean nextStepRunsAlgorithm() {
+        if ( synchronizer.algorithmFinished() || synchronizer.stopped() )
+            return false;
+        return displayState == algorithmState
+            || ( displayState + 1 == algorithmState
+                 && ! synchronizer.algorithmIdle() );
+    }
+
     /**
      * Called when user requests a step back
      */
-    public void decrementDisplayState() {
+    public synchronized void decrementDisplayState() {
+        previousDisplayState = displayState;
         if ( displayState >= 0 ) displayState--;
     }
 
@@ -232,4 +605,4 @@ public class AlgorithmExecutor {
     }
 }
 
-//  [Last modified: 2017 03 08 at 19:31:24 GMT]
+//  [Last modified: 2026 10 18 at 03:46:05 GMT]
@@ -13,134 +13,460 @@
  *   manager (AlgorithmExecutor)
  *
  * - if the current display state is the same as the algorithm state, the
- *   algorithm wakes up and executes, doing a startStep(), i.e., setting
- *   stepFinished false and checking for termination
+ *   executor grants the algorithm another step with resumeStep() and
+ *   blocks in awaitStep() until the algorithm pauses again, finishes,
+ *   throws an exception or is stopped -- or a time limit runs out
+ *
+ * - the algorithm wakes up and executes, doing a startStep(), i.e.,
+ *   checking for termination
  *
  * - when the current algorithm step is done, the algorithm calls
- *   pauseExecution() to wake up the AlgorithmExecuter (main thread)
+ *   pauseExecution(), which wakes up the executor and waits for the next
+ *   step to be granted
+ *
+ * The handoff counts the steps granted by the executor and the pauses
+ * reached by the algorithm rather than signaling with notify() alone, so
+ * a step granted before the algorithm is waiting for it, e.g., while the
+ * algorithm thread is still starting up, is not lost; and the executor
+ * waits for the algorithm instead of polling it. The handoff uses a
+ * ReentrantLock and its Condition rather than synchronized and wait():
+ * a virtual thread that waits in Object.wait() keeps its carrier thread
+ * busy for as long as the algorithm is paused, one that waits on a
+ * Condition does not.
  *
- * - this synchronizer waits to be woken up again, i.e., when the user steps
- *    forward beyond the current algorithm state
+ * The executor may also let the algorithm run ahead of the display, a
+ * given number of states or to the end, while the display keeps showing
+ * the state it was in: the algorithm then does not wait in
+ * pauseExecution() but begins the next state right away. The display
+ * reads the graph under its lock meanwhile (see Graph.readLock()), and
+ * the next state is begun outside the handoff lock, since doing so takes
+ * the write lock of the graph. The algorithm does wait, in beginQuery(),
+ * before asking the user anything until the display has caught up with it.
  */
 
 package edu.ncsu.csc.Galant.algorithm;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.algorithm.AlgorithmExecutor;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 public class AlgorithmSynchronizer {
 
-    /** true if done with current algorithm step */
-    protected boolean stepFinished = false;
+    /** guards all the fields below except terminated and locked */
+    private final ReentrantLock handoff = new ReentrantLock();
+    /** signaled whenever the algorithm or the executor moves on */
+    private final Condition progress = handoff.newCondition();
+
+    /** number of steps the executor has allowed the algorithm to take */
+    protected int stepsGranted = 0;
+    /** number of pauses the algorithm has reached; the algorithm is done
+     * with the current step if this exceeds stepsGranted */
+    protected int pausesReached = 0;
     /** true if algorithm has reached the end of execution; may still be
      * animating */
     protected boolean algorithmFinished = false;
-    /** true if user has ended animation; set via the Terminate exception */
-    protected boolean terminated = false;
+    /** true if user has ended animation; set via the Terminate exception;
+     * volatile so that the algorithm can check it on every change to the
+     * graph without taking the lock */
+    protected volatile boolean terminated = false;
     /** true if current state is "locked" -- changes in graph state continue to
      * take place until algorithm has an explicit endStep(); a lock is
      * initiated by a beginStep() */
     protected boolean locked = false;
     /** true if there was an exception thrown during the current step */
     protected boolean exceptionThrown = false;
+    /** number of steps the algorithm may still take without pausing;
+     * instead of waiting in pauseExecution() it runs nextState to begin
+     * the next algorithm state */
+    protected int freeSteps = 0;
+    protected Runnable nextState = null;
+    /** true if the algorithm is working on a state that the display has
+     * not reached yet, i.e., is running ahead */
+    protected boolean ahead = false;
+    /** true while the algorithm, running ahead, waits in beginQuery() for
+     * the display to catch up */
+    protected boolean queryPending = false;
+    /** true from beginQuery() until the algorithm pauses or calls
+     * endQuery(), i.e., while it waits for the user to answer */
+    protected boolean inQuery = false;
 
     /**
      * Signals the algorithm that it needs to stop running. The signal is
      * heeded at the beginning of the next step.
      */
-    public synchronized void stop() {
-        terminated = true;
-     }
+    public void stop() {
+        handoff.lock();
+        try {
+            terminated = true;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
 
-    public synchronized boolean stopped() {
+    public boolean stopped() {
         return terminated;
     }
 
+    /**
+     * Throws Terminate if the algorithm has been stopped; cheap enough to
+     * be called on every change the algorithm makes, including the ones
+     * within a locked step, which do not start a step of their own.
+     */
+    public void checkTerminated() throws Terminate {
+        if ( terminated )
+            throw new Terminate();
+    }
+
     /**
      * The algorithm signals that it has reached the end of execution on its own.
      * @todo not clear that this has to be synchronized
      */
-    public synchronized void finishAlgorithm() {
-        synchronized( this ) {
+    public void finishAlgorithm() {
+        handoff.lock();
+        try {
             algorithmFinished = true;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
         }
     }
 
-    public synchronized boolean algorithmFinished() {
-        return algorithmFinished;
+    /**
+     * Called when the algorithm thread ends for whatever reason; if the
+     * algorithm neither finished nor was stopped, it was ended by an
+     * exception that was not reported.
+     */
+    public void algorithmExited() {
+        handoff.lock();
+        try {
+            if ( ! algorithmFinished && ! terminated ) exceptionThrown = true;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    public boolean algorithmFinished() {
+        handoff.lock();
+        try {
+            return algorithmFinished;
+        }
+        finally {
+            handoff.unlock();
+        }
     }
 
     public void lock() { locked = true; }
     public void unlock() { locked = false; }
     public boolean isLocked() { return locked; }
 
-    public synchronized void reportExceptionThrown() {
-        exceptionThrown = true;
+    public void reportExceptionThrown() {
+        handoff.lock();
+        try {
+            exceptionThrown = true;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
     }
 
-    public synchronized boolean exceptionThrown() {
-        return exceptionThrown;
+    public boolean exceptionThrown() {
+        handoff.lock();
+        try {
+            return exceptionThrown;
+        }
+        finally {
+            handoff.unlock();
+        }
     }
 
     /**
-     * Signals the beginning of a step: the algorithm calls startStep() and
-     * the main thread checks, in a busy wait loop, to see whether the
-     * current step is finished.
+     * Signals the beginning of a step: the algorithm calls startStep() while
+     * the main thread waits in awaitStep() for the step to finish.
      *
      * startStep() is also used by the algorithm to take appropriate action when
      * termination is called for; if yes then throws an exception to
      * effectively do a 'long jump' to the end of the run() method of the
      * compiled algorithm;
+     *
+     * Unless a locked step has to end, this only reads the terminated flag,
+     * i.e., does not take the lock, since it is called for every change.
      * @see edu.ncsu.csc.Galant.algorithm.code.CodeIntegrator
      */
-    public synchronized void startStep() throws Terminate {
-        if ( terminated )
-            throw new Terminate();
+    public void startStep() throws Terminate {
+        checkTerminated();
         if ( locked ) {
             locked = false;
             pauseExecution();
         }
-        if ( terminated )
-            throw new Terminate();
-        stepFinished = false;
     }
 
-    public synchronized boolean stepFinished() {
-        return stepFinished;
+    public boolean stepFinished() {
+        handoff.lock();
+        try {
+            return pausesReached > stepsGranted;
+        }
+        finally {
+            handoff.unlock();
+        }
     }
 
-    public synchronized void finishStep() {
-        stepFinished = true;
+    public void finishStep() {
+        handoff.lock();
+        try {
+            pausesReached = stepsGranted + 1;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the executor to let the algorithm take up to the given
+     * number of steps without pausing, with nextState run at each pause to
+     * begin the next algorithm state. If the algorithm has paused, nextState
+     * is run right away and the algorithm resumes; otherwise it runs ahead
+     * from its next pause on. The algorithm still pauses as usual when a
+     * query is up, since it cannot go on without the answer.
+     */
+    public void runAhead(int steps, Runnable nextState) {
+        boolean paused;
+        handoff.lock();
+        try {
+            this.nextState = nextState;
+            paused = pausesReached > stepsGranted;
+            if ( ! paused && ! algorithmIdle() ) {
+                freeSteps = Math.max(0, steps);
+            }
+        }
+        finally {
+            handoff.unlock();
+        }
+        if ( ! paused ) return;
+        // the algorithm stays paused until the step is granted below
+        nextState.run();
+        handoff.lock();
+        try {
+            freeSteps = Math.max(0, steps - 1);
+            stepsGranted++;
+            ahead = true;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the executor when the display reaches the state the
+     * algorithm is working on: the algorithm pauses at the end of it, and
+     * a query it is about to put up can go up now.
+     */
+    public void stopRunningAhead() {
+        handoff.lock();
+        try {
+            freeSteps = 0;
+            ahead = false;
+            queryPending = false;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the algorithm before it asks the user something: while it
+     * is running ahead, the question would come out of the blue, so it
+     * waits until the display has caught up. Does not throw Terminate;
+     * termination is taken care of at the next pause.
+     */
+    public void beginQuery() {
+        handoff.lock();
+        try {
+            inQuery = true;
+            if ( ! ahead ) return;
+            queryPending = true;
+            progress.signalAll();
+            while ( queryPending && ! terminated ) {
+                progress.await();
+            }
+        }
+        catch ( InterruptedException e ) {
+            LogHelper.logDebug("interruption in beginQuery");
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * @return true while the algorithm, running ahead, waits in
+     * beginQuery() for the display to catch up
+     */
+    public boolean queryPending() {
+        handoff.lock();
+        try {
+            return queryPending;
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the algorithm once the user has answered a query that does
+     * not pause execution; other queries end with the pause.
+     */
+    public void endQuery() {
+        handoff.lock();
+        try {
+            inQuery = false;
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * @return true while the algorithm waits for the answer to a query;
+     * the time spent doing so does not count towards a step time limit
+     */
+    public boolean inQuery() {
+        handoff.lock();
+        try {
+            return inQuery;
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * @return true if the algorithm is not doing anything, i.e., it has
+     * paused, finished, thrown an exception or been stopped
+     */
+    public boolean algorithmIdle() {
+        handoff.lock();
+        try {
+            return pausesReached > stepsGranted
+                || algorithmFinished || terminated || exceptionThrown;
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the executor to let the algorithm take its next step; the
+     * algorithm may already be waiting in pauseExecution() or may get there
+     * later.
+     */
+    public void resumeStep() {
+        handoff.lock();
+        try {
+            ahead = false;
+            stepsGranted++;
+            progress.signalAll();
+        }
+        finally {
+            handoff.unlock();
+        }
+    }
+
+    /**
+     * Called by the executor after resumeStep(): blocks until the algorithm
+     * has finished the step, i.e., paused again, finished, thrown an
+     * exception or been stopped -- or, running ahead, is waiting to put up
+     * a query -- but for at most the given time.
+     * @return true if the step is over, false if the time ran out first
+     */
+    public boolean awaitStep(long timeoutMillis) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        handoff.lock();
+        try {
+            while ( pausesReached <= stepsGranted
+                    && ! algorithmFinished && ! terminated && ! exceptionThrown
+                    && ! queryPending ) {
+                if ( remaining <= 0 ) return false;
+                remaining = progress.awaitNanos(remaining);
+            }
+            return true;
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            handoff.unlock();
+        }
     }
 
     /**
      * Called at the end of each algorithm step; yields control back to the
-     * main thread
+     * main thread and waits until the next step is granted, unless the
+     * algorithm may run ahead. Has no effect while the current state is
+     * locked, i.e., within a beginStep() - endStep() pair, and then returns
+     * without taking the lock.
+     *
+     * An interrupt while waiting, e.g., when the executor gives up on
+     * joining the algorithm thread, ends the algorithm as a stop does.
      */
-    public synchronized void pauseExecution() throws Terminate {
+    public void pauseExecution() throws Terminate {
+        checkTerminated();
+        if ( locked ) return;
+        Runnable next;
+        handoff.lock();
+        try {
+            next = pause();
+        }
+        finally {
+            handoff.unlock();
+        }
+        if ( next != null ) next.run();
+    }
+
+    /**
+     * @return the Runnable that begins the next state if the algorithm
+     * runs ahead instead of waiting, null otherwise
+     */
+    private Runnable pause() throws Terminate {
         LogHelper.disable();
-        LogHelper.logDebug("-> pauseExecution, locked = " + locked);
-        if ( terminated )
-            throw new Terminate();
-        AlgorithmExecutor executor
-            = GraphDispatch.getInstance().getAlgorithmExecutor();
-        stepFinished = true;
-        synchronized( this ) {
+        LogHelper.logDebug("-> pauseExecution");
+        inQuery = false;
+        Runnable next = null;
+        if ( freeSteps > 0
+             && GraphDispatch.getInstance().getActiveQuery() == null ) {
+            freeSteps--;
+            ahead = true;
+            next = nextState;
+        }
+        else {
+            pausesReached++;
+            progress.signalAll();
             try {
-                if ( ! locked ) {
-                    this.wait();
+                while ( stepsGranted < pausesReached && ! terminated ) {
+                    progress.await();
                 }
             }
             catch ( InterruptedException e ) {
-                System.out.println("interruption in pauseExecution");
+                terminated = true;
             }
         }
-        if ( terminated )
-            throw new Terminate();
-        LogHelper.logDebug("<- pauseExecution, locked = " + locked);
+        LogHelper.logDebug("<- pauseExecution");
         LogHelper.restoreState();
+        checkTerminated();
+        return next;
     }
 }
 
-//  [Last modified: 2016 12 22 at 18:38:31 GMT]
+//  [Last modified: 2026 10 18 at 03:17:26 GMT]
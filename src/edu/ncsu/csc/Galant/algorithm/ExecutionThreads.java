@@ -0,0 +1,112 @@
+/**
+ * Creates the threads on which algorithms run. By default each run gets a
+ * platform thread of its own, as it always has. With the Virtual Threads
+ * preference each run gets a virtual thread instead, which is far cheaper
+ * to create and to keep parked at a step boundary -- this matters for
+ * batch experiments that launch hundreds of short runs.
+ *
+ * Virtual threads are looked up reflectively so that Galant still builds
+ * and runs on Java runtimes that do not have them; there the preference
+ * is ignored, with a notice in the debug log the first time. On Java 19
+ * and 20 virtual threads are a preview feature: the methods are there but
+ * fail unless preview features are enabled, so they are tried out once
+ * before they are relied on, and a thread that cannot be created as a
+ * virtual one is created as a platform thread.
+ */
+
+package edu.ncsu.csc.Galant.algorithm;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import edu.ncsu.csc.Galant.GalantPreferences;
+import edu.ncsu.csc.Galant.logging.LogHelper;
+
+public final class ExecutionThreads {
+
+    /**
+     * Thread.ofVirtual() and Thread.Builder.unstarted(Runnable), null if
+     * the runtime has no virtual threads or they cannot be used
+     */
+    private static final Method OF_VIRTUAL;
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method unstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            unstarted = ofVirtual.getReturnType()
+                .getMethod("unstarted", Runnable.class);
+            // throws if virtual threads are a preview feature that is not
+            // enabled
+            ofVirtual.invoke(null);
+        }
+        catch ( NoSuchMethodException e ) {
+            ofVirtual = unstarted = null;
+        }
+        catch ( IllegalAccessException e ) {
+            ofVirtual = unstarted = null;
+        }
+        catch ( InvocationTargetException e ) {
+            ofVirtual = unstarted = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        UNSTARTED = unstarted;
+    }
+
+    private static boolean noticeGiven = false;
+
+    private ExecutionThreads() {}
+
+    /**
+     * @return true if the Java runtime supports virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return a new, unstarted thread with the given name that runs the
+     * given code: a virtual thread if the preference asks for one and the
+     * runtime has them, a platform thread otherwise
+     */
+    public static Thread newThread(Runnable code, String name) {
+        Thread thread = null;
+        if ( GalantPreferences.VIRTUAL_THREADS.get() ) {
+            thread = newVirtualThread(code);
+        }
+        if ( thread == null ) {
+            thread = new Thread(code);
+        }
+        thread.setName(name);
+        return thread;
+    }
+
+    /**
+     * @return a new, unstarted virtual thread that runs the given code,
+     * null if the runtime has no virtual threads
+     */
+    public static Thread newVirtualThread(Runnable code) {
+        if ( ! virtualThreadsAvailable() ) {
+            giveNotice("virtual threads are not available in Java "
+                       + System.getProperty("java.version"));
+            return null;
+        }
+        try {
+            return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), code);
+        }
+        catch ( ReflectiveOperationException e ) {
+            giveNotice("cannot create a virtual thread: "
+                       + ( e.getCause() != null ? e.getCause() : e ));
+            return null;
+        }
+    }
+
+    private static synchronized void giveNotice(String reason) {
+        if ( noticeGiven ) return;
+        noticeGiven = true;
+        LogHelper.logDebug(reason + ", using platform threads");
+    }
+}
+
+//  [Last modified: 2026 10 18 at 04:03:29 GMT]
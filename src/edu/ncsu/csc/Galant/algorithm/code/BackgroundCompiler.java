@@ -0,0 +1,206 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
+
+/**
+ * Compiles algorithms on a thread of its own while they are being edited,
+ * so that errors can be shown as the user types and an algorithm whose
+ * code compiles is ready to run. Each editor, the owner of its jobs, has at
+ * most one job waiting; a new job replaces the waiting one and cancels the
+ * one being compiled for the same editor, if any, since its result would be
+ * out of date anyway.
+ */
+public class BackgroundCompiler
+	{
+		private static final BackgroundCompiler instance = new BackgroundCompiler();
+
+		/**
+		 * Is told the outcome of a job that was not cancelled. The job
+		 * carries the bytecode only; the algorithm is not loaded until the
+		 * listener asks for it.
+		 */
+		public interface Listener
+			{
+				/** Called on the thread of the compiler, not the event thread. */
+				void compiled(Job job);
+			}
+
+		/** An algorithm to be compiled and, eventually, the outcome. */
+		public static class Job
+			{
+				private final Object owner;
+				private final String name;
+				private final String code;
+				private final Listener listener;
+				private final AtomicBoolean cancelled = new AtomicBoolean();
+
+				private String qualifiedName;
+				private Map<String, byte[]> classes;
+				private Exception error;
+
+				private Job(Object owner, String name, String code, Listener listener)
+					{
+						this.owner = owner;
+						this.name = name;
+						this.code = code;
+						this.listener = listener;
+					}
+
+				/** Returns the code that was compiled. */
+				public String getCode()
+					{
+						return code;
+					}
+
+				/** Returns true if the code compiled without errors. */
+				public boolean isCompiled()
+					{
+						return qualifiedName != null;
+					}
+
+				/**
+				 * Loads and returns a new instance of the compiled algorithm,
+				 * null if there were errors. It is defined from the bytecode of
+				 * this job, which is always kept in memory, whatever has been
+				 * compiled or written since. Like any algorithm, it adds itself
+				 * to <code>Algorithm.algorithms</code>, so this is called on
+				 * the event thread and only when the algorithm is kept.
+				 */
+				public Algorithm newAlgorithm()
+					{
+						if(qualifiedName == null)
+							return null;
+						return CompilerAndLoader.loadAlgorithm(qualifiedName, classes);
+					}
+
+				/**
+				 * Returns the <code>CompilationException</code>,
+				 * <code>MalformedMacroException</code> or
+				 * <code>GalantException</code> that the compilation ended
+				 * with, null if there was none.
+				 */
+				public Exception getError()
+					{
+						return error;
+					}
+
+				private void cancel()
+					{
+						cancelled.set(true);
+					}
+
+				private void run()
+					{
+						try
+							{
+								classes = CodeIntegrator.compileCode(name, code, cancelled);
+								if(classes != null)
+									qualifiedName = CodeIntegrator.qualifiedName(name);
+							}
+						catch(CompilationException e)
+							{
+								error = e;
+							}
+						catch(MalformedMacroException e)
+							{
+								error = e;
+							}
+						catch(GalantException e)
+							{
+								error = e;
+							}
+						catch(RuntimeException e)
+							{
+								// whatever went wrong will happen again, and be
+								// reported, when the algorithm is compiled for real
+								error = e;
+							}
+						if(!cancelled.get())
+							listener.compiled(this);
+					}
+			}
+
+		/** The job waiting for each owner, oldest first. */
+		private final Map<Object, Job> waiting = new LinkedHashMap<Object, Job>();
+
+		/** The job being compiled, null if there is none. */
+		private Job current;
+
+		private Thread thread;
+
+		private BackgroundCompiler()
+			{
+			}
+
+		public static BackgroundCompiler getInstance()
+			{
+				return instance;
+			}
+
+		/**
+		 * Compiles the given code, named like the algorithm's file, for the
+		 * given owner, replacing any job of the owner that is waiting or
+		 * being compiled.
+		 */
+		public synchronized void submit(Object owner, String name, String code, Listener listener)
+			{
+				cancel(owner);
+				waiting.put(owner, new Job(owner, name, code, listener));
+				if(thread == null)
+					{
+						thread = new Thread(new Runnable(){
+							public void run()
+								{
+									work();
+								}
+						}, "Background compiler");
+						thread.setDaemon(true);
+						thread.setPriority(Thread.NORM_PRIORITY - 1);
+						thread.start();
+					}
+				notifyAll();
+			}
+
+		/**
+		 * Drops the job of the given owner that is waiting, and cancels the
+		 * one being compiled, if any; e.g., when the code is edited again.
+		 */
+		public synchronized void cancel(Object owner)
+			{
+				waiting.remove(owner);
+				if(current != null && current.owner == owner)
+					current.cancel();
+			}
+
+		private synchronized Job next() throws InterruptedException
+			{
+				current = null;
+				while(waiting.isEmpty())
+					wait();
+				Iterator<Job> jobs = waiting.values().iterator();
+				current = jobs.next();
+				jobs.remove();
+				return current;
+			}
+
+		private void work()
+			{
+				try
+					{
+						while(true)
+							next().run();
+					}
+				catch(InterruptedException e)
+					{
+						// the thread is a daemon; nothing else ends it
+					}
+			}
+	}
+
+//  [Last modified: 2026 10 18 at 04:48:36 GMT]
@@ -2,12 +2,15 @@ package edu.ncsu.csc.Galant.algorithm.code;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
 import edu.ncsu.csc.Galant.GalantPreferences;
 import edu.ncsu.csc.Galant.algorithm.Algorithm;
 import edu.ncsu.csc.Galant.algorithm.code.macro.Macro;
+import edu.ncsu.csc.Galant.algorithm.code.macro.MacroExpander;
 import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 import edu.ncsu.csc.Galant.GalantException;
@@ -27,7 +30,8 @@ import java.io.InputStreamReader;
  * <li>Replacing any macros with the equivalent Java code.</li>
  * <li>Inserting the code into a basic class structure.</li>
  * <li>Compiling the completed Java class into a <code>.class</code> file,
- *  which is stored in the folder defined by
+ *  which is kept in memory or, if {@link GalantPreferences#WRITE_CLASS_FILES}
+ *  is set, stored in the folder defined by
  * {@link GalantPreferences#OUTPUT_DIRECTORY}.</li>
  * <li>Loading the <code>.class</code> file into the program so that its
  * <code>runAlgorithm</code> method can be called.</li>
@@ -55,8 +59,8 @@ public class CodeIntegrator	{
      * the code that appears at the beginning and end of the algorithm, to
      * call on initialization and cleanup routines
      */
-    private static final String REAL_ALGORITHM_HEAD = "initialize();";
-    private static final String REAL_ALGORITHM_TAIL = "finishAlgorithm();";
+    protected static final String REAL_ALGORITHM_HEAD = "initialize();";
+    protected static final String REAL_ALGORITHM_TAIL = "finishAlgorithm();";
 
     /**
      * The basic class structure into which the user's code can be inserted
@@ -121,47 +125,74 @@ public class CodeIntegrator	{
         + FINAL_EXCEPTION_HANDLING
         + "}";
 
+    /**
+     * the algorithm structure up to and after the body of the algorithm,
+     * with the real head and tail
+     */
+    private static final String ALGORITHM_START
+        = ALGORITHM_STRUCTURE.substring(0, ALGORITHM_STRUCTURE.indexOf(ALGORITHM_BODY))
+        .replace(ALGORITHM_HEAD, REAL_ALGORITHM_HEAD);
+    private static final String ALGORITHM_END
+        = ALGORITHM_STRUCTURE.substring(ALGORITHM_STRUCTURE.indexOf(ALGORITHM_BODY)
+                                        + ALGORITHM_BODY.length())
+        .replace(ALGORITHM_TAIL, REAL_ALGORITHM_TAIL);
+
     /**
      * Converts the unmodified user algorithm code into a proper Java class,
-     * as would be found in a .java file.
+     * as would be found in a .java file. All macros are expanded in one
+     * sweep by a {@link MacroExpander}.
      */
     // protected so it can be accessed by tests
     protected static String toJavaClass(String algorithmName, String userCode)
         throws MalformedMacroException
     {
-        // separate animator declared imports from main code; these are
-        // assumed to be at the beginning of the program
-        Matcher matcher = Pattern.compile("import.*;").matcher(userCode);
-        int splitAt = 0;
-        while ( matcher.find() )
-            splitAt = matcher.end();
-        // splitAt should be 1st char in 1st line not starting with "import"
-        String imports = userCode.substring(0, splitAt);
-        userCode = userCode.substring(splitAt);
+        return toJavaClass(algorithmName, userCode, new LineMap());
+    }
 
-        userCode = removeAllComments(userCode);
+    /**
+     * Converts the user algorithm code into a Java class, filling in the
+     * given map from the lines of the class to those of the algorithm.
+     */
+    protected static String toJavaClass(String algorithmName, String userCode, LineMap lineMap)
+        throws MalformedMacroException
+    {
+        int splitAt = endOfImports(userCode);
+        String imports = userCode.substring(0, splitAt);
+        userCode = removeAllComments(userCode.substring(splitAt));
 
-        // Rebuild the algorithm and add head or tail as needed; this
-        // essentially expands the 'algorithm' macro
         int startOfAlgorithm = userCode.indexOf("algorithm");
         if ( startOfAlgorithm < 0 ) {
             throw new MalformedMacroException("Algorithm needs to be contained in 'algorithm { ... }'");
         }
-        // everything up to the key word 'algorithm'
-        StringBuilder sb
-            = new StringBuilder(userCode.substring(0, startOfAlgorithm));
-
-        // add the algorithm body as a run() method with calls on
-        // initialization and cleanup methods
-        sb.append(modifyAlgorithm(REAL_ALGORITHM_HEAD,
-                                  REAL_ALGORITHM_TAIL,
-                                  userCode));
+        int[] algorithmBlock = findAlgorithmBlock(userCode, startOfAlgorithm);
+
+        // everything up to the key word 'algorithm', followed by the
+        // algorithm body as a run() method with calls on initialization
+        // and cleanup methods
+        StringBuilder sb = new StringBuilder(2 * userCode.length()
+                                             + ALGORITHM_START.length()
+                                             + ALGORITHM_END.length());
+        MacroExpander expander = new MacroExpander(userCode, sb);
+        expander.expand(0, startOfAlgorithm);
+        sb.append(ALGORITHM_START);
+        expander.expand(algorithmBlock[0] + 1, algorithmBlock[1]);
+        sb.append(ALGORITHM_END);
         userCode = sb.toString();
+        int importLines = 0;
+        for ( int i = imports.indexOf('\n'); i >= 0; i = imports.indexOf('\n', i + 1) )
+            importLines++;
+        lineMap.setLines(importLines, expander.getLines());
+        return toJavaClass(algorithmName, imports, userCode);
+    }
 
-        // apply macros
-        for ( Macro macro : Macro.MACROS ) {
-            userCode = macro.applyTo(userCode);
-        }
+    /**
+     * @return the class with the given name, imports and expanded code,
+     * after the macros generated while expanding have been applied
+     */
+    // protected so it can be accessed by tests
+    protected static String toJavaClass(String algorithmName, String imports, String userCode)
+        throws MalformedMacroException
+    {
         // apply generated macros, removing each one so if the code is recompiled,
         // you don't end up with incorrect/duplicate macros
         while(!Macro.GENERATED_MACROS.isEmpty())
@@ -172,6 +203,19 @@ public class CodeIntegrator	{
                                                                           userCode).replace(IMPORTS_FIELD, imports);
     }
 
+    /**
+     * @return the index just after the last import declaration; these
+     * are assumed to be at the beginning of the program
+     */
+    // protected so it can be accessed by tests
+    protected static int endOfImports(String userCode) {
+        Matcher matcher = Pattern.compile("import.*;").matcher(userCode);
+        int splitAt = 0;
+        while ( matcher.find() )
+            splitAt = matcher.end();
+        return splitAt;
+    }
+
     /**
      * Integrates the given code into the program as a class with the given name.
      * @param algorithmName the name of the algorithm to be integrated.
@@ -183,8 +227,17 @@ public class CodeIntegrator	{
     public static Algorithm integrateCode(String algorithmName, String userCode)
         throws CompilationException, MalformedMacroException, GalantException
     {
-        // Make sure the name is a valid Java identifier; use the file name
-        // and replace all illegal characters with _'s
+        return CompilerAndLoader.loadAlgorithm(qualifiedName(algorithmName),
+                                               compileCode(algorithmName, userCode, null));
+    }
+
+    /**
+     * @return the qualified name of the class of the algorithm with the
+     * given name, e.g., the name of its file; all characters that are not
+     * allowed in a Java identifier are replaced with _'s
+     */
+    public static String qualifiedName(String algorithmName)
+    {
         int nameLength = algorithmName.length();
         StringBuilder nameBuilder = new StringBuilder(nameLength);
         for(int i = 0; i < algorithmName.codePointCount(0, nameLength); i++) {
@@ -195,23 +248,51 @@ public class CodeIntegrator	{
             else
                 nameBuilder.appendCodePoint('_');
         }
-        String className = nameBuilder.toString();
-        String qualifiedName = PACKAGE + "." + className;
+        return PACKAGE + "." + nameBuilder.toString();
+    }
+
+    /**
+     * Compiles the given code as above, without loading it, unless the
+     * compilation is cancelled on the way; used to compile an algorithm in
+     * the background while it is being edited, in which case the source
+     * code is not shown and the class files are kept in memory. The
+     * algorithm is loaded later, on the event thread, if it is still
+     * wanted.
+     * @param cancelled set to true to give up on the compilation; null if
+     * it cannot be cancelled.
+     * @return the bytecode of the classes, to be loaded with the {@link
+     * #qualifiedName(String) qualified name} of the algorithm; an empty map
+     * if they were written to the output directory; null if the
+     * compilation was cancelled.
+     * @see CompilerAndLoader#loadAlgorithm(String, Map)
+     */
+    public static Map<String, byte[]> compileCode(String algorithmName, String userCode,
+                                                  AtomicBoolean cancelled)
+        throws CompilationException, MalformedMacroException, GalantException
+    {
+        String qualifiedName = qualifiedName(algorithmName);
+        String className = qualifiedName.substring(PACKAGE.length() + 1);
 
         // Replace macros and insert into class structure
-        String sourceCode = toJavaClass(className, userCode);
+        LineMap lineMap = new LineMap();
+        String sourceCode = toJavaClass(className, userCode, lineMap);
 
         // Display source code after macro processing
-        LogHelper.showSourceCode(sourceCode);
+        if ( cancelled == null )
+            LogHelper.showSourceCode(sourceCode);
+        else if ( cancelled.get() )
+            return null;
 
         // Compile
         DiagnosticCollector<JavaFileObject> diagnostics =
-            CompilerAndLoader.compile(qualifiedName, sourceCode);
-        if ( diagnostics != null )
-            throw new CompilationException(diagnostics);
-
-        // Load
-        return CompilerAndLoader.loadAlgorithm(qualifiedName);
+            new DiagnosticCollector<JavaFileObject>();
+        Map<String, byte[]> classes =
+            CompilerAndLoader.compile(qualifiedName, sourceCode, diagnostics, cancelled);
+        if ( cancelled != null && cancelled.get() )
+            return null;
+        if ( classes == null )
+            throw new CompilationException(diagnostics, lineMap);
+        return classes;
     }
 
     /**
@@ -287,6 +368,37 @@ public class CodeIntegrator	{
         return sb.toString().substring(1, sb.length() - 1);
     }
 
+    /**
+     * @return the indexes of the braces that enclose the algorithm, which
+     * starts at the given index; braces are counted the same way as in
+     * getCodeBlock(), so that an algorithm without its closing brace ends
+     * just before the last character
+     */
+    private static int[] findAlgorithmBlock(String code, int start)
+        throws MalformedMacroException
+    {
+        int counter = 0;
+        int open = -1;
+        int close = code.length() - 1;
+        for ( int i = start; i < code.length(); i++ ) {
+            char c = code.charAt(i);
+            if ( c == '{' ) {
+                counter++;
+                if ( open < 0 ) open = i;
+            }
+            else if ( c == '}' ) {
+                counter--;
+            }
+            if ( open >= 0 && counter == 0 ) {
+                close = i;
+                break;
+            }
+        }
+        if ( open < 0 || close <= open )
+            throw new MalformedMacroException("Algorithm needs to be contained in 'algorithm { ... }'");
+        return new int[] { open, close };
+    }
+
     public enum State {
         DEFAULT,                // not in comment, last char not '/'
         SLASH,                  // not in comment, last char is '/'
@@ -301,14 +413,12 @@ public class CodeIntegrator	{
      * @return code with all the comments removed; uses a simple
      * finite-state machine; preserves line numbering -- all line breaks
      * remain intact.
-     *
-     * @todo Use a StringBuffer to make this more efficient (?); probably
-     * won't make a difference unless the algorithm has thousands of lines.
      */
-    private static String removeAllComments(String code) {
+    // protected so it can be accessed by tests
+    protected static String removeAllComments(String code) {
         LogHelper.logDebug("-> removeAllComments, code =\n" + code);
 
-        String withoutComments = "";
+        StringBuilder withoutComments = new StringBuilder(code.length());
         State state = State.DEFAULT;
 
         for ( int i = 0; i < code.length(); i++ ) {
@@ -319,7 +429,7 @@ public class CodeIntegrator	{
                 if ( current == '/' ) state = State.SLASH;
                 else {
                     if ( current == '"' ) state = State.IN_STRING;
-                    withoutComments += current;
+                    withoutComments.append(current);
                 }
             }
             else if ( state == State.SLASH ) {
@@ -328,14 +438,14 @@ public class CodeIntegrator	{
                 else if ( current == '/' ) state = State.SLASH_SLASH;
                 else {
                     state = State.DEFAULT;
-                    withoutComments += '/';
-                    withoutComments += current;
+                    withoutComments.append('/');
+                    withoutComments.append(current);
                 }
             }
             else if ( state == State.SLASH_STAR ) {
                 //LogHelper.logDebug("    state = SLASH_STAR");
                 if ( current == '*' ) state = State.STAR;
-                else if ( current == '\n' ) withoutComments += current;
+                else if ( current == '\n' ) withoutComments.append(current);
                 // do nothing otherwise -- in a comment
             }
             else if ( state == State.STAR ) {
@@ -343,31 +453,31 @@ public class CodeIntegrator	{
                 if ( current == '/' ) state = State.DEFAULT;
                 else {
                     state = State.SLASH_STAR;
-                    if ( current == '\n' ) withoutComments += current;
+                    if ( current == '\n' ) withoutComments.append(current);
                 }
             }
             else if ( state == State.SLASH_SLASH ) {
                 //LogHelper.logDebug("    state = SLASH_SLASH");
                 if ( current == '\n' ) {
                     state = State.DEFAULT;
-                    withoutComments += current;
+                    withoutComments.append(current);
                 }
                 // do nothing otherwise -- in a comment
             }
             else if ( state == State.IN_STRING ) {
                 if ( current == '\\' ) state = State.BACKSLASH;
                 if ( current == '"' ) state = state.DEFAULT;
-                withoutComments += current;
+                withoutComments.append(current);
             }
             else if ( state == State.BACKSLASH ) {
                 state = State.IN_STRING;
-                withoutComments += current;
+                withoutComments.append(current);
             }
         }
         LogHelper.logDebug("<- removeAllComments, withoutComments =\n"
                            + withoutComments);
-        return withoutComments;
+        return withoutComments.toString();
     }
 }
 
-//  [Last modified: 2017 08 05 at 21:53:59 GMT]
+//  [Last modified: 2026 10 18 at 04:48:36 GMT]
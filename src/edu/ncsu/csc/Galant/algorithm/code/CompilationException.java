@@ -1,5 +1,6 @@
 package edu.ncsu.csc.Galant.algorithm.code;
 
+import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
 
@@ -12,8 +13,18 @@ public class CompilationException extends Exception
 		private static final long serialVersionUID = 1L;
 
 		private DiagnosticCollector<JavaFileObject> diagnostics;
+		private LineMap lineMap;
 
 		public CompilationException(DiagnosticCollector<JavaFileObject> diagnostics)
+			{
+				this(diagnostics, new LineMap());
+			}
+
+		/**
+		 * @param lineMap maps the lines of the diagnostics back to those of
+		 * the algorithm.
+		 */
+		public CompilationException(DiagnosticCollector<JavaFileObject> diagnostics, LineMap lineMap)
 			{
                 super(diagnostics.getDiagnostics().toString());
                 // The following is handled in GAlgorithmEditorPanel as a
@@ -23,6 +34,7 @@ public class CompilationException extends Exception
 //                                       diagnostic.getLineNumber(),
 //                                       diagnostic.getMessage(null));
 				this.diagnostics = diagnostics;
+				this.lineMap = lineMap;
 			}
 
 		/** Returns the <code>DiagnosticCollector</code> containing the details of the errors. */
@@ -30,6 +42,15 @@ public class CompilationException extends Exception
 			{
 				return diagnostics;
 			}
+
+		/**
+		 * Returns the line of the algorithm that the given diagnostic is
+		 * about, rather than the line of the Java class it was compiled as.
+		 */
+		public int getAlgorithmLine(Diagnostic<?> diagnostic)
+			{
+				return lineMap.getAlgorithmLine(diagnostic.getLineNumber());
+			}
 	}
 
-//  [Last modified: 2015 04 23 at 20:34:20 GMT]
+//  [Last modified: 2026 10 17 at 23:08:02 GMT]
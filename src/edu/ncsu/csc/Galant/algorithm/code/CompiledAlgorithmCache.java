@@ -0,0 +1,414 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.CodeSource;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import edu.ncsu.csc.Galant.Galant;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.logging.LogHelper;
+
+/**
+ * Bytecode of compiled algorithms, keyed by a hash of the Java source after
+ * macro expansion together with the Galant version, the version of the
+ * Java platform and the compiler options, so that running an
+ * algorithm that has not changed since it was last compiled -- in this
+ * session or an earlier one -- skips the compiler altogether.
+ *
+ * The cache is kept in memory and in a directory on disk, one file per
+ * algorithm; each is bounded by the same number of bytes and gives up the
+ * least recently used algorithms first when it is full. Since a development
+ * build does not change the version string, the key also includes a hash
+ * of the names, sizes and modification times of the jar or class files
+ * Galant itself was loaded from, so that any rebuild of Galant -- not just
+ * one that changes Algorithm -- starts with an empty cache.
+ */
+public class CompiledAlgorithmCache
+	{
+		/** first int of a cache file */
+		private static final int MAGIC = 0x47616c43;
+		private static final String SUFFIX = ".classes";
+
+		/** bytecode of the classes of each algorithm, least recently used first */
+		private final LinkedHashMap<String, Map<String, byte[]>> entries =
+			new LinkedHashMap<String, Map<String, byte[]>>(16, 0.75f, true);
+		private long memoryBytes = 0;
+
+		private File directory;
+		private long maxBytes;
+
+		private int hits = 0;
+		private int diskHits = 0;
+		private int misses = 0;
+		private int memoryEvictions = 0;
+		private int diskEvictions = 0;
+
+		/**
+		 * @param directory where the cache is kept on disk, null for memory only
+		 * @param maxBytes the most bytes of bytecode kept in memory and on disk
+		 */
+		public CompiledAlgorithmCache(File directory, long maxBytes)
+			{
+				this.directory = directory;
+				this.maxBytes = maxBytes;
+			}
+
+		/**
+		 * Changes where the cache is kept on disk and how large it may get;
+		 * entries beyond the new size are evicted.
+		 */
+		public synchronized void configure(File directory, long maxBytes)
+			{
+				this.directory = directory;
+				this.maxBytes = maxBytes;
+				trimMemory();
+				trimDisk();
+			}
+
+		/**
+		 * @return the key of the algorithm with the given name and source code
+		 */
+		public static String key(String qualifiedName, String sourceCode)
+			{
+				MessageDigest digest = newDigest();
+				digest.update(Galant.VERSION.getBytes(StandardCharsets.UTF_8));
+				digest.update(RUNTIME_HASH);
+				// class files from a newer platform do not load on an older one
+				digest.update(System.getProperty("java.specification.version", "").getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				for(String option : CompilerService.getOptions())
+					{
+						digest.update(option.getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 0);
+					}
+				digest.update(qualifiedName.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				digest.update(sourceCode.getBytes(StandardCharsets.UTF_8));
+				return toHex(digest.digest());
+			}
+
+		/**
+		 * @return the bytecode of the classes of the algorithm with the given
+		 * key, by binary name, null if it is not in the cache
+		 */
+		public synchronized Map<String, byte[]> get(String key)
+			{
+				Map<String, byte[]> classes = entries.get(key);
+				if(classes != null)
+					{
+						hits++;
+						return classes;
+					}
+				classes = read(key);
+				if(classes != null)
+					{
+						hits++;
+						diskHits++;
+						putInMemory(key, classes);
+						return classes;
+					}
+				misses++;
+				return null;
+			}
+
+		/**
+		 * Adds the bytecode of a newly compiled algorithm to the cache.
+		 */
+		public synchronized void put(String key, Map<String, byte[]> classes)
+			{
+				putInMemory(key, classes);
+				write(key, classes);
+			}
+
+		public synchronized int getHits()
+			{
+				return hits;
+			}
+
+		/** @return the number of hits that had to read the cache on disk */
+		public synchronized int getDiskHits()
+			{
+				return diskHits;
+			}
+
+		public synchronized int getMisses()
+			{
+				return misses;
+			}
+
+		/** @return the number of algorithms evicted from memory */
+		public synchronized int getMemoryEvictions()
+			{
+				return memoryEvictions;
+			}
+
+		/** @return the number of cache files deleted to make room on disk */
+		public synchronized int getDiskEvictions()
+			{
+				return diskEvictions;
+			}
+
+		/** @return the number of algorithms in memory */
+		public synchronized int size()
+			{
+				return entries.size();
+			}
+
+		/** @return the number of bytes of bytecode in memory */
+		public synchronized long getMemoryBytes()
+			{
+				return memoryBytes;
+			}
+
+		@Override
+		public synchronized String toString()
+			{
+				return "compiled algorithms: " + hits + " hits (" + diskHits + " from disk), "
+					+ misses + " misses, " + memoryEvictions + " evictions from memory, "
+					+ diskEvictions + " from disk, "
+					+ entries.size() + " in memory taking " + memoryBytes + " bytes";
+			}
+
+		private void putInMemory(String key, Map<String, byte[]> classes)
+			{
+				Map<String, byte[]> old = entries.put(key, classes);
+				if(old != null)
+					memoryBytes -= bytes(old);
+				memoryBytes += bytes(classes);
+				trimMemory();
+			}
+
+		private void trimMemory()
+			{
+				Iterator<Map<String, byte[]>> eldest = entries.values().iterator();
+				while(memoryBytes > maxBytes && eldest.hasNext())
+					{
+						memoryBytes -= bytes(eldest.next());
+						eldest.remove();
+						memoryEvictions++;
+					}
+			}
+
+		private static long bytes(Map<String, byte[]> classes)
+			{
+				long bytes = 0;
+				for(byte[] bytecode : classes.values())
+					bytes += bytecode.length;
+				return bytes;
+			}
+
+		/**
+		 * @return the classes read from the cache file with the given key,
+		 * null if there is none or it cannot be read; a hit makes the file
+		 * the most recently used one
+		 */
+		private Map<String, byte[]> read(String key)
+			{
+				if(directory == null)
+					return null;
+				File file = new File(directory, key + SUFFIX);
+				if(!file.isFile())
+					return null;
+				Map<String, byte[]> classes = new HashMap<String, byte[]>();
+				try
+					{
+						DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+						try
+							{
+								if(in.readInt() != MAGIC)
+									return null;
+								int count = in.readInt();
+								for(int i = 0; i < count; i++)
+									{
+										String name = in.readUTF();
+										byte[] bytecode = new byte[in.readInt()];
+										in.readFully(bytecode);
+										classes.put(name, bytecode);
+									}
+							}
+						finally
+							{
+								in.close();
+							}
+					}
+				catch(IOException e)
+					{
+						file.delete();
+						return null;
+					}
+				file.setLastModified(System.currentTimeMillis());
+				return classes;
+			}
+
+		/**
+		 * Writes the classes to the cache file with the given key; the file
+		 * is written under another name first so that it is never seen half
+		 * written. Failures are only logged since the cache in memory still
+		 * works.
+		 */
+		private void write(String key, Map<String, byte[]> classes)
+			{
+				if(directory == null || maxBytes == 0)
+					return;
+				if(!directory.isDirectory() && !directory.mkdirs())
+					return;
+				File file = new File(directory, key + SUFFIX);
+				File temporary = new File(directory, key + ".tmp");
+				try
+					{
+						DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+						try
+							{
+								out.writeInt(MAGIC);
+								out.writeInt(classes.size());
+								for(Map.Entry<String, byte[]> entry : classes.entrySet())
+									{
+										out.writeUTF(entry.getKey());
+										out.writeInt(entry.getValue().length);
+										out.write(entry.getValue());
+									}
+							}
+						finally
+							{
+								out.close();
+							}
+						if(!temporary.renameTo(file))
+							{
+								file.delete();
+								temporary.renameTo(file);
+							}
+					}
+				catch(IOException e)
+					{
+						temporary.delete();
+						LogHelper.logDebug("cannot write compiled algorithm to " + file + ": " + e.getMessage());
+						return;
+					}
+				trimDisk();
+			}
+
+		private void trimDisk()
+			{
+				if(directory == null)
+					return;
+				File[] files = directory.listFiles();
+				if(files == null)
+					return;
+				long bytes = 0;
+				int count = 0;
+				for(File file : files)
+					if(file.getName().endsWith(SUFFIX))
+						{
+							files[count++] = file;
+							bytes += file.length();
+						}
+				files = Arrays.copyOf(files, count);
+				Arrays.sort(files, new Comparator<File>(){
+					public int compare(File a, File b)
+						{
+							return Long.compare(a.lastModified(), b.lastModified());
+						}
+				});
+				for(int i = 0; i < files.length && bytes > maxBytes; i++)
+					{
+						bytes -= files[i].length();
+						files[i].delete();
+						diskEvictions++;
+					}
+			}
+
+		/**
+		 * hash of the name, size and modification time of the jar or class
+		 * files Galant was loaded from, empty if they cannot be found
+		 */
+		private static final byte[] RUNTIME_HASH = runtimeHash();
+
+		private static byte[] runtimeHash()
+			{
+				File codeSource;
+				try
+					{
+						CodeSource source = Algorithm.class.getProtectionDomain().getCodeSource();
+						if(source == null || source.getLocation() == null)
+							return new byte[0];
+						codeSource = new File(source.getLocation().toURI());
+					}
+				catch(URISyntaxException e)
+					{
+						return new byte[0];
+					}
+				catch(IllegalArgumentException e)
+					{
+						// not a file, e.g., a class loaded over the network
+						return new byte[0];
+					}
+				catch(SecurityException e)
+					{
+						return new byte[0];
+					}
+				MessageDigest digest = newDigest();
+				hashFiles(digest, codeSource, codeSource.getAbsolutePath());
+				return digest.digest();
+			}
+
+		/**
+		 * Adds the given file -- or, for a directory, each file below it, in
+		 * order of their names -- to the digest, by path, size and time of
+		 * last modification.
+		 */
+		private static void hashFiles(MessageDigest digest, File file, String path)
+			{
+				File[] files = file.listFiles();
+				if(files == null)
+					{
+						digest.update(path.getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 0);
+						digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 0);
+						digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 0);
+						return;
+					}
+				Arrays.sort(files);
+				for(File f : files)
+					hashFiles(digest, f, path + "/" + f.getName());
+			}
+
+		private static MessageDigest newDigest()
+			{
+				try
+					{
+						return MessageDigest.getInstance("SHA-256");
+					}
+				catch(NoSuchAlgorithmException e)
+					{
+						// every Java platform is required to support SHA-256
+						throw new IllegalStateException(e);
+					}
+			}
+
+		private static String toHex(byte[] bytes)
+			{
+				StringBuilder hex = new StringBuilder(2 * bytes.length);
+				for(byte b : bytes)
+					hex.append(String.format("%02x", b & 0xff));
+				return hex.toString();
+			}
+	}
+
+//  [Last modified: 2026 10 18 at 03:58:14 GMT]
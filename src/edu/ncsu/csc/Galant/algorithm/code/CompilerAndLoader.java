@@ -1,30 +1,52 @@
 package edu.ncsu.csc.Galant.algorithm.code;
 
 import java.io.File;
-import java.io.IOException;
-import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Arrays;
-import java.util.Locale;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaCompiler.CompilationTask;
 import javax.tools.JavaFileObject;
-import javax.tools.SimpleJavaFileObject;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
 import edu.ncsu.csc.Galant.GalantPreferences;
 import edu.ncsu.csc.Galant.algorithm.Algorithm;
 import edu.ncsu.csc.Galant.gui.util.ExceptionDialog;
 import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.logging.LogHelper;
 
 /**
  * Dynamic code compilation class
+ *
+ * The class files of an algorithm are kept in memory and its classes are
+ * defined from there, unless the preferences ask for the class files to be
+ * written to the output directory, e.g., to look at them with javap.
+ * Algorithms compiled in memory are also cached, so that an algorithm
+ * whose source has not changed is not compiled again.
  * @see http://www.accordess.com/wpblog/an-overview-of-java-compilation-api-jsr-199/
  */
 public class CompilerAndLoader
 	{
+		/**
+		 * Bytecode of the classes of each algorithm compiled in memory, by
+		 * the qualified name of the algorithm; the latest compilation of an
+		 * algorithm replaces the earlier ones.
+		 */
+		private static final Map<String, Map<String, byte[]>> compiledClasses =
+			Collections.synchronizedMap(new HashMap<String, Map<String, byte[]>>());
+
+		/**
+		 * Compiled algorithms by the hash of their source code, kept in
+		 * memory and in the cache subdirectory of the output directory
+		 */
+		private static final CompiledAlgorithmCache cache =
+			new CompiledAlgorithmCache(null, 0);
+
+		public static CompiledAlgorithmCache getCache()
+			{
+				return cache;
+			}
+
 		/**
 		 * Does the required object initialization and compilation.
 		 * @param qualifiedName The qualified name of the class to compile.
@@ -34,94 +56,116 @@ public class CompilerAndLoader
 		 */
 		public static DiagnosticCollector<JavaFileObject> compile(String qualifiedName, String sourceCode) throws GalantException
 			{
-				// Create output directory
-				File outputDir = GalantPreferences.OUTPUT_DIRECTORY.get();
-
-				if(!outputDir.exists())
-					outputDir.mkdirs();
-
-				/* Creating dynamic java source code file object */
-				SimpleJavaFileObject fileObject = new DynamicJavaSourceCodeObject(qualifiedName, sourceCode);
-				JavaFileObject javaFileObjects[] = new JavaFileObject[]{fileObject};
-
-				/* Instantiating the java compiler */
-				JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-                if ( compiler == null ) {
-					// problem might be that JAVA_HOME points to a jre instead of a jdk
-					String jdkHome = System.getProperty("java.home").replace("jre", "jdk");
-					System.setProperty("java.home", jdkHome);
-					compiler = ToolProvider.getSystemJavaCompiler();
-					if ( compiler == null )
-						throw new GalantException("No compiler found, need a JDK, java.home = " + System.getProperty("java.home"));
-                }
-				/**
-				 * Retrieving the standard file manager from compiler object,
-				 * which is used to provide basic building block for
-				 * customizing how a compiler reads and writes to files. The
-				 * same file manager can be reopened for another compiler
-				 * task. Thus we reduce the overhead of scanning through file
-				 * system and jar files each time
-				 */
-				StandardJavaFileManager stdFileManager
-                    = compiler.getStandardFileManager(null, Locale.getDefault(), null);
-
-				/*
-				 * Prepare a list of compilation units (java source code file objects) to input to
-				 * compilation task
-				 */
-				Iterable<? extends JavaFileObject> compilationUnits = Arrays.asList(javaFileObjects);
-
-				/* Prepare any compilation options to be used during compilation */
-				// In this example, we are asking the compiler to place the output files under bin
-				// folder.
-				String[] compileOptions = new String[]{"-d", outputDir.getPath()};
-				Iterable<String> compilationOptionss = Arrays.asList(compileOptions);
-
-				/* Create a diagnostic controller, which holds the compilation problems */
 				DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+				if(compile(qualifiedName, sourceCode, diagnostics, null) == null)
+					return diagnostics;
+				return null;
+			}
 
-				/*
-				 * Create a compilation task from compiler by passing in the required input objects
-				 * prepared above
-				 */
-				CompilationTask compilerTask =
-					compiler.getTask(null, stdFileManager, diagnostics, compilationOptionss, null, compilationUnits);
-
-				// Perform the compilation by calling the call method on compilerTask object.
-				boolean status = compilerTask.call();
-				
-				// Want to delete class files on exit.
+		/**
+		 * Compiles as above unless the compilation is cancelled on the way,
+		 * and returns the bytecode itself; looking it up by name later could
+		 * find that of another compilation of the same algorithm.
+		 * @param diagnostics receives the compilation errors, if any.
+		 * @param cancelled set to true to give up on the compilation; null if
+		 * it cannot be cancelled. A compilation that can be cancelled is one
+		 * in the background: its class files are kept in memory even if the
+		 * preferences ask for them to be written, and it is not what
+		 * loadAlgorithm(String) loads.
+		 * @return the bytecode of the classes by binary name, an empty map
+		 * if they were written to the output directory; null if there were
+		 * compilation errors or the compilation was cancelled.
+		 */
+		public static Map<String, byte[]> compile(String qualifiedName, String sourceCode,
+			DiagnosticCollector<JavaFileObject> diagnostics, AtomicBoolean cancelled) throws GalantException
+			{
+				boolean background = cancelled != null;
+				boolean writeClassFiles = !background && GalantPreferences.WRITE_CLASS_FILES.get();
+
+				// An algorithm compiled before does not need to be compiled
+				// again unless its class files are to be written
+				String key = null;
+				long cacheSize = GalantPreferences.CACHE_SIZE.get() * (1L << 20);
+				if(!writeClassFiles && cacheSize > 0)
+					{
+						cache.configure(new File(GalantPreferences.OUTPUT_DIRECTORY.get(), "cache"), cacheSize);
+						key = CompiledAlgorithmCache.key(qualifiedName, sourceCode);
+						Map<String, byte[]> classes = cache.get(key);
+						if(classes != null)
+							{
+								if(!background)
+									compiledClasses.put(qualifiedName, classes);
+								LogHelper.logDebug(cache.toString());
+								return classes;
+							}
+					}
 
-				// The class file was deleted after each compilation.
-				// removeClassFiles(outputDir);
+				// The class files go to the output directory if they are
+				// written at all
+				File outputDir = null;
+				if(writeClassFiles)
+					{
+						outputDir = GalantPreferences.OUTPUT_DIRECTORY.get();
+						if(!outputDir.exists())
+							outputDir.mkdirs();
+					}
 
-				if(!status)
+				Map<String, byte[]> classes =
+					CompilerService.getInstance().compile(qualifiedName, sourceCode, outputDir, diagnostics, cancelled);
+				if(background && cancelled.get())
+					return null;
+				if(classes == null)
 					{// If compilation error occurs
-						return diagnostics;
-					}
-				try
-					{
-						stdFileManager.close();// Close the file manager
+						return null;
 					}
-				catch(IOException e)
+				if(!writeClassFiles)
 					{
-						ExceptionDialog.displayExceptionInDialog(e);
+						if(!background)
+							compiledClasses.put(qualifiedName, classes);
+						if(key != null)
+							cache.put(key, classes);
 					}
-				return null;
+				else
+					compiledClasses.remove(qualifiedName);
+				return classes;
+			}
+
+		/**
+		 * @return the bytecode of the latest compilation of the algorithm
+		 * with the given name that was not in the background, by binary
+		 * name; null if its class files were written to the output
+		 * directory instead.
+		 */
+		public static Map<String, byte[]> getCompiledClasses(String qualifiedName)
+			{
+				return compiledClasses.get(qualifiedName);
 			}
 
 		/**
 		 * Loads the class with the given name as an <code>Algorithm</code>,
-		 * and returns an instance of it. The algorithm's <code>.class</code>
-		 * file is stored in a directory specified by preferences.
+		 * and returns an instance of it. The algorithm's classes are defined
+		 * from memory if it was compiled there; otherwise its
+		 * <code>.class</code> file is stored in a directory specified by
+		 * preferences.
 		 * @param qualifiedName the qualified name of the class to load.
 		 * @return an <code>Algorithm</code> object representing the desired
 		 * algorithm.
 		 */
 		public static Algorithm loadAlgorithm(String qualifiedName) {
+            return loadAlgorithm(qualifiedName, compiledClasses.get(qualifiedName));
+        }
+
+		/**
+		 * Loads the algorithm with the given name from the given bytecode,
+		 * as returned by compile() or getCompiledClasses(), and returns an
+		 * instance of it; from its <code>.class</code> file if the bytecode
+		 * is null or empty, i.e., the class files were written.
+		 */
+		public static Algorithm loadAlgorithm(String qualifiedName, Map<String, byte[]> classes) {
             try {
-                ClassLoader cl
-                    = new URLClassLoader(new URL[]{GalantPreferences.OUTPUT_DIRECTORY.get().toURI().toURL()});
+                ClassLoader cl = classes != null && !classes.isEmpty()
+                    ? new MemoryClassLoader(classes)
+                    : new URLClassLoader(new URL[]{GalantPreferences.OUTPUT_DIRECTORY.get().toURI().toURL()});
                 return cl.loadClass(qualifiedName).asSubclass(Algorithm.class).newInstance();
             }
             catch(Exception e) {
@@ -142,52 +186,4 @@ public class CompilerAndLoader
 			}
 	}
 
-/**
- * Creates a dynamic source code file object This is an example of how we can prepare a dynamic java source code for
- * compilation. This class reads the java code from a string and prepares a JavaFileObject
- */
-class DynamicJavaSourceCodeObject extends SimpleJavaFileObject
-	{
-		private String qualifiedName;
-		private String sourceCode;
-
-		/**
-		 * Converts the name to an URI, as that is the format expected by JavaFileObject
-		 * @param name fully qualified name given to the class file
-		 * @param code the source code string
-		 */
-		protected DynamicJavaSourceCodeObject(String name, String code)
-			{
-				super(URI.create("string:///" + name.replaceAll("\\.", "/") + Kind.SOURCE.extension), Kind.SOURCE);
-				this.qualifiedName = name;
-				this.sourceCode = code;
-			}
-
-		@Override
-		public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException
-			{
-				return sourceCode;
-			}
-
-		public String getQualifiedName()
-			{
-				return qualifiedName;
-			}
-
-		public void setQualifiedName(String qualifiedName)
-			{
-				this.qualifiedName = qualifiedName;
-			}
-
-		public String getSourceCode()
-			{
-				return sourceCode;
-			}
-
-		public void setSourceCode(String sourceCode)
-			{
-				this.sourceCode = sourceCode;
-			}
-	}
-
-//  [Last modified: 2016 12 29 at 20:27:53 GMT]
+//  [Last modified: 2026 10 18 at 04:48:36 GMT]
@@ -0,0 +1,227 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.logging.LogHelper;
+
+/**
+ * The Java compiler and file manager used for all algorithms, created once
+ * and kept for the rest of the session. The file manager holds on to what
+ * it has learned about the class path and the platform classes, so only
+ * the first compilation pays for scanning them; and warmUp() lets that
+ * compilation happen in the background at startup, with a throwaway
+ * algorithm, so that javac's own classes are loaded and compiled by the
+ * JIT before the user runs the first algorithm.
+ *
+ * The file manager is not thread safe, so compilations take turns.
+ */
+public class CompilerService
+	{
+		private static final CompilerService instance = new CompilerService();
+
+		private static final List<String> OPTIONS = Arrays.asList("-proc:none");
+
+		/**
+		 * number of times the warm-up algorithm is compiled; the first
+		 * round loads javac, the later ones give the JIT something to work on
+		 */
+		private static final int WARM_UP_ROUNDS = 3;
+
+		private JavaCompiler compiler;
+		private StandardJavaFileManager fileManager;
+
+		private CompilerService()
+			{
+			}
+
+		/**
+		 * @return the options every algorithm is compiled with, apart from
+		 * where the class files go; part of the key of a cached algorithm
+		 */
+		public static List<String> getOptions()
+			{
+				return Collections.unmodifiableList(OPTIONS);
+			}
+
+		public static CompilerService getInstance()
+			{
+				return instance;
+			}
+
+		/**
+		 * A trivial algorithm that refers to the classes most algorithms use;
+		 * written out rather than produced by CodeIntegrator because the
+		 * macros keep state that a compilation in the foreground may be
+		 * using at the same time
+		 */
+		private static final String WARM_UP_SOURCE =
+			"package " + CodeIntegrator.PACKAGE + ";\n"
+			+ "import edu.ncsu.csc.Galant.algorithm.Algorithm;\n"
+			+ "import edu.ncsu.csc.Galant.graph.component.*;\n"
+			+ "public class WarmUp extends Algorithm {\n"
+			+ "  public void run() {\n"
+			+ "    try {\n"
+			+ "      for ( Node node : getNodes() ) { mark(node); }\n"
+			+ "      for ( Edge edge : getEdges() ) { highlight(edge); }\n"
+			+ "    } catch ( Exception e ) { }\n"
+			+ "  }\n"
+			+ "}\n";
+
+		/**
+		 * Starts compiling a trivial algorithm on a background thread; a
+		 * compilation that is requested meanwhile waits for it to finish,
+		 * which is still faster than starting cold.
+		 */
+		public static void warmUp()
+			{
+				Thread thread = new Thread(new Runnable(){
+					public void run()
+						{
+							long start = System.currentTimeMillis();
+							try
+								{
+									for(int i = 0; i < WARM_UP_ROUNDS; i++)
+										instance.compile(CodeIntegrator.PACKAGE + ".WarmUp", WARM_UP_SOURCE, null,
+											new DiagnosticCollector<JavaFileObject>());
+								}
+							catch(Exception e)
+								{
+									// the first real compilation will report the problem
+									return;
+								}
+							LogHelper.logDebug("compiler ready after "
+								+ (System.currentTimeMillis() - start) + " ms");
+						}
+				}, "Compiler warm-up");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				thread.start();
+			}
+
+		/**
+		 * Compiles the given source code.
+		 * @param outputDir where the class files are written, null to keep
+		 * them in memory.
+		 * @return the bytecode of the classes by binary name if they were
+		 * kept in memory, an empty map if they were written; null if there
+		 * were compilation errors, which are then in the diagnostics.
+		 */
+		public Map<String, byte[]> compile(String qualifiedName, String sourceCode, File outputDir,
+			DiagnosticCollector<JavaFileObject> diagnostics) throws GalantException
+			{
+				return compile(qualifiedName, sourceCode, outputDir, diagnostics, null);
+			}
+
+		/**
+		 * Compiles the given source code unless the compilation is
+		 * cancelled. javac cannot be stopped in the middle of a phase, so it
+		 * gives up when it next starts or finishes parsing, attributing,
+		 * generating, etc., a class, and a compilation waiting for its turn
+		 * gives up before it starts.
+		 * @param cancelled set to true to give up on the compilation, null
+		 * if it cannot be cancelled.
+		 * @return null if the compilation was cancelled, as if there were
+		 * errors.
+		 */
+		public synchronized Map<String, byte[]> compile(String qualifiedName, String sourceCode, File outputDir,
+			DiagnosticCollector<JavaFileObject> diagnostics, final AtomicBoolean cancelled) throws GalantException
+			{
+				if(cancelled != null && cancelled.get())
+					return null;
+				StandardJavaFileManager standard = getFileManager();
+				JavaFileManager manager = standard;
+				MemoryFileManager memoryFileManager = null;
+				// algorithms have no annotations to process; without -proc:none
+				// javac searches the class path for annotation processors every
+				// time
+				List<String> options = new ArrayList<String>(OPTIONS);
+				if(outputDir == null)
+					{
+						memoryFileManager = new MemoryFileManager(standard);
+						manager = memoryFileManager;
+					}
+				else
+					options.addAll(Arrays.asList("-d", outputDir.getPath()));
+
+				JavaFileObject source = new DynamicJavaSourceCodeObject(qualifiedName, sourceCode);
+				JavaCompiler.CompilationTask task = compiler.getTask(null, manager, diagnostics, options, null,
+					Arrays.asList(source));
+				if(cancelled != null && task instanceof JavacTask)
+					((JavacTask) task).addTaskListener(new TaskListener(){
+						public void started(TaskEvent event)
+							{
+								checkCancelled(cancelled);
+							}
+
+						public void finished(TaskEvent event)
+							{
+								checkCancelled(cancelled);
+							}
+					});
+				boolean status;
+				try
+					{
+						status = task.call();
+					}
+				catch(RuntimeException e)
+					{
+						// javac passes on what the listener throws, wrapped
+						if(cancelled != null && cancelled.get())
+							return null;
+						throw e;
+					}
+				if(!status || (cancelled != null && cancelled.get()))
+					return null;
+				if(memoryFileManager == null)
+					return Collections.emptyMap();
+				return memoryFileManager.getClasses();
+			}
+
+		private static void checkCancelled(AtomicBoolean cancelled)
+			{
+				if(cancelled.get())
+					throw new CancellationException();
+			}
+
+		/**
+		 * Creates the compiler and its file manager the first time; they are
+		 * reused after that.
+		 */
+		private StandardJavaFileManager getFileManager() throws GalantException
+			{
+				if(fileManager != null)
+					return fileManager;
+				compiler = ToolProvider.getSystemJavaCompiler();
+				if(compiler == null)
+					{
+						// problem might be that JAVA_HOME points to a jre instead of a jdk
+						String jdkHome = System.getProperty("java.home").replace("jre", "jdk");
+						System.setProperty("java.home", jdkHome);
+						compiler = ToolProvider.getSystemJavaCompiler();
+						if(compiler == null)
+							throw new GalantException("No compiler found, need a JDK, java.home = "
+								+ System.getProperty("java.home"));
+					}
+				fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
+				return fileManager;
+			}
+	}
+
+//  [Last modified: 2026 10 18 at 03:58:14 GMT]
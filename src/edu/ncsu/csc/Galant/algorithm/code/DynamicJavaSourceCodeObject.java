@@ -0,0 +1,55 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.io.IOException;
+import java.net.URI;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Creates a dynamic source code file object This is an example of how we can prepare a dynamic java source code for
+ * compilation. This class reads the java code from a string and prepares a JavaFileObject
+ */
+class DynamicJavaSourceCodeObject extends SimpleJavaFileObject
+	{
+		private String qualifiedName;
+		private String sourceCode;
+
+		/**
+		 * Converts the name to an URI, as that is the format expected by JavaFileObject
+		 * @param name fully qualified name given to the class file
+		 * @param code the source code string
+		 */
+		protected DynamicJavaSourceCodeObject(String name, String code)
+			{
+				super(URI.create("string:///" + name.replaceAll("\\.", "/") + Kind.SOURCE.extension), Kind.SOURCE);
+				this.qualifiedName = name;
+				this.sourceCode = code;
+			}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException
+			{
+				return sourceCode;
+			}
+
+		public String getQualifiedName()
+			{
+				return qualifiedName;
+			}
+
+		public void setQualifiedName(String qualifiedName)
+			{
+				this.qualifiedName = qualifiedName;
+			}
+
+		public String getSourceCode()
+			{
+				return sourceCode;
+			}
+
+		public void setSourceCode(String sourceCode)
+			{
+				this.sourceCode = sourceCode;
+			}
+	}
+
+//  [Last modified: 2026 10 18 at 01:38:46 GMT]
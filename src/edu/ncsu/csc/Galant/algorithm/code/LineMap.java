@@ -0,0 +1,51 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+/**
+ * Maps the lines of the Java class that {@link CodeIntegrator} makes of an
+ * algorithm back to the lines of the algorithm, so that compilation errors
+ * can be shown where the user wrote the code. The class mostly keeps the
+ * lines of the algorithm, but the macros drop the newlines in some of the
+ * whitespace they replace, e.g., between a function head and its body.
+ */
+public class LineMap
+	{
+		/** the number of lines taken up by import declarations */
+		private int importLines;
+
+		/**
+		 * for each newline of the Java class after the imports, the line of
+		 * the algorithm code, after the imports, that follows it
+		 */
+		private int[] lines = new int[0];
+
+		/**
+		 * Creates a map that keeps the lines as they are until
+		 * {@link CodeIntegrator} fills it in.
+		 */
+		public LineMap()
+			{
+			}
+
+		void setLines(int importLines, int[] lines)
+			{
+				this.importLines = importLines;
+				this.lines = lines;
+			}
+
+		/**
+		 * @return the line of the algorithm, counting from 1, that the given
+		 * line of the Java class comes from; lines after the end of the
+		 * algorithm belong to its last line
+		 */
+		public int getAlgorithmLine(long javaLine)
+			{
+				if(javaLine <= importLines + 1)
+					return (int) javaLine;
+				if(lines.length == 0)
+					return (int) javaLine;
+				int index = (int) Math.min(javaLine - importLines - 2, lines.length - 1);
+				return importLines + lines[index];
+			}
+	}
+
+//  [Last modified: 2026 10 17 at 23:07:15 GMT]
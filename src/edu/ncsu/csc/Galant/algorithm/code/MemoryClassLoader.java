@@ -0,0 +1,32 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.util.Map;
+
+/**
+ * Defines the classes of a compiled algorithm straight from their bytecode
+ * in memory; all other classes come from the class loader that loaded
+ * Galant. Each compilation gets a loader of its own, so that a recompiled
+ * algorithm replaces the old one even though the class name is the same.
+ */
+class MemoryClassLoader extends ClassLoader
+	{
+		/** bytecode of the compiled classes, by binary name */
+		private final Map<String, byte[]> classes;
+
+		MemoryClassLoader(Map<String, byte[]> classes)
+			{
+				super(MemoryClassLoader.class.getClassLoader());
+				this.classes = classes;
+			}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException
+			{
+				byte[] bytecode = classes.get(name);
+				if(bytecode == null)
+					throw new ClassNotFoundException(name);
+				return defineClass(name, bytecode, 0, bytecode.length);
+			}
+	}
+
+//  [Last modified: 2026 10 17 at 21:05:30 GMT]
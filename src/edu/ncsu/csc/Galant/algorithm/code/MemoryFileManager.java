@@ -0,0 +1,71 @@
+package edu.ncsu.csc.Galant.algorithm.code;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * A file manager that keeps the class files written by the compiler in
+ * memory instead of writing them to the output directory; everything
+ * else, e.g., finding the classes the algorithm refers to, is left to the
+ * file manager it wraps.
+ */
+class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager>
+	{
+		/** bytecode of the compiled classes, by binary name */
+		private final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+
+		MemoryFileManager(JavaFileManager fileManager)
+			{
+				super(fileManager);
+			}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, final String className,
+			Kind kind, FileObject sibling) throws IOException
+			{
+				if(kind != Kind.CLASS)
+					return super.getJavaFileForOutput(location, className, kind, sibling);
+				URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+				return new SimpleJavaFileObject(uri, kind){
+					@Override
+					public OutputStream openOutputStream()
+						{
+							return new ByteArrayOutputStream(){
+								@Override
+								public void close() throws IOException
+									{
+										super.close();
+										synchronized(classes)
+											{
+												classes.put(className, toByteArray());
+											}
+									}
+							};
+						}
+				};
+			}
+
+		/**
+		 * @return the bytecode of all classes compiled so far, by binary
+		 * name, including nested and anonymous classes
+		 */
+		Map<String, byte[]> getClasses()
+			{
+				synchronized(classes)
+					{
+						return new HashMap<String, byte[]>(classes);
+					}
+			}
+	}
+
+//  [Last modified: 2026 10 17 at 21:04:12 GMT]
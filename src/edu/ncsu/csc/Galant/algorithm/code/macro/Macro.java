@@ -50,7 +50,10 @@ public abstract class Macro {
     /**
      * A list of all the macros that can be used in algorithm code. Note:
      * if you want to add a macro dynamically (e.g., from within another
-     * macro), use {@link #GENERATED_MACROS}.
+     * macro), use {@link #GENERATED_MACROS}. Algorithms are compiled with
+     * a {@link MacroExpander}, which expands the macros defined in {@link
+     * Macros} itself rather than through this list, and refuses to run if
+     * the list holds any others; a new macro has to be added to both.
      */
     public static final List<Macro> MACROS = new ArrayList<Macro>();
 
@@ -106,9 +109,9 @@ public abstract class Macro {
      * without creating an infinite loop.)
      * </p>
      * <p>
-     * Note: Macros may add new macros to the end of
-     * {@linkplain #MACROS the macro list} (e.g., by creating new macros),
-     * but other modifications to the list may not be supported.
+     * Note: Macros may add new macros to
+     * {@linkplain #GENERATED_MACROS the generated macros} (e.g., by creating
+     * new macros), but not to {@linkplain #MACROS the macro list}.
      * </p>
      * @param code the user code on which this macro is being applied.
      * @param match a match of this macro's pattern.
@@ -152,4 +155,4 @@ public abstract class Macro {
     }
 }
 
-//  [Last modified: 2017 01 03 at 16:01:30 GMT]
+//  [Last modified: 2026 10 18 at 04:31:17 GMT]
@@ -0,0 +1,540 @@
+package edu.ncsu.csc.Galant.algorithm.code.macro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Expands all the macros of {@link Macros} &mdash; sort, for_outgoing,
+ * for_incoming, for_adjacent, for_nodes, for_edges and function &mdash; in
+ * a single left-to-right sweep over the code, appending the result to a
+ * <code>StringBuilder</code>. The regular expressions of the macros each
+ * need a pass over the whole code, and every match copies the whole code
+ * again, so the time they take grows with the square of its length; the
+ * sweep looks at each character a bounded number of times.
+ * </p>
+ * <p>
+ * The output is the same as that of applying each of {@link Macro#MACROS}
+ * in turn, quirks included: a macro name is ignored if the character two
+ * positions before it is part of an identifier, a comma right after the
+ * opening parenthesis does not separate parameters, and macro names are
+ * recognized inside string literals. Arguments and code blocks are expanded
+ * where they end up in the output, the way the passes rescan each
+ * replacement. Code with malformed macros may be reported differently.
+ * </p>
+ */
+public class MacroExpander {
+
+    /**
+     * The macros, in the order in which {@link Macros} adds them to
+     * {@link Macro#MACROS}; a macro that comes earlier is expanded before
+     * the ones that surround it.
+     */
+    private static final int NONE = 0, SORT = 1, FOR_OUTGOING = 2,
+        FOR_INCOMING = 3, FOR_ADJACENT = 4, FOR_NODES = 5, FOR_EDGES = 6,
+        FUNCTION = 7;
+
+    private static final String[] NAMES = { null, "sort", "for_outgoing",
+        "for_incoming", "for_adjacent", "for_nodes", "for_edges",
+        "function" };
+
+    /**
+     * the names of all of {@link Macro#MACROS}, in order; "algorithm" is
+     * there only for syntax highlighting, CodeIntegrator finds its block
+     */
+    private static final List<String> MACRO_NAMES = Arrays.asList("algorithm",
+        "sort", "for_outgoing", "for_incoming", "for_adjacent", "for_nodes",
+        "for_edges", "function");
+
+    /** iterators of the for_outgoing, for_incoming and for_adjacent macros */
+    private static final String[] EDGES = { null, null, "outEdges",
+        "inEdges", "edges" };
+
+    /** number of characters of code shown when a delimiter is missing */
+    private static final int CONTEXT_LENGTH = 50;
+
+    private final String code;
+    private final StringBuilder out;
+
+    /** the last ) and } in the code; a macro has to be followed by one */
+    private final int lastParenthesis, lastBrace;
+
+    /**
+     * where in the output the latest argument, code block or macro
+     * expansion starts or ends, and the macro it belongs to; see
+     * {@link #followsIdentifierPart(int, int)}
+     */
+    private int boundary = -2;
+    private int boundaryMacro = NONE;
+
+    /**
+     * the unmatched delimiters while looking for a closing one, and the
+     * number of commas found before each
+     */
+    private char[] stack = new char[16];
+    private int[] stackCommas = new int[16];
+
+    /** positions of the top-level commas found by the latest findClose() */
+    private int[] commas = new int[8];
+    private int commaCount;
+
+    /** positions of the newlines in the code */
+    private int[] newlines = new int[64];
+    private int newlineCount;
+
+    /**
+     * for each newline in the output, the line of the code that follows
+     * it; see {@link #getLines()}
+     */
+    private int[] lines = new int[64];
+    private int lineCount;
+
+    /** the opening parenthesis and the names of the latest macro found */
+    private int parenthesis;
+    private int headEnd;
+    private String returnType, functionName;
+
+    /**
+     * Creates an expander for the given code, which has already been
+     * stripped of comments.
+     */
+    public MacroExpander(String code, StringBuilder out) {
+        checkMacros();
+        this.code = code;
+        this.out = out;
+        lastParenthesis = code.lastIndexOf(')');
+        lastBrace = code.lastIndexOf('}');
+        for ( int i = code.indexOf('\n'); i >= 0; i = code.indexOf('\n', i + 1) ) {
+            if ( newlineCount == newlines.length )
+                newlines = Arrays.copyOf(newlines, 2 * newlineCount);
+            newlines[newlineCount++] = i;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if {@link Macro#MACROS} no longer holds
+     * just the macros of {@link Macros}; the sweep knows only those and
+     * would leave any other macro unexpanded
+     */
+    private static void checkMacros() {
+        List<String> names = new ArrayList<String>(Macro.MACROS.size());
+        for ( Macro macro : Macro.MACROS ) names.add(macro.getName());
+        if ( ! names.equals(MACRO_NAMES) ) {
+            throw new IllegalStateException("MacroExpander handles the macros "
+                                            + MACRO_NAMES + ", not " + names);
+        }
+    }
+
+    /** @return the given code with all macros expanded */
+    public static String expand(String code) throws MalformedMacroException {
+        StringBuilder out = new StringBuilder(code.length() + code.length() / 4);
+        new MacroExpander(code, out).expand(0, code.length());
+        return out.toString();
+    }
+
+    /**
+     * Appends the code between the given indexes to the output, with all
+     * macros expanded. Macros have to end before the end index.
+     */
+    public void expand(int from, int to) throws MalformedMacroException {
+        int copied = from;
+        int i = from;
+        while ( i < to ) {
+            char c = code.charAt(i);
+            int macro = c == 's' || c == 'f' ? macroAt(i, to) : NONE;
+            if ( macro == NONE ) {
+                i++;
+                continue;
+            }
+            copy(copied, i);
+            copied = i;
+            if ( followsIdentifierPart(i, macro) ) {
+                i++;
+                continue;
+            }
+            i = copied = expandMacro(macro, i, to);
+            boundary = out.length();
+            boundaryMacro = macro;
+        }
+        copy(copied, to);
+    }
+
+    /**
+     * Appends the code between the given indexes to the output as it is,
+     * noting where its newlines come from.
+     */
+    private void copy(int from, int to) {
+        out.append(code, from, to);
+        for ( int i = from; i < to; i++ )
+            if ( code.charAt(i) == '\n' ) {
+                if ( lineCount == lines.length )
+                    lines = Arrays.copyOf(lines, 2 * lineCount);
+                lines[lineCount++]
+                    = Arrays.binarySearch(newlines, 0, newlineCount, i) + 2;
+            }
+    }
+
+    /**
+     * @return for each newline appended to the output so far, the line of
+     * the code that follows it, counting from 1; newlines in the whitespace
+     * that macros drop are not in the output, so the two may differ
+     */
+    public int[] getLines() {
+        return Arrays.copyOf(lines, lineCount);
+    }
+
+    /**
+     * @return the macro whose name, followed by an opening parenthesis,
+     * starts at the given index, or NONE; sets parenthesis, and for the
+     * function macro also its name and return type
+     */
+    private int macroAt(int start, int to) {
+        int macro = NONE;
+        for ( int m = SORT; m <= FUNCTION; m++ )
+            if ( code.startsWith(NAMES[m], start) ) {
+                macro = m;
+                break;
+            }
+        if ( macro == NONE )
+            return NONE;
+        int afterName = start + NAMES[macro].length();
+        if ( macro == FUNCTION )
+            return matchFunctionHead(afterName, to) ? FUNCTION : NONE;
+        int i = afterName;
+        while ( i < to && isSameLineWhitespace(code.charAt(i)) )
+            i++;
+        if ( i == to || code.charAt(i) != '(' )
+            return NONE;
+        int last = hasCodeBlock(macro) ? lastBrace : lastParenthesis;
+        if ( last <= i )
+            return NONE;
+        parenthesis = i;
+        return macro;
+    }
+
+    /**
+     * Matches what follows the word "function" the way the pattern of the
+     * function macro does, trying the alternatives in the order a regular
+     * expression backtracks; sets parenthesis and headEnd. Because of the
+     * way MacroUtil.replaceWhitespace() rewrites that pattern, its
+     * whitespace also matches the characters ( ) ? : and *.
+     */
+    private boolean matchFunctionHead(int start, int to) {
+        int maxSeparator = runLength(start, to, true);
+        for ( int separator = maxSeparator; separator >= 0; separator-- ) {
+            int typeStart = start + separator;
+            int maxType = runLength(typeStart, to, false);
+            for ( int type = maxType; type >= 0; type-- )
+                if ( matchFunctionName(typeStart + type, to) )
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Matches the name of a function and the opening parenthesis after a
+     * return type that ends at the given index.
+     */
+    private boolean matchFunctionName(int separatorStart, int to) {
+        int maxSeparator = runLength(separatorStart, to, true);
+        for ( int separator = maxSeparator; separator >= 1; separator-- ) {
+            int nameStart = separatorStart + separator;
+            int maxName = runLength(nameStart, to, false);
+            for ( int name = maxName; name >= 1; name-- ) {
+                int nameEnd = nameStart + name;
+                int i = nameEnd;
+                while ( i < to && isSameLineWhitespace(code.charAt(i)) )
+                    i++;
+                // backtracking over the whitespace cannot reach a (
+                if ( i < to && code.charAt(i) == '(' && lastBrace > i ) {
+                    parenthesis = i;
+                    headEnd = nameEnd;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits the head of a function, up to headEnd, into its return type
+     * and name. The name pattern of the function macro, which does this,
+     * is rewritten by MacroUtil.replaceWhitespace() only once: its first
+     * whitespace is just spaces and tabs, the second also ( ) ? : and *,
+     * and it has to match the whole head.
+     */
+    private void splitFunctionHead(int start) throws MalformedMacroException {
+        int afterName = start + NAMES[FUNCTION].length();
+        int i = afterName;
+        while ( i < headEnd && isSameLineWhitespace(code.charAt(i)) )
+            i++;
+        for ( int typeStart = i; typeStart >= afterName; typeStart-- ) {
+            int maxType = runLength(typeStart, headEnd, false);
+            for ( int type = maxType; type >= 0; type-- ) {
+                int separatorStart = typeStart + type;
+                int maxSeparator = runLength(separatorStart, headEnd, true);
+                for ( int separator = maxSeparator; separator >= 1; separator-- ) {
+                    int nameStart = separatorStart + separator;
+                    if ( nameStart < headEnd
+                         && runLength(nameStart, headEnd, false) == headEnd - nameStart ) {
+                        returnType = type == 0 ? null
+                            : code.substring(typeStart, separatorStart);
+                        functionName = code.substring(nameStart, headEnd);
+                        return;
+                    }
+                }
+            }
+        }
+        throw new MalformedMacroException("Illegal function declaration: "
+                                          + code.substring(start, headEnd));
+    }
+
+    /**
+     * @return the number of characters from the given index on that are
+     * separators in the function pattern, or that are not whitespace
+     */
+    private int runLength(int start, int to, boolean separators) {
+        int i = start;
+        while ( i < to && (separators ? isFunctionSeparator(code.charAt(i))
+                           : ! isWhitespace(code.charAt(i))) )
+            i++;
+        return i - start;
+    }
+
+    private static boolean isFunctionSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '(' || c == ')' || c == '?'
+            || c == ':' || c == '*';
+    }
+
+    private static boolean isSameLineWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /** @return whether c matches \s in a regular expression */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+            || c == '\f' || c == '\r';
+    }
+
+    private static boolean hasCodeBlock(int macro) {
+        return macro != SORT && macro != FOR_NODES && macro != FOR_EDGES;
+    }
+
+    /**
+     * Decides whether the macro at the given index is part of an identifier
+     * by looking at the character two positions before it, as
+     * {@link MacroUtil#isPartOfIdentifier} does. That is the character in
+     * the output, unless the output there belongs to a macro whose pass
+     * comes after that of the given one; then the pass of the given macro
+     * would still have seen the code as it was written.
+     */
+    private boolean followsIdentifierPart(int start, int macro) {
+        int end = out.length();
+        if ( end - boundary < 2 && macro < boundaryMacro )
+            return start >= 2
+                && Character.isJavaIdentifierPart(code.codePointBefore(start - 1));
+        return end >= 2
+            && Character.isJavaIdentifierPart(Character.codePointBefore(out, end - 1));
+    }
+
+    /**
+     * Appends the expansion of the macro at the given index to the output.
+     * @return the index after the end of the macro in the code.
+     */
+    private int expandMacro(int macro, int start, int to)
+        throws MalformedMacroException
+    {
+        String name = NAMES[macro];
+        if ( macro == FUNCTION ) {
+            name = code.substring(start, headEnd);
+            splitFunctionHead(start);
+        }
+        String type = returnType, function = functionName;
+
+        int close = findClose(parenthesis + 1, to, '(', ')', true);
+        int paramCount = commaCount + 1;
+        int[] bounds = new int[2 * paramCount];
+        int from = parenthesis + 1;
+        for ( int i = 0; i < paramCount; i++ ) {
+            int end = i < commaCount ? commas[i] : close;
+            bounds[2 * i] = from;
+            bounds[2 * i + 1] = end;
+            trim(bounds, 2 * i);
+            from = end + 1;
+        }
+        if ( paramCount == 1 && bounds[0] == bounds[1] )
+            paramCount = 0;
+
+        int blockStart = -1, blockEnd = -1, end = close + 1;
+        if ( hasCodeBlock(macro) ) {
+            int i = close + 1;
+            while ( i < to && isWhitespace(code.charAt(i)) )
+                i++;
+            if ( i == to || code.charAt(i) != '{' )
+                throw new MalformedMacroException(name
+                                                  + ": curly braces required.");
+            blockStart = i + 1;
+            blockEnd = findClose(blockStart, to, '{', '}', false);
+            end = blockEnd + 1;
+        }
+
+        int minParams = macro == SORT || macro == FOR_NODES || macro == FOR_EDGES
+            ? 1 : 3;
+        int maxParams = macro == SORT ? 2 : minParams;
+        if ( macro != FUNCTION
+             && (paramCount < minParams || paramCount > maxParams) )
+            throw new MalformedMacroException("Illegal number of parameters for macro "
+                                              + name
+                                              + ". Expected: "
+                                              + minParams
+                                              + (maxParams == minParams ? "" : " to " + maxParams)
+                                              + "; actual: " + paramCount);
+
+        switch ( macro ) {
+        case SORT:
+            out.append("Collections.sort(");
+            argument(bounds, 0, macro);
+            if ( paramCount == 2 ) {
+                out.append(", ");
+                argument(bounds, 1, macro);
+            }
+            out.append(")");
+            break;
+        case FOR_OUTGOING:
+        case FOR_INCOMING:
+        case FOR_ADJACENT:
+            out.append("for ( Edge ");
+            argument(bounds, 1, macro);
+            out.append(" : ").append(EDGES[macro]).append("(");
+            argument(bounds, 0, macro);
+            out.append(") )");
+            copy(close + 1, blockStart - 1);
+            out.append("{ Node ");
+            argument(bounds, 2, macro);
+            out.append(" = otherEnd(");
+            argument(bounds, 1, macro);
+            out.append(", ");
+            argument(bounds, 0, macro);
+            out.append(");");
+            block(blockStart, blockEnd, macro);
+            out.append("}");
+            break;
+        case FOR_NODES:
+        case FOR_EDGES:
+            out.append(macro == FOR_NODES ? "for(Node " : "for(Edge ");
+            argument(bounds, 0, macro);
+            out.append(macro == FOR_NODES ? " : getNodes())" : " : getEdges())");
+            break;
+        case FUNCTION:
+            out.append("public ").append(type == null ? "void" : type);
+            out.append(" ").append(function).append(" ( ");
+            for ( int i = 0; i < paramCount; i++ ) {
+                if ( i > 0 )
+                    out.append(",");
+                argument(bounds, i, macro);
+            }
+            out.append(") throws Terminate, GalantException {");
+            block(blockStart, blockEnd, macro);
+            out.append("}");
+            break;
+        }
+        return end;
+    }
+
+    /** Appends the given argument of a macro, with macros expanded. */
+    private void argument(int[] bounds, int i, int macro)
+        throws MalformedMacroException
+    {
+        boundary = out.length();
+        boundaryMacro = macro;
+        expand(bounds[2 * i], bounds[2 * i + 1]);
+    }
+
+    /** Appends the code block of a macro, with macros expanded. */
+    private void block(int start, int end, int macro)
+        throws MalformedMacroException
+    {
+        boundary = out.length();
+        boundaryMacro = macro;
+        expand(start, end);
+    }
+
+    /** Moves the given bounds inwards past whitespace, as trim() does. */
+    private void trim(int[] bounds, int i) {
+        while ( bounds[i] < bounds[i + 1] && code.charAt(bounds[i]) <= ' ' )
+            bounds[i]++;
+        while ( bounds[i + 1] > bounds[i] && code.charAt(bounds[i + 1] - 1) <= ' ' )
+            bounds[i + 1]--;
+    }
+
+    /**
+     * Finds the first closing delimiter from the given index on that does
+     * not match an opening one after that index; (), [] and {} are matched,
+     * with no regard for string literals, like in
+     * {@link MacroUtil#evaluateNestedRegexMatch}.
+     * @param countCommas whether to record the commas that are not inside
+     * matched delimiters, except one right at the start.
+     * @return the index of the closing delimiter.
+     * @throws MalformedMacroException if there is none before the end
+     * index, or an opening delimiter of the same kind is left unmatched.
+     */
+    private int findClose(int from, int to, char open, char close,
+                          boolean countCommas)
+        throws MalformedMacroException
+    {
+        int height = 0;
+        commaCount = 0;
+        for ( int i = from; i < to; i++ ) {
+            char c = code.charAt(i);
+            if ( c == ',' ) {
+                if ( countCommas && i > from ) {
+                    if ( commaCount == commas.length )
+                        commas = Arrays.copyOf(commas, 2 * commaCount);
+                    commas[commaCount++] = i;
+                }
+                continue;
+            }
+            char matching = matchingOpen(c);
+            if ( matching == 0 && c != '(' && c != '[' && c != '{' )
+                continue;
+            if ( matching != 0 && height > 0 && stack[height - 1] == matching ) {
+                // the commas between matched delimiters do not count
+                height--;
+                commaCount = stackCommas[height];
+                continue;
+            }
+            if ( c == close ) {
+                for ( int j = 0; j < height; j++ )
+                    if ( stack[j] == open )
+                        throw missing(close, from);
+                return i;
+            }
+            if ( height == stack.length ) {
+                stack = Arrays.copyOf(stack, 2 * height);
+                stackCommas = Arrays.copyOf(stackCommas, 2 * height);
+            }
+            stackCommas[height] = commaCount;
+            stack[height++] = c;
+        }
+        throw missing(close, from);
+    }
+
+    /** @return the opening delimiter for c, 0 if c is not a closing one */
+    private static char matchingOpen(char c) {
+        switch ( c ) {
+        case ')': return '(';
+        case ']': return '[';
+        case '}': return '{';
+        default: return 0;
+        }
+    }
+
+    private MalformedMacroException missing(char close, int from) {
+        return new MalformedMacroException("Missing " + close + " in "
+                                           + code.substring(from, Math.min(code.length(), from + CONTEXT_LENGTH))
+                                           + " ...");
+    }
+}
+
+//  [Last modified: 2026 10 18 at 04:31:17 GMT]
@@ -0,0 +1,359 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.graph.datastructure.EdgeList;
+import edu.ncsu.csc.Galant.graph.datastructure.NodeList;
+
+/**
+ * A recording of an animation in a compact binary file, so that the
+ * animation can be shown again without compiling or running the algorithm
+ * -- and without answering its queries, e.g., getNode(), again. For each
+ * algorithm state in which something changed, the file holds the attribute
+ * deltas of the graph, the message banner and every node and edge that
+ * changed, in the binary form of AttributeList.writeDelta(). Loading a trace
+ * replaces the histories of the elements of a graph with the recorded ones
+ * and rebuilds its change index; the animation can then be stepped through
+ * as usual, see AlgorithmExecutor.startReplay().
+ *
+ * The file consists of
+ *   - a header: magic number, version, whether the algorithm moves nodes
+ *     and the last algorithm state
+ *   - the attribute names, in slot order
+ *   - the elements: the graph, the banner, then each node (id and fixed
+ *     position) and each edge (ids of its endpoints), each preceded by its
+ *     kind and the state in which it was created
+ *   - the steps: the algorithm state, the number of changes and, for each
+ *     change, the index of the element and its delta; the first delta of
+ *     an element is its whole initial state
+ *   - -1 to mark the end
+ *
+ * A trace can only be loaded into the graph it was recorded from: nodes
+ * that existed before the animation are matched by id, edges by position
+ * and endpoints; nodes and edges created by the algorithm are created anew.
+ */
+public class AnimationTrace {
+
+    private static final int MAGIC = 0x47545243; // "GTRC"
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Kinds of elements
+     */
+    private static final byte GRAPH = 0;
+    private static final byte BANNER = 1;
+    private static final byte NODE = 2;
+    private static final byte EDGE = 3;
+
+    private AnimationTrace() { }
+
+    /**
+     * Writes the animation of the graph, up to and including the given
+     * algorithm state, to the file. Must be called while the algorithm is
+     * paused or after it has finished.
+     */
+    public static void write(Graph graph, int lastState, File file)
+        throws IOException {
+        DataOutputStream out = new DataOutputStream
+            (new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(graph.getDispatch().algorithmMovesNodes());
+            out.writeInt(lastState);
+
+            AttributeKeys keys = graph.getAttributeKeys();
+            int slots = keys.size();
+            out.writeInt(slots);
+            for ( int slot = 0; slot < slots; slot++ ) {
+                out.writeUTF(keys.name(slot));
+            }
+
+            ArrayList<StateTimeline<? extends TimeStamped>> timelines
+                = new ArrayList<StateTimeline<? extends TimeStamped>>();
+            NodeList nodes = graph.allNodes();
+            EdgeList edges = graph.allEdges();
+            out.writeInt(2 + nodes.size() + edges.size());
+            writeElement(out, GRAPH, graph.states, timelines);
+            writeElement(out, BANNER, graph.getBanner().states, timelines);
+            for ( Node node : nodes ) {
+                writeElement(out, NODE, node.states, timelines);
+                out.writeInt(node.getId());
+                out.writeInt(node.getFixedX());
+                out.writeInt(node.getFixedY());
+            }
+            for ( Edge edge : edges ) {
+                writeElement(out, EDGE, edge.states, timelines);
+                out.writeInt(edge.getSourceNode().getId());
+                out.writeInt(edge.getTargetNode().getId());
+            }
+
+            // put the states of all elements in order of algorithm state;
+            // each entry is the state number followed by the element index
+            int total = 0;
+            for ( StateTimeline<? extends TimeStamped> timeline : timelines ) {
+                total += timeline.size();
+            }
+            long[] order = new long[total];
+            int count = 0;
+            for ( int index = 0; index < timelines.size(); index++ ) {
+                for ( TimeStamped state : timelines.get(index) ) {
+                    if ( state.getState() <= lastState ) {
+                        order[count++] = ((long) state.getState() << 32) | index;
+                    }
+                }
+            }
+            Arrays.sort(order, 0, count);
+
+            int[] next = new int[timelines.size()];
+            AttributeList[] previous = new AttributeList[timelines.size()];
+            int i = 0;
+            while ( i < count ) {
+                int state = (int) (order[i] >>> 32);
+                int end = i;
+                while ( end < count && (int) (order[end] >>> 32) == state ) {
+                    end++;
+                }
+                out.writeInt(state);
+                out.writeInt(end - i);
+                for ( ; i < end; i++ ) {
+                    int index = (int) order[i];
+                    AttributeList attributes
+                        = attributesOf(timelines.get(index).get(next[index]++));
+                    out.writeInt(index);
+                    attributes.writeDelta(previous[index], out);
+                    previous[index] = attributes;
+                }
+            }
+            out.writeInt(-1);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static void writeElement(DataOutputStream out, byte kind,
+                                     StateTimeline<? extends TimeStamped> states,
+                                     ArrayList<StateTimeline<? extends TimeStamped>>
+                                     timelines)
+        throws IOException {
+        out.writeByte(kind);
+        out.writeInt(states.isEmpty() ? 0 : states.get(0).getState());
+        timelines.add(states);
+    }
+
+    private static Node nodeFor(Graph graph, HashMap<Integer, Node> created,
+                                int id) throws GalantException {
+        Node node = created.get(id);
+        return node != null ? node : graph.getNodeById(id);
+    }
+
+    private static AttributeList attributesOf(TimeStamped state) {
+        if ( state instanceof GraphState ) {
+            return ((GraphState) state).getAttributes();
+        }
+        return ((GraphElementState) state).getAttributes();
+    }
+
+    /**
+     * Loads the trace in the file into the graph, replacing the histories
+     * of the graph and its elements. The file is read twice: first with a
+     * registry of attribute names of its own, to check all of it, so that
+     * a trace that cannot be loaded leaves the graph as it was, down to
+     * the names its registry knows; then for real.
+     * @return the last algorithm state of the trace
+     * @throws GalantException if the file is not a trace or the trace was
+     * not recorded from this graph
+     */
+    public static int read(Graph graph, File file)
+        throws IOException, GalantException {
+        read(graph, file, new AttributeKeys(), true);
+        return read(graph, file, graph.getAttributeKeys(), false);
+    }
+
+    /**
+     * @param keys the registry with which the attribute names of the trace
+     * are registered
+     * @param check true to stop once the file has been checked, before
+     * anything is changed
+     */
+    private static int read(Graph graph, File file, AttributeKeys keys,
+                            boolean check)
+        throws IOException, GalantException {
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if ( in.readInt() != MAGIC ) {
+                throw new GalantException(file + " is not an animation trace");
+            }
+            int version = in.readInt();
+            if ( version != VERSION ) {
+                throw new GalantException("animation trace " + file
+                                          + " has unsupported version "
+                                          + version);
+            }
+            boolean algorithmMovesNodes = in.readBoolean();
+            int lastState = in.readInt();
+
+            int[] slotMap = new int[in.readInt()];
+            for ( int slot = 0; slot < slotMap.length; slot++ ) {
+                slotMap[slot] = keys.slot(in.readUTF());
+            }
+
+            // read and check all elements before changing the graph
+            int count = in.readInt();
+            byte[] kinds = new byte[count];
+            int[][] data = new int[count][];
+            boolean[] initial = new boolean[count];
+            GraphElement[] elements = new GraphElement[count];
+            EdgeList initialEdges = graph.allEdges();
+            int nextInitialEdge = 0;
+            for ( int index = 0; index < count; index++ ) {
+                kinds[index] = in.readByte();
+                initial[index] = ( in.readInt() == 0 );
+                if ( kinds[index] == GRAPH && index == 0 ) continue;
+                if ( kinds[index] == BANNER ) {
+                    elements[index] = graph.getBanner();
+                }
+                else if ( kinds[index] == NODE ) {
+                    data[index] = new int[] { in.readInt(), in.readInt(),
+                                              in.readInt() };
+                    if ( initial[index] ) {
+                        elements[index] = graph.getNodeById(data[index][0]);
+                    }
+                }
+                else if ( kinds[index] == EDGE ) {
+                    data[index] = new int[] { in.readInt(), in.readInt() };
+                    if ( initial[index] ) {
+                        Edge edge = ( nextInitialEdge < initialEdges.size() )
+                            ? initialEdges.get(nextInitialEdge++) : null;
+                        if ( edge == null
+                             || edge.getSourceNode().getId() != data[index][0]
+                             || edge.getTargetNode().getId() != data[index][1] ) {
+                            throw new GalantException
+                                ("animation trace " + file
+                                 + " was not recorded from this graph");
+                        }
+                        elements[index] = edge;
+                    }
+                }
+                else {
+                    throw new GalantException("animation trace " + file
+                                              + " is corrupt");
+                }
+            }
+            // read all steps before changing the graph, so that a
+            // truncated or corrupt trace leaves it as it was; the changes
+            // are indexed afterwards, in the order in which they were read
+            StateTimeline<GraphState> graphStates
+                = new StateTimeline<GraphState>();
+            ArrayList<StateTimeline<GraphElementState>> elementStates
+                = new ArrayList<StateTimeline<GraphElementState>>();
+            for ( int index = 0; index < count; index++ ) {
+                elementStates.add(new StateTimeline<GraphElementState>());
+            }
+            ArrayList<int[]> changedSlots = new ArrayList<int[]>();
+            ArrayList<int[]> changedElements = new ArrayList<int[]>();
+            AttributeList[] latest = new AttributeList[count];
+            for ( int state = in.readInt(); state >= 0; state = in.readInt() ) {
+                int changes = in.readInt();
+                for ( int change = 0; change < changes; change++ ) {
+                    int index = in.readInt();
+                    if ( index < 0 || index >= count ) {
+                        throw new GalantException("animation trace " + file
+                                                  + " is corrupt");
+                    }
+                    AttributeList attributes = ( latest[index] == null )
+                        ? new AttributeList(keys) : latest[index].derive();
+                    int[] slots = attributes.readDelta(in, slotMap);
+                    latest[index] = attributes;
+                    if ( kinds[index] == GRAPH ) {
+                        graphStates.add(new GraphState(state, attributes));
+                    }
+                    else {
+                        changedSlots.add(slots);
+                        changedElements.add(new int[] { index, state });
+                        elementStates.get(index).add
+                            (new GraphElementState(state, attributes));
+                    }
+                }
+            }
+
+            // check the endpoints of the edges added by the algorithm
+            // before any node is added
+            HashSet<Integer> createdIds = new HashSet<Integer>();
+            for ( int index = 0; index < count; index++ ) {
+                if ( elements[index] != null || initial[index] ) continue;
+                if ( kinds[index] == NODE ) {
+                    createdIds.add(data[index][0]);
+                }
+                else if ( kinds[index] == EDGE ) {
+                    for ( int end = 0; end < 2; end++ ) {
+                        if ( ! createdIds.contains(data[index][end]) ) {
+                            graph.getNodeById(data[index][end]);
+                        }
+                    }
+                }
+            }
+            if ( check ) return lastState;
+
+            // then create the nodes and edges added by the algorithm, in
+            // order, so that edges can refer to nodes created earlier
+            HashMap<Integer, Node> created = new HashMap<Integer, Node>();
+            for ( int index = 0; index < count; index++ ) {
+                if ( elements[index] != null || initial[index] ) continue;
+                if ( kinds[index] == NODE ) {
+                    Node node = new Node(graph, data[index][0],
+                                         data[index][1], data[index][2]);
+                    graph.addNode(node);
+                    created.put(node.getId(), node);
+                    elements[index] = node;
+                }
+                else if ( kinds[index] == EDGE ) {
+                    Edge edge = new Edge(graph, nodeFor(graph, created, data[index][0]),
+                                         nodeFor(graph, created, data[index][1]));
+                    graph.addEdge(edge);
+                    elements[index] = edge;
+                }
+            }
+
+            graph.getChangeIndex().clear();
+            for ( int change = 0; change < changedSlots.size(); change++ ) {
+                int[] element = changedElements.get(change);
+                if ( elements[element[0]] != null ) {
+                    elements[element[0]].recordChanges(changedSlots.get(change),
+                                                       element[1]);
+                }
+            }
+
+            if ( ! graphStates.isEmpty() ) graph.states = graphStates;
+            for ( int index = 0; index < count; index++ ) {
+                if ( elements[index] != null
+                     && ! elementStates.get(index).isEmpty() ) {
+                    elements[index].replaceStates(elementStates.get(index));
+                }
+            }
+            graph.rebuildIndexes(lastState);
+            graph.getDispatch().setAlgorithmMovesNodes(algorithmMovesNodes);
+            return lastState;
+        }
+        finally {
+            in.close();
+        }
+    }
+}
+
+//  [Last modified: 2026 10 18 at 04:12:44 GMT]
@@ -0,0 +1,337 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.Arrays;
+
+/**
+ * A struct-of-arrays copy of the latest attribute values of all nodes and
+ * edges of a graph. Each element is assigned a row when it is created;
+ * there is one column per attribute slot (see AttributeKeys), with the
+ * value for each row stored in primitive arrays. This lets whole-graph
+ * passes, e.g., visibleNodes(), read an attribute of every element without
+ * going through each element's state timeline.
+ *
+ * The columns are versioned as follows. Every cell records the algorithm
+ * state in which its value was last written; since that is the latest
+ * write, the value is also the one in effect in any later state. For an
+ * earlier state the element's own timeline has to be consulted; covers()
+ * tells which is the case. A cell that was never written has the
+ * attribute absent since the state in which its row was created.
+ *
+ * The element timelines remain the authoritative history: GraphElement
+ * records every change here as it makes it. Clearing the columns, e.g., in
+ * Graph.reset(), takes constant time: it starts a new epoch, and a row
+ * only holds values again once its element restores it, which happens
+ * when the element is next changed. Until then the element reads its own
+ * timeline.
+ *
+ * The columns are written by the algorithm thread under the write lock of
+ * the graph and read on other threads only under its read lock, so that
+ * covers() and the read of the value that follows it see the same write.
+ * Reads never change anything: lookup() finds a column without creating
+ * or growing it, and a row beyond the end of a column has no value. A
+ * cell is also written value first, stamp last, so that a cell whose
+ * stamp says it covers a state never holds an older value.
+ */
+public class AttributeColumns {
+
+    private static final int INITIAL_ROWS = 16;
+
+    /**
+     * Kinds of values a cell may hold
+     */
+    static final byte ABSENT = 0;
+    static final byte INTEGER = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte STRING = 4;
+
+    /**
+     * A single attribute for all rows. Integer and boolean values are kept
+     * in the bits as they are, doubles as their raw long bits.
+     */
+    static final class Column {
+        private byte[] kinds;
+        private int[] stamps;
+        private long[] bits;
+        private String[] strings;
+
+        Column(int rows) {
+            kinds = new byte[rows];
+            stamps = new int[rows];
+            bits = new long[rows];
+        }
+
+        private void ensure(int rows) {
+            if ( rows <= kinds.length ) return;
+            int capacity = Math.max(rows, 2 * kinds.length);
+            kinds = Arrays.copyOf(kinds, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            if ( strings != null ) strings = Arrays.copyOf(strings, capacity);
+        }
+
+        private void put(int row, int stamp, Attribute attribute) {
+            if ( attribute instanceof IntegerAttribute ) {
+                kinds[row] = INTEGER;
+                bits[row] = ((IntegerAttribute) attribute).intValue();
+            }
+            else if ( attribute instanceof DoubleAttribute ) {
+                kinds[row] = DOUBLE;
+                bits[row] = Double.doubleToRawLongBits
+                    (((DoubleAttribute) attribute).doubleValue());
+            }
+            else if ( attribute instanceof BooleanAttribute ) {
+                kinds[row] = BOOLEAN;
+                bits[row] = ((BooleanAttribute) attribute).booleanValue() ? 1 : 0;
+            }
+            else if ( attribute instanceof StringAttribute ) {
+                kinds[row] = STRING;
+                if ( strings == null ) strings = new String[kinds.length];
+                strings[row] = attribute.getStringValue();
+            }
+            else {
+                kinds[row] = ABSENT;
+            }
+            if ( kinds[row] != STRING && strings != null ) strings[row] = null;
+            stamps[row] = stamp;
+        }
+
+        byte kind(int row) { return row < kinds.length ? kinds[row] : ABSENT; }
+
+        int intAt(int row) { return (int) bits[row]; }
+
+        double doubleAt(int row) { return Double.longBitsToDouble(bits[row]); }
+
+        /**
+         * @return true if the row has a boolean attribute that is true;
+         * this is what whole-graph passes test, e.g., for HIDDEN
+         */
+        boolean isTrue(int row) {
+            return kind(row) == BOOLEAN && bits[row] != 0;
+        }
+
+        String stringAt(int row) {
+            return kinds[row] == STRING ? strings[row] : null;
+        }
+    }
+
+    /**
+     * columns[slot] is null until an attribute with that slot is written
+     */
+    private Column[] columns = new Column[AttributeKeys.MESSAGE + 1];
+
+    /**
+     * born[row] is the algorithm state in which the element of that row was
+     * created -- or, for a restored row, the state from which on it holds
+     * the element's values
+     */
+    private int[] born = new int[INITIAL_ROWS];
+
+    /**
+     * restored[row] is the epoch in which the row was last restored; the
+     * row is in use only if that is the current epoch
+     */
+    private int[] restored = new int[INITIAL_ROWS];
+    private int epoch = 0;
+
+    private int rows = 0;
+
+    /**
+     * @return the number of rows assigned so far
+     */
+    int rows() { return rows; }
+
+    /**
+     * @return a new row for an element created in the given state
+     */
+    int addRow(int state) {
+        if ( rows == born.length ) {
+            born = Arrays.copyOf(born, 2 * rows);
+            restored = Arrays.copyOf(restored, 2 * rows);
+        }
+        born[rows] = state;
+        restored[rows] = epoch;
+        return rows++;
+    }
+
+    /**
+     * Forgets all values; rows that are still in use must be restored with
+     * restoreRow().
+     */
+    void clear() {
+        epoch++;
+        Arrays.fill(columns, null);
+    }
+
+    /**
+     * Puts the row back in use for values from the given state on; earlier
+     * states are read from the element's timeline.
+     */
+    void restoreRow(int row, int state) {
+        born[row] = state;
+        restored[row] = epoch;
+    }
+
+    /**
+     * @return the column for the slot, null if no attribute with that slot
+     * was written since the columns were last cleared; unlike column(),
+     * this changes nothing, so it's the one to use when reading
+     */
+    Column lookup(int slot) {
+        return ( slot < columns.length ) ? columns[slot] : null;
+    }
+
+    /**
+     * @return the column for the slot, creating it if necessary, with room
+     * for all rows; only for writing
+     */
+    private Column column(int slot) {
+        if ( slot >= columns.length ) {
+            columns = Arrays.copyOf(columns, Math.max(slot + 1,
+                                                      2 * columns.length));
+        }
+        Column column = columns[slot];
+        if ( column == null ) {
+            column = new Column(Math.max(rows, INITIAL_ROWS));
+            columns[slot] = column;
+        }
+        column.ensure(rows);
+        return column;
+    }
+
+    /**
+     * Copies the attribute with the given slot from the element state, in
+     * which it was just changed, into the row.
+     */
+    void record(int row, int slot, GraphElementState state) {
+        Attribute attribute = state.getAttributes().getAttribute(slot);
+        column(slot).put(row, state.getState(), attribute);
+    }
+
+    /**
+     * @return true if the value of the attribute in the given state can be
+     * read from the columns, i.e., the row was created at or before the
+     * state and its latest value for the attribute dates from then or
+     * earlier.
+     */
+    boolean covers(int row, int slot, int state) {
+        if ( restored[row] != epoch || state < born[row] ) return false;
+        Column column = lookup(slot);
+        if ( column == null || row >= column.kinds.length ) return true;
+        return state >= column.stamps[row];
+    }
+
+    /**
+     * @return true if the row holds the latest values of its element
+     */
+    boolean covers(int row) {
+        return restored[row] == epoch;
+    }
+
+    private Column existing(int slot, int row) {
+        Column column = lookup(slot);
+        if ( column == null || row >= column.kinds.length ) return null;
+        return column;
+    }
+
+    /**
+     * Getters with the same conventions as the ones of AttributeList
+     */
+    Integer getInteger(int row, int slot) {
+        Column column = existing(slot, row);
+        if ( column == null || column.kind(row) != INTEGER ) return null;
+        return column.intAt(row);
+    }
+
+    int getIntegerValue(int row, int slot, int otherwise) {
+        Column column = existing(slot, row);
+        if ( column == null || column.kind(row) != INTEGER ) return otherwise;
+        return column.intAt(row);
+    }
+
+    Double getDouble(int row, int slot) {
+        Column column = existing(slot, row);
+        if ( column == null || column.kind(row) != DOUBLE ) return null;
+        return column.doubleAt(row);
+    }
+
+    double getDoubleValue(int row, int slot, double otherwise) {
+        Column column = existing(slot, row);
+        if ( column == null || column.kind(row) != DOUBLE ) return otherwise;
+        return column.doubleAt(row);
+    }
+
+    /**
+     * @return false if the attribute is missing and null if it is not a
+     * boolean, as AttributeList.getBoolean() does
+     */
+    Boolean getBoolean(int row, int slot) {
+        Column column = existing(slot, row);
+        if ( column == null || column.kind(row) == ABSENT ) return false;
+        if ( column.kind(row) != BOOLEAN ) return null;
+        return column.isTrue(row);
+    }
+
+    boolean getBooleanValue(int row, int slot) {
+        Column column = existing(slot, row);
+        return column != null && column.isTrue(row);
+    }
+
+    String getString(int row, int slot) {
+        Column column = existing(slot, row);
+        return column == null ? null : column.stringAt(row);
+    }
+
+    /**
+     * Counterparts of the tests in AttributeList that tell whether a write
+     * would change anything
+     */
+    boolean contains(int row, int slot) {
+        Column column = existing(slot, row);
+        return column != null && column.kind(row) != ABSENT;
+    }
+
+    boolean holdsInteger(int row, int slot, int value) {
+        Column column = existing(slot, row);
+        return column != null && column.kind(row) == INTEGER
+            && column.intAt(row) == value;
+    }
+
+    boolean holdsDouble(int row, int slot, double value) {
+        Column column = existing(slot, row);
+        return column != null && column.kind(row) == DOUBLE
+            && Double.compare(column.doubleAt(row), value) == 0;
+    }
+
+    boolean holdsBoolean(int row, int slot, boolean value) {
+        Column column = existing(slot, row);
+        return column != null && column.kind(row) == BOOLEAN
+            && column.isTrue(row) == value;
+    }
+
+    boolean holdsString(int row, int slot, String value) {
+        return value.equals(getString(row, slot));
+    }
+
+    /**
+     * @return an estimate of the memory taken by the columns, in bytes,
+     * not counting the strings, which are shared with the attributes
+     */
+    public long getMemoryOverhead() {
+        final int ARRAY_HEADER = 16;
+        long bytes = 2 * (ARRAY_HEADER + 4L * born.length)
+            + ARRAY_HEADER + 8L * columns.length;
+        for ( Column column : columns ) {
+            if ( column == null ) continue;
+            int length = column.kinds.length;
+            bytes += ARRAY_HEADER + length
+                + ARRAY_HEADER + 4L * length
+                + ARRAY_HEADER + 8L * length;
+            if ( column.strings != null )
+                bytes += ARRAY_HEADER + 8L * length;
+        }
+        return bytes;
+    }
+}
+
+//  [Last modified: 2026 10 18 at 02:31:08 GMT]
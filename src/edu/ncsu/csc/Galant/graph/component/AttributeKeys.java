@@ -0,0 +1,105 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry that interns attribute names as small integers (slots). Each
+ * graph has its own registry, shared by the attribute lists of the graph
+ * and all of its elements, so that a lookup compares integers rather than
+ * strings. The standard attributes are registered first, in the same order
+ * for every registry, so their slots are known at compile time and the
+ * constants below can be used directly by GraphElement, Node, etc.
+ *
+ * Names are registered by the algorithm thread and looked up by the display
+ * as well, hence the concurrent map.
+ */
+public class AttributeKeys {
+
+    public static final int ID = 0;
+    public static final int WEIGHT = 1;
+    public static final int LABEL = 2;
+    public static final int COLOR = 3;
+    public static final int DELETED = 4;
+    public static final int HIGHLIGHTED = 5;
+    public static final int HIDDEN = 6;
+    public static final int HIDDEN_LABEL = 7;
+    public static final int HIDDEN_WEIGHT = 8;
+    public static final int X = 9;
+    public static final int Y = 10;
+    public static final int MARKED = 11;
+    public static final int LAYER = 12;
+    public static final int POSITION_IN_LAYER = 13;
+    public static final int MESSAGE = 14;
+
+    /**
+     * Names of the standard attributes, indexed by slot
+     */
+    private static final String[] STANDARD_NAMES = {
+        GraphElement.ID, GraphElement.WEIGHT, GraphElement.LABEL,
+        GraphElement.COLOR, GraphElement.DELETED, GraphElement.HIGHLIGHTED,
+        GraphElement.HIDDEN, GraphElement.HIDDEN_LABEL,
+        GraphElement.HIDDEN_WEIGHT, "x", "y", "marked", "layer",
+        "positionInLayer", "message"
+    };
+
+    private final ConcurrentHashMap<String, Integer> slotByName
+        = new ConcurrentHashMap<String, Integer>();
+
+    private volatile String[] nameBySlot;
+    private int size;
+
+    public AttributeKeys() {
+        nameBySlot = new String[2 * STANDARD_NAMES.length];
+        for ( String name : STANDARD_NAMES ) {
+            slot(name);
+        }
+    }
+
+    /**
+     * @return the slot for the given attribute name, registering it if it
+     * has not been seen before
+     */
+    public int slot(String name) {
+        Integer slot = slotByName.get(name);
+        if ( slot != null ) return slot;
+        synchronized ( this ) {
+            slot = slotByName.get(name);
+            if ( slot != null ) return slot;
+            String[] names = nameBySlot;
+            if ( size == names.length ) {
+                names = Arrays.copyOf(names, 2 * size);
+            }
+            names[size] = name;
+            nameBySlot = names;
+            slotByName.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @return the slot for the given attribute name or -1 if it has never
+     * been registered; unlike slot(), this does not register the name, so
+     * it's the one to use when querying
+     */
+    public int lookup(String name) {
+        Integer slot = slotByName.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the name of the attribute with the given slot
+     */
+    public String name(int slot) {
+        return nameBySlot[slot];
+    }
+
+    /**
+     * @return the number of slots registered so far
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
+
+//  [Last modified: 2026 10 17 at 11:02:15 GMT]
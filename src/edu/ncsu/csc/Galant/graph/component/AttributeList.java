@@ -1,24 +1,177 @@
 package edu.ncsu.csc.Galant.graph.component;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * An AttributeList plays the role of a Map. A list is used so that
  * attributes will appeare in the order they were added rather than
  * alphabetically by key.
+ *
+ * Keys are stored as slots, small integers assigned by the AttributeKeys
+ * registry of the graph, in an array parallel to the array of attributes,
+ * so that finding a key means comparing integers. Every method that takes
+ * a String key has a counterpart that takes a slot; the String is resolved
+ * once through the registry.
+ *
+ * A list may be a <em>delta</em> of another one, its parent: then it only
+ * holds the attributes that were set or removed since the parent, and
+ * lookups that fail here fall through to the parent. This is how the states
+ * of a graph element share attributes -- a new state records only what
+ * changed. A removal in a delta is recorded as a null attribute so that it
+ * hides the parent's value. To keep lookups fast, a chain of deltas is
+ * never longer than MAX_DELTA_DEPTH; when it would be, derive() creates a
+ * full snapshot instead.
+ *
+ * Integer, double and boolean values can be read and written without
+ * boxing, see getIntegerValue() and setInteger(), etc. A write updates the
+ * attribute in place when this list already has one of the same type for
+ * the key, so each attribute belongs to exactly one list: copies clone
+ * them.
  */
 public class AttributeList {
 
-    protected ArrayList<Attribute> attributes;
+    /**
+     * Maximum number of deltas between any list and a full snapshot.
+     */
+    public static final int MAX_DELTA_DEPTH = 16;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The registry that maps keys to slots
+     */
+    private final AttributeKeys keys;
+
+    /**
+     * slots[i] is the slot of the key of values[i]; values[i] is null if the
+     * attribute was removed in this delta
+     */
+    private int[] slots;
+    private Attribute[] values;
+    private int size;
 
-    public AttributeList() { attributes = new ArrayList<Attribute>(); }
+    /**
+     * The list that this one is a delta of, null if this is a full snapshot
+     */
+    private AttributeList parent;
+
+    /**
+     * Number of deltas between this list and a full snapshot; may
+     * overestimate it if an ancestor has been rebased.
+     */
+    private int depth;
+
+    /**
+     * Creates a list with its own registry of keys; used when the list does
+     * not belong to a graph.
+     */
+    public AttributeList() { this(new AttributeKeys()); }
+
+    public AttributeList(AttributeKeys keys) {
+        this.keys = keys;
+        this.slots = new int[INITIAL_CAPACITY];
+        this.values = new Attribute[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates an empty delta of the given list.
+     */
+    private AttributeList(AttributeList parent) {
+        this.keys = parent.keys;
+        this.slots = new int[1];
+        this.values = new Attribute[1];
+        this.parent = parent;
+        this.depth = parent.depth + 1;
+    }
+
+    public AttributeKeys getKeys() { return keys; }
 
     /**
      * The purpose of this method is to allow the outside world to retrieve
      * the attributes as a list so that an iterator can be applied. There's
      * probably a more elegant solution, but ...
+     *
+     * The list is a copy, so changes to it are not reflected here. If this
+     * is a delta, it is assembled from the whole chain.
      */
-    public ArrayList<Attribute> getAttributes() { return attributes; }
+    public ArrayList<Attribute> getAttributes() {
+        AttributeList flat = ( parent == null ) ? this : flatten();
+        return new ArrayList<Attribute>
+            (Arrays.asList(flat.values).subList(0, flat.size));
+    }
+
+    /**
+     * @return a full snapshot with the attributes represented by this list
+     * and its ancestors, in the order in which they would appear had they
+     * all been added to a single list.
+     */
+    private AttributeList flatten() {
+        // depth is only an upper bound once an ancestor has been rebased
+        int length = 0;
+        for ( AttributeList list = this; list != null; list = list.parent ) {
+            length++;
+        }
+        AttributeList[] chain = new AttributeList[length];
+        int i = length - 1;
+        for ( AttributeList list = this; list != null; list = list.parent ) {
+            chain[i--] = list;
+        }
+        AttributeList flat = new AttributeList(keys);
+        for ( AttributeList list : chain ) {
+            for ( int j = 0; j < list.size; j++ ) {
+                if ( list.values[j] == null ) flat.remove(list.slots[j]);
+                else flat.put(list.slots[j], list.values[j].clone());
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * @return the index of the slot among the entries of this list (not its
+     * ancestors), -1 if it is not there
+     */
+    private int indexOf(int slot) {
+        for ( int i = 0; i < size; i++ ) {
+            if ( slots[i] == slot ) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the attribute with the given slot, looking at this list first
+     * and then its ancestors, or null if there is none (or it was removed)
+     */
+    private Attribute find(int slot) {
+        for ( AttributeList list = this; list != null; list = list.parent ) {
+            int index = list.indexOf(slot);
+            if ( index >= 0 ) return list.values[index];
+        }
+        return null;
+    }
+
+    private void append(int slot, Attribute attribute) {
+        if ( size == slots.length ) {
+            int capacity = Math.max(INITIAL_CAPACITY, 2 * size);
+            slots = Arrays.copyOf(slots, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        slots[size] = slot;
+        values[size] = attribute;
+        size++;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
+    }
 
     /**
      * The getters traverse the list until they find a matching key or return
@@ -28,40 +181,315 @@ public class AttributeList {
      * right type and think about throwing an exception
      */
     public Integer getInteger(String key) {
-        for ( Attribute attribute : attributes ) {
-            if ( attribute.getKey().equals(key) ) {
-                return attribute.getIntegerValue();
-            }
-        }
-        return null;
+        int slot = keys.lookup(key);
+        return slot < 0 ? null : getInteger(slot);
     }
 
     public Double getDouble(String key) {
-        for ( Attribute attribute : attributes ) {
-            if ( attribute.getKey().equals(key) ) {
-                return attribute.getDoubleValue();
+        int slot = keys.lookup(key);
+        return slot < 0 ? null : getDouble(slot);
+    }
+
+    public Boolean getBoolean(String key) {
+        int slot = keys.lookup(key);
+        // if missing, return a default, safe value
+        return slot < 0 ? false : getBoolean(slot);
+    }
+
+    public String getString(String key) {
+        int slot = keys.lookup(key);
+        return slot < 0 ? null : getString(slot);
+    }
+
+    /**
+     * Same as the above, with the key given as a slot.
+     */
+    public Integer getInteger(int slot) {
+        Attribute attribute = find(slot);
+        return attribute == null ? null : attribute.getIntegerValue();
+    }
+
+    public Double getDouble(int slot) {
+        Attribute attribute = find(slot);
+        return attribute == null ? null : attribute.getDoubleValue();
+    }
+
+    public Boolean getBoolean(int slot) {
+        Attribute attribute = find(slot);
+        if ( attribute == null ) return false;
+        return attribute.getBooleanValue();
+    }
+
+    public String getString(int slot) {
+        Attribute attribute = find(slot);
+        return attribute == null ? null : attribute.getStringValue();
+    }
+
+    /**
+     * @return the attribute itself, looking in the ancestors as well, or
+     * null if there is none
+     */
+    public Attribute getAttribute(int slot) {
+        return find(slot);
+    }
+
+    /**
+     * Unboxed versions of the getters.
+     * @return the value of the attribute or <code>otherwise</code> if
+     * there is no attribute of the right type with the given key
+     */
+    public int getIntegerValue(int slot, int otherwise) {
+        Attribute attribute = find(slot);
+        if ( ! (attribute instanceof IntegerAttribute) ) return otherwise;
+        return ((IntegerAttribute) attribute).intValue();
+    }
+
+    public double getDoubleValue(int slot, double otherwise) {
+        Attribute attribute = find(slot);
+        if ( ! (attribute instanceof DoubleAttribute) ) return otherwise;
+        return ((DoubleAttribute) attribute).doubleValue();
+    }
+
+    /**
+     * @return false if the attribute is missing, as with getBoolean()
+     */
+    public boolean getBooleanValue(int slot) {
+        Attribute attribute = find(slot);
+        if ( ! (attribute instanceof BooleanAttribute) ) return false;
+        return ((BooleanAttribute) attribute).booleanValue();
+    }
+
+    /**
+     * Tests used to skip writes that would not change anything.
+     * @return true if there is an attribute with the given slot, type and
+     * value
+     */
+    public boolean contains(int slot) {
+        return find(slot) != null;
+    }
+
+    public boolean holdsInteger(int slot, int value) {
+        Attribute attribute = find(slot);
+        return attribute instanceof IntegerAttribute
+            && ((IntegerAttribute) attribute).intValue() == value;
+    }
+
+    public boolean holdsDouble(int slot, double value) {
+        Attribute attribute = find(slot);
+        return attribute instanceof DoubleAttribute
+            && Double.compare(((DoubleAttribute) attribute).doubleValue(),
+                              value) == 0;
+    }
+
+    public boolean holdsBoolean(int slot, boolean value) {
+        Attribute attribute = find(slot);
+        return attribute instanceof BooleanAttribute
+            && ((BooleanAttribute) attribute).booleanValue() == value;
+    }
+
+    public boolean holdsString(int slot, String value) {
+        Attribute attribute = find(slot);
+        return attribute instanceof StringAttribute
+            && value.equals(attribute.getStringValue());
+    }
+
+    /**
+     * @return true if this list represents the same attributes as the other
+     * one, with the same types and values, regardless of order
+     */
+    public boolean sameAs(AttributeList other) {
+        if ( other.parent == this ) return other.changesNothing();
+        if ( parent == other ) return changesNothing();
+        AttributeList mine = ( parent == null ) ? this : flatten();
+        AttributeList theirs
+            = ( other.parent == null ) ? other : other.flatten();
+        if ( mine.size != theirs.size ) return false;
+        for ( int i = 0; i < mine.size; i++ ) {
+            if ( ! sameValue(mine.values[i], theirs.find(mine.slots[i])) )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if this delta sets every attribute to the value it
+     * already has in the parent
+     */
+    private boolean changesNothing() {
+        for ( int i = 0; i < size; i++ ) {
+            if ( ! sameValue(values[i], parent.find(slots[i])) ) return false;
+        }
+        return true;
+    }
+
+    static boolean sameValue(Attribute first, Attribute second) {
+        if ( first == null || second == null ) return first == second;
+        if ( first.getClass() != second.getClass() ) return false;
+        if ( first instanceof IntegerAttribute )
+            return ((IntegerAttribute) first).intValue()
+                == ((IntegerAttribute) second).intValue();
+        if ( first instanceof DoubleAttribute )
+            return Double.compare(((DoubleAttribute) first).doubleValue(),
+                                  ((DoubleAttribute) second).doubleValue()) == 0;
+        if ( first instanceof BooleanAttribute )
+            return ((BooleanAttribute) first).booleanValue()
+                == ((BooleanAttribute) second).booleanValue();
+        String value = first.getStringValue();
+        return value == null ? second.getStringValue() == null
+            : value.equals(second.getStringValue());
+    }
+
+    /**
+     * Adds the keys of the attributes set or removed in this list and its
+     * ancestors up to, but not including, the given one to the collection.
+     * For lists derived state by state these are the attributes written
+     * since the ancestor's state. If the chain ends in a full snapshot
+     * before it reaches the ancestor -- derive() starts a new one every
+     * MAX_DELTA_DEPTH states and rebase() turns a list into one -- the
+     * snapshot is compared with the ancestor key by key instead; only if
+     * there is no ancestor at all are all keys added.
+     */
+    void collectKeysSince(AttributeList ancestor, Collection<String> keys) {
+        AttributeList list = this;
+        for ( ; list != ancestor && list.parent != null; list = list.parent ) {
+            for ( int i = 0; i < list.size; i++ ) addKey(list.slots[i], keys);
+        }
+        if ( list == ancestor ) return;
+        if ( ancestor == null ) {
+            for ( int i = 0; i < list.size; i++ ) addKey(list.slots[i], keys);
+            return;
+        }
+        AttributeList theirs
+            = ( ancestor.parent == null ) ? ancestor : ancestor.flatten();
+        for ( int i = 0; i < list.size; i++ ) {
+            if ( ! sameValue(list.values[i], theirs.find(list.slots[i])) )
+                addKey(list.slots[i], keys);
+        }
+        for ( int i = 0; i < theirs.size; i++ ) {
+            if ( list.indexOf(theirs.slots[i]) < 0 )
+                addKey(theirs.slots[i], keys);
+        }
+    }
+
+    private void addKey(int slot, Collection<String> keys) {
+        String key = this.keys.name(slot);
+        if ( ! keys.contains(key) ) keys.add(key);
+    }
+
+    /**
+     * Kinds of entries in the binary form of a list, see writeDelta()
+     */
+    static final byte REMOVED = 0;
+    static final byte INTEGER = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte STRING = 4;
+
+    /**
+     * Writes the attributes by which this list differs from the previous
+     * one -- all of them if previous is null -- as the number of entries
+     * followed by, for each, its slot, its kind and its value. An attribute
+     * that is no longer there is written with kind REMOVED and no value.
+     * This is the binary form used for spilled states and animation traces.
+     */
+    void writeDelta(AttributeList previous, DataOutput out)
+        throws IOException {
+        if ( previous != null && parent == previous ) {
+            out.writeInt(size);
+            for ( int i = 0; i < size; i++ ) {
+                writeEntry(slots[i], values[i], out);
             }
+            return;
+        }
+        AttributeList mine = ( parent == null ) ? this : flatten();
+        AttributeList theirs = null;
+        if ( previous != null ) {
+            theirs = ( previous.parent == null ) ? previous : previous.flatten();
+        }
+        int count = 0;
+        for ( int i = 0; i < mine.size; i++ ) {
+            if ( theirs == null
+                 || ! sameValue(mine.values[i], theirs.find(mine.slots[i])) )
+                count++;
+        }
+        for ( int i = 0; theirs != null && i < theirs.size; i++ ) {
+            if ( mine.indexOf(theirs.slots[i]) < 0 ) count++;
+        }
+        out.writeInt(count);
+        for ( int i = 0; i < mine.size; i++ ) {
+            if ( theirs == null
+                 || ! sameValue(mine.values[i], theirs.find(mine.slots[i])) )
+                writeEntry(mine.slots[i], mine.values[i], out);
+        }
+        for ( int i = 0; theirs != null && i < theirs.size; i++ ) {
+            if ( mine.indexOf(theirs.slots[i]) < 0 )
+                writeEntry(theirs.slots[i], null, out);
         }
-        return null;
     }
 
-    public Boolean getBoolean(String key) {
-        for ( Attribute attribute : attributes ) {
-            if ( attribute.getKey().equals(key) ) {
-                return attribute.getBooleanValue();
+    private static void writeEntry(int slot, Attribute attribute,
+                                   DataOutput out) throws IOException {
+        out.writeInt(slot);
+        if ( attribute == null ) {
+            out.writeByte(REMOVED);
+        }
+        else if ( attribute instanceof IntegerAttribute ) {
+            out.writeByte(INTEGER);
+            out.writeInt(((IntegerAttribute) attribute).intValue());
+        }
+        else if ( attribute instanceof DoubleAttribute ) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((DoubleAttribute) attribute).doubleValue());
+        }
+        else if ( attribute instanceof BooleanAttribute ) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((BooleanAttribute) attribute).booleanValue());
+        }
+        else {
+            String value = attribute.getStringValue();
+            out.writeByte(STRING);
+            if ( value == null ) {
+                out.writeInt(-1);
+            }
+            else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
             }
         }
-        // if missing, return a default, safe value
-        return false;
     }
 
-    public String getString(String key) {
-        for ( Attribute attribute : attributes ) {
-            if ( attribute.getKey().equals(key) ) {
-                return attribute.getStringValue();
+    /**
+     * Applies the entries written by writeDelta() to this list.
+     * @param slotMap the slot in this list's registry of each slot in the
+     * input, null if the registries are the same
+     * @return the slots of the attributes that were changed
+     */
+    int[] readDelta(DataInput in, int[] slotMap) throws IOException {
+        int count = in.readInt();
+        int[] changed = new int[count];
+        for ( int i = 0; i < count; i++ ) {
+            int slot = in.readInt();
+            if ( slotMap != null ) slot = slotMap[slot];
+            changed[i] = slot;
+            byte kind = in.readByte();
+            if ( kind == REMOVED ) remove(slot);
+            else if ( kind == INTEGER ) setInteger(slot, in.readInt());
+            else if ( kind == DOUBLE ) setDouble(slot, in.readDouble());
+            else if ( kind == BOOLEAN ) setBoolean(slot, in.readBoolean());
+            else if ( kind == STRING ) {
+                int length = in.readInt();
+                String value = null;
+                if ( length >= 0 ) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    value = new String(bytes, StandardCharsets.UTF_8);
+                }
+                put(slot, new StringAttribute(keys.name(slot), value));
             }
+            else throw new IOException("unknown attribute kind " + kind);
         }
-        return null;
+        return changed;
     }
 
     /**
@@ -71,78 +499,205 @@ public class AttributeList {
      * already.
      */
   public boolean set(String key, Integer value) {
-    for ( int i = 0; i < attributes.size(); i++ ) {
-      if ( attributes.get(i).getKey().equals(key) ) {
-        attributes.set(i, new IntegerAttribute(key, value));
-        return true;
-      }
-    }
-    attributes.add(new IntegerAttribute(key, value));
-    return false;
+    return set(keys.slot(key), value);
   }
 
   public boolean set(String key, Double value) {
-    for ( int i = 0; i < attributes.size(); i++ ) {
-      if ( attributes.get(i).getKey().equals(key) ) {
-        attributes.set(i, new DoubleAttribute(key, value));
-        return true;
-      }
-    }
-    attributes.add(new DoubleAttribute(key, value));
-    return false;
+    return set(keys.slot(key), value);
   }
 
   public boolean set(String key, Boolean value) {
-    for ( int i = 0; i < attributes.size(); i++ ) {
-      if ( attributes.get(i).getKey().equals(key) ) {
-        attributes.set(i, new BooleanAttribute(key, value));
-        return true;
-      }
-    }
-    attributes.add(new BooleanAttribute(key, value));
-    return false;
+    return set(keys.slot(key), value);
   }
 
   public boolean set(String key, String value) {
-    for ( int i = 0; i < attributes.size(); i++ ) {
-      if ( attributes.get(i).getKey().equals(key) ) {
-        attributes.set(i, new StringAttribute(key, value));
-        return true;
-      }
-    }
-    attributes.add(new StringAttribute(key, value));
-    return false;
+    return set(keys.slot(key), value);
+  }
+
+  /**
+   * A null value removes the attribute.
+   */
+  public boolean set(int slot, Integer value) {
+    if ( value == null ) return remove(slot);
+    return setInteger(slot, value);
+  }
+
+  public boolean set(int slot, Double value) {
+    if ( value == null ) return remove(slot);
+    return setDouble(slot, value);
+  }
+
+  public boolean set(int slot, Boolean value) {
+    if ( value == null ) return remove(slot);
+    return setBoolean(slot, value);
+  }
+
+  public boolean set(int slot, String value) {
+    return put(slot, new StringAttribute(keys.name(slot), value));
   }
 
+    /**
+     * Unboxed versions of the setters. If this list (not an ancestor)
+     * already has an attribute of the same type for the key, its value is
+     * overwritten, so that repeated writes within the same state do not
+     * allocate.
+     */
+    public boolean setInteger(String key, int value) {
+        return setInteger(keys.slot(key), value);
+    }
+
+    public boolean setDouble(String key, double value) {
+        return setDouble(keys.slot(key), value);
+    }
+
+    public boolean setBoolean(String key, boolean value) {
+        return setBoolean(keys.slot(key), value);
+    }
+
+    public boolean setInteger(int slot, int value) {
+        int index = indexOf(slot);
+        if ( index >= 0 && values[index] instanceof IntegerAttribute ) {
+            ((IntegerAttribute) values[index]).set(value);
+            return true;
+        }
+        return put(slot, new IntegerAttribute(keys.name(slot), value));
+    }
+
+    public boolean setDouble(int slot, double value) {
+        int index = indexOf(slot);
+        if ( index >= 0 && values[index] instanceof DoubleAttribute ) {
+            ((DoubleAttribute) values[index]).set(value);
+            return true;
+        }
+        return put(slot, new DoubleAttribute(keys.name(slot), value));
+    }
+
+    public boolean setBoolean(int slot, boolean value) {
+        int index = indexOf(slot);
+        if ( index >= 0 && values[index] instanceof BooleanAttribute ) {
+            ((BooleanAttribute) values[index]).set(value);
+            return true;
+        }
+        return put(slot, new BooleanAttribute(keys.name(slot), value));
+    }
+
+    /**
+     * Adds the attribute to this list, replacing the one with the same slot
+     * if there is one here (a removed one included).
+     * @return true if the attribute was present, here or in an ancestor
+     */
+    private boolean put(int slot, Attribute attribute) {
+        int index = indexOf(slot);
+        if ( index >= 0 ) {
+            Attribute previous = values[index];
+            values[index] = attribute;
+            return previous != null;
+        }
+        boolean found = ( parent != null && parent.find(slot) != null );
+        append(slot, attribute);
+        return found;
+    }
+
     /**
      * The following method removes an item from the list. It does nothing if
      * there was no item with the given key.
      * @return true if the attribute was present
      */
     public boolean remove(String key) {
-        for ( int i = 0; i < attributes.size(); i++ ) {
-            if ( attributes.get(i).getKey().equals(key) ) {
-                attributes.remove(i);
-                return true;
-            }
+        int slot = keys.lookup(key);
+        return slot < 0 ? false : remove(slot);
+    }
+
+    public boolean remove(int slot) {
+        int index = indexOf(slot);
+        if ( parent == null ) {
+            if ( index < 0 ) return false;
+            delete(index);
+            return true;
+        }
+        boolean found = ( find(slot) != null );
+        if ( parent.find(slot) == null ) {
+            // nothing to hide in the ancestors
+            if ( index >= 0 ) delete(index);
         }
-        return false;
+        else if ( index >= 0 ) {
+            values[index] = null;
+        }
+        else {
+            append(slot, null);
+        }
+        return found;
     }
 
     /**
-     * @return a copy of the list; the attributes themselves are not copied
-     * since new copies are created by the setters - see above.
+     * @return a copy of the list; the attributes are cloned since the
+     * unboxed setters update them in place - see above.
      * This is effectively a clone() without the annoyance of having to catch
-     * a CloneNotSupported exception or having to cast.
+     * a CloneNotSupported exception or having to cast. The copy is always a
+     * full snapshot.
      */
     public AttributeList duplicate() {
-      AttributeList newList = new AttributeList();
-      for ( Attribute attribute : this.attributes ) {
-        newList.attributes.add(attribute);
+      if ( parent != null ) return flatten();
+      AttributeList newList = new AttributeList(keys);
+      newList.slots = Arrays.copyOf(slots, Math.max(size, INITIAL_CAPACITY));
+      newList.values = new Attribute[Math.max(size, INITIAL_CAPACITY)];
+      for ( int i = 0; i < size; i++ ) {
+        newList.values[i] = values[i].clone();
       }
+      newList.size = size;
       return newList;
     }
 
+    /**
+     * Turns this list into a full snapshot without changing the attributes
+     * it represents, so that its ancestors are no longer needed. Deltas of
+     * this list remain valid.
+     */
+    public void rebase() {
+        if ( parent == null ) return;
+        AttributeList flat = flatten();
+        slots = flat.slots;
+        values = flat.values;
+        size = flat.size;
+        parent = null;
+        depth = 0;
+    }
+
+    /**
+     * @return a list that initially has the same attributes as this one and
+     * to which changes can be made without affecting this one; it is a
+     * delta of this list unless the chain of deltas is already at its
+     * maximum length, in which case it's a full copy.
+     *
+     * @invariant this list must not change once a delta of it has been
+     * derived
+     */
+    public AttributeList derive() {
+        if ( depth >= MAX_DELTA_DEPTH ) return duplicate();
+        return new AttributeList(this);
+    }
+
+    /**
+     * @return the number of entries, attributes or removals, held by this
+     * list itself rather than its ancestors
+     */
+    int entryCount() { return size; }
+
+    /**
+     * @return an estimate of the memory taken by this list itself, not its
+     * ancestors, in bytes
+     */
+    long getMemoryUsage() {
+        long bytes = MemoryUsage.OBJECT_HEADER + 3 * MemoryUsage.REFERENCE + 16
+            + MemoryUsage.ARRAY_HEADER + 4L * slots.length
+            + MemoryUsage.ARRAY_HEADER
+            + (long) MemoryUsage.REFERENCE * values.length;
+        for ( int i = 0; i < size; i++ ) {
+            if ( values[i] != null ) bytes += MemoryUsage.sizeOf(values[i]);
+        }
+        return bytes;
+    }
+
     // The following does not work; the toString() method for ArrayList
     // always takes over, but that's useful for debugging.
 //     public String toString() {
@@ -156,4 +711,4 @@ public class AttributeList {
 
 }
 
-//  [Last modified: 2018 08 27 at 20:44:20 GMT]
+//  [Last modified: 2026 10 18 at 03:52:37 GMT]
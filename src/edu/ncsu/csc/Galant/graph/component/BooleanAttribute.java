@@ -1,17 +1,22 @@
 package edu.ncsu.csc.Galant.graph.component;
 
+/**
+ * The value is kept unboxed; getBooleanValue() returns one of the two
+ * canonical Boolean objects, so it does not allocate either.
+ */
 public class BooleanAttribute extends Attribute implements Cloneable {
-    private Boolean value;
-    public BooleanAttribute(String key, Boolean value) {
+    private boolean value;
+    public BooleanAttribute(String key, boolean value) {
         super(key);
         this.value = value;
     }
     public Boolean getBooleanValue() { return value; }
-    public void set(Boolean value) { this.value = value; }
+    public boolean booleanValue() { return value; }
+    public void set(boolean value) { this.value = value; }
     public Attribute clone() { return new BooleanAttribute(key, value); }
     public String toString() {
         return key + "=\"" + value + "\"";
     }
 }
 
-//  [Last modified: 2015 12 05 at 18:07:28 GMT]
+//  [Last modified: 2026 10 17 at 09:13:04 GMT]
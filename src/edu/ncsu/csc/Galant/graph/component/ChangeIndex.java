@@ -0,0 +1,355 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.Arrays;
+
+/**
+ * An inverted index of the history of an animation: for each node, edge
+ * and attribute, the algorithm states in which the attribute changed, in
+ * increasing order. Rows are the ones assigned by AttributeColumns and
+ * attributes are identified by their slots (see AttributeKeys).
+ *
+ * GraphElement adds to the index whenever it records a change in the
+ * columns. Since algorithm states only increase while an algorithm runs,
+ * this is an append, in constant amortized time; questions such as "when
+ * did the weight of node 17 change next?" are then answered by binary
+ * search instead of a scan of the element's history.
+ *
+ * The index also keeps a log of the rows that changed, in order of state,
+ * from which the elements that differ between two display states are
+ * found without looking at any attributes, see Graph.changesBetween().
+ *
+ * The algorithm thread adds to the index while the display asks it
+ * questions, so all methods that touch it are synchronized.
+ */
+public class ChangeIndex {
+
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * changes[row][slot] is null if the attribute never changed; otherwise
+     * element 0 is the number of states recorded and the states follow
+     */
+    private int[][][] changes = new int[INITIAL_ROWS][][];
+
+    /**
+     * The element of each row
+     */
+    private GraphElement[] elements = new GraphElement[INITIAL_ROWS];
+
+    /**
+     * The log: the element of row logRows[i] changed in state logStates[i];
+     * the states are in increasing order and each row appears at most once
+     * per state. A row of -1 marks an entry that was forgotten.
+     */
+    private int[] logStates = new int[INITIAL_ROWS];
+    private int[] logRows = new int[INITIAL_ROWS];
+    private int logSize = 0;
+
+    /**
+     * lastLogged[row] is the last state in which the row was logged, -1 if
+     * none
+     */
+    private int[] lastLogged = newLastLogged(INITIAL_ROWS);
+
+    private static int[] newLastLogged(int rows) {
+        int[] states = new int[rows];
+        Arrays.fill(states, -1);
+        return states;
+    }
+
+    /**
+     * Makes a note of the element of a new row, which was created in the
+     * given state.
+     */
+    synchronized void register(int row, GraphElement element, int state) {
+        restore(row, element);
+        log(row, state);
+    }
+
+    /**
+     * Makes a note of the element of a row again after the index was
+     * cleared, without logging a change.
+     */
+    synchronized void restore(int row, GraphElement element) {
+        if ( row >= elements.length ) {
+            elements = Arrays.copyOf(elements, Math.max(row + 1,
+                                                        2 * elements.length));
+        }
+        elements[row] = element;
+    }
+
+    /**
+     * @return the element of the row, null if there is none
+     */
+    synchronized GraphElement elementOf(int row) {
+        return ( row >= 0 && row < elements.length ) ? elements[row] : null;
+    }
+
+    /**
+     * Adds the row to the log for the given state unless it is there
+     * already.
+     */
+    synchronized void log(int row, int state) {
+        if ( row >= lastLogged.length ) {
+            int length = lastLogged.length;
+            lastLogged = Arrays.copyOf(lastLogged, Math.max(row + 1,
+                                                            2 * length));
+            Arrays.fill(lastLogged, length, lastLogged.length, -1);
+        }
+        if ( lastLogged[row] == state ) return;
+        if ( logSize == logStates.length ) {
+            logStates = Arrays.copyOf(logStates, 2 * logSize);
+            logRows = Arrays.copyOf(logRows, 2 * logSize);
+        }
+        int position = logSize;
+        if ( logSize > 0 && logStates[logSize - 1] > state ) {
+            // not an append; only happens if states were renumbered
+            int start = firstAfter(state - 1);
+            position = firstAfter(state);
+            for ( int i = start; i < position; i++ ) {
+                if ( logRows[i] == row ) return;
+            }
+            System.arraycopy(logStates, position, logStates, position + 1,
+                             logSize - position);
+            System.arraycopy(logRows, position, logRows, position + 1,
+                             logSize - position);
+        }
+        else {
+            lastLogged[row] = state;
+        }
+        logStates[position] = state;
+        logRows[position] = row;
+        logSize++;
+    }
+
+    /**
+     * @return the index of the first log entry with a state after the given
+     * one, logSize if there is none
+     */
+    private int firstAfter(int state) {
+        int low = 0;
+        int high = logSize;
+        while ( low < high ) {
+            int middle = (low + high) >>> 1;
+            if ( logStates[middle] <= state ) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return the rows that changed in a state after <code>after</code> up
+     * to and including <code>upTo</code>, each once, in order of the state
+     * of their first change
+     */
+    synchronized int[] changedRows(int after, int upTo) {
+        int start = firstAfter(after);
+        int end = firstAfter(upTo);
+        int[] rows = new int[end - start];
+        int count = 0;
+        if ( seen.length < lastLogged.length ) {
+            seen = new int[lastLogged.length];
+            generation = 0;
+        }
+        generation++;
+        for ( int i = start; i < end; i++ ) {
+            int row = logRows[i];
+            if ( row < 0 || seen[row] == generation ) continue;
+            seen[row] = generation;
+            rows[count++] = row;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * seen[row] == generation if the row has already been found by the
+     * current call of changedRows()
+     */
+    private int[] seen = new int[0];
+    private int generation = 0;
+
+    /**
+     * Notes that the attribute with the given slot changed in the given
+     * state.
+     */
+    synchronized void record(int row, int slot, int state) {
+        if ( row < 0 ) return;
+        if ( row >= changes.length ) {
+            changes = Arrays.copyOf(changes, Math.max(row + 1,
+                                                      2 * changes.length));
+        }
+        int[][] slots = changes[row];
+        if ( slots == null ) {
+            slots = new int[Math.max(slot + 1, AttributeKeys.MESSAGE + 1)][];
+            changes[row] = slots;
+        }
+        else if ( slot >= slots.length ) {
+            slots = Arrays.copyOf(slots, Math.max(slot + 1, 2 * slots.length));
+            changes[row] = slots;
+        }
+        log(row, state);
+        int[] list = slots[slot];
+        if ( list == null ) {
+            list = new int[1 + INITIAL_CAPACITY];
+            slots[slot] = list;
+        }
+        int count = list[0];
+        if ( count > 0 && list[count] >= state ) {
+            // not an append; only happens if states were renumbered
+            int index = search(list, state);
+            if ( index >= 0 ) return;
+            insert(row, slot, -index - 1, state);
+            return;
+        }
+        if ( count + 1 == list.length ) {
+            list = Arrays.copyOf(list, 2 * list.length);
+            slots[slot] = list;
+        }
+        list[count + 1] = state;
+        list[0] = count + 1;
+    }
+
+    private void insert(int row, int slot, int position, int state) {
+        int[] list = changes[row][slot];
+        int count = list[0];
+        if ( count + 1 == list.length ) {
+            list = Arrays.copyOf(list, 2 * list.length);
+            changes[row][slot] = list;
+        }
+        System.arraycopy(list, position, list, position + 1,
+                         count + 1 - position);
+        list[position] = state;
+        list[0] = count + 1;
+    }
+
+    /**
+     * @return the position of the state in the list, as in
+     * Arrays.binarySearch()
+     */
+    private static int search(int[] list, int state) {
+        return Arrays.binarySearch(list, 1, list[0] + 1, state);
+    }
+
+    private int[] list(int row, int slot) {
+        if ( row < 0 || slot < 0 || row >= changes.length ) return null;
+        int[][] slots = changes[row];
+        if ( slots == null || slot >= slots.length ) return null;
+        return slots[slot];
+    }
+
+    /**
+     * Removes the given state from the lists of all attributes of the row,
+     * e.g., because the element's state was dropped as redundant.
+     */
+    synchronized void forget(int row, int state) {
+        for ( int i = firstAfter(state - 1); i < firstAfter(state); i++ ) {
+            if ( logRows[i] == row ) logRows[i] = -1;
+        }
+        if ( row < 0 || row >= changes.length || changes[row] == null ) return;
+        for ( int[] list : changes[row] ) {
+            if ( list == null ) continue;
+            int index = search(list, state);
+            if ( index < 0 ) continue;
+            System.arraycopy(list, index + 1, list, index, list[0] - index);
+            list[0]--;
+        }
+    }
+
+    /**
+     * Gives every recorded state its new number.
+     * @see Graph#compactHistory(int)
+     */
+    synchronized void renumber(int[] map) {
+        int kept = 0;
+        for ( int i = 0; i < logSize; i++ ) {
+            if ( logRows[i] < 0 ) continue;
+            int state = logStates[i];
+            logStates[kept] = ( state >= 0 && state < map.length )
+                ? map[state] : state;
+            logRows[kept] = logRows[i];
+            kept++;
+        }
+        logSize = kept;
+        for ( int row = 0; row < lastLogged.length; row++ ) {
+            int state = lastLogged[row];
+            if ( state >= 0 && state < map.length ) lastLogged[row] = map[state];
+        }
+        for ( int[][] slots : changes ) {
+            if ( slots == null ) continue;
+            for ( int[] list : slots ) {
+                if ( list == null ) continue;
+                for ( int i = 1; i <= list[0]; i++ ) {
+                    if ( list[i] >= 0 && list[i] < map.length ) {
+                        list[i] = map[list[i]];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything, e.g., at the end of an animation; elements that
+     * remain note themselves again with restore() or register().
+     */
+    synchronized void clear() {
+        changes = new int[INITIAL_ROWS][][];
+        Arrays.fill(elements, null);
+        logSize = 0;
+        Arrays.fill(lastLogged, -1);
+    }
+
+    /**
+     * @return the states in which the attribute of the row changed, in
+     * increasing order
+     */
+    public synchronized int[] changes(int row, int slot) {
+        int[] list = list(row, slot);
+        if ( list == null ) return new int[0];
+        return Arrays.copyOfRange(list, 1, list[0] + 1);
+    }
+
+    /**
+     * @return the first state after the given one in which the attribute
+     * of the row changed, -1 if there is none
+     */
+    public synchronized int nextChange(int row, int slot, int state) {
+        int[] list = list(row, slot);
+        if ( list == null ) return -1;
+        int index = search(list, state);
+        index = ( index >= 0 ) ? index + 1 : -index - 1;
+        return index <= list[0] ? list[index] : -1;
+    }
+
+    /**
+     * @return the last state before the given one in which the attribute
+     * of the row changed, -1 if there is none
+     */
+    public synchronized int previousChange(int row, int slot, int state) {
+        int[] list = list(row, slot);
+        if ( list == null ) return -1;
+        int index = search(list, state);
+        index = ( index >= 0 ) ? index - 1 : -index - 2;
+        return index >= 1 ? list[index] : -1;
+    }
+
+    /**
+     * @return an estimate of the memory taken by the index, in bytes
+     */
+    public synchronized long getMemoryOverhead() {
+        final int ARRAY_HEADER = 16;
+        long bytes = ARRAY_HEADER + 8L * changes.length
+            + 2 * (ARRAY_HEADER + 4L * logStates.length)
+            + ARRAY_HEADER + 4L * lastLogged.length;
+        for ( int[][] slots : changes ) {
+            if ( slots == null ) continue;
+            bytes += ARRAY_HEADER + 8L * slots.length;
+            for ( int[] list : slots ) {
+                if ( list != null ) bytes += ARRAY_HEADER + 4L * list.length;
+            }
+        }
+        return bytes;
+    }
+}
+
+//  [Last modified: 2026 10 18 at 03:38:50 GMT]
@@ -1,17 +1,22 @@
 package edu.ncsu.csc.Galant.graph.component;
 
+/**
+ * The value is kept unboxed so that reading or updating it does not
+ * allocate; getDoubleValue() boxes it for callers that need an object.
+ */
 public class DoubleAttribute extends Attribute implements Cloneable {
-    private Double value;
-    public DoubleAttribute(String key, Double value) {
+    private double value;
+    public DoubleAttribute(String key, double value) {
         super(key);
         this.value = value;
     }
     public Double getDoubleValue() { return value; }
-    public void set(Double value) { this.value = value; }
+    public double doubleValue() { return value; }
+    public void set(double value) { this.value = value; }
     public Attribute clone() { return new DoubleAttribute(key, value); }
     public String toString() {
         return key + "=\"" + value + "\"";
     }
 }
 
-//  [Last modified: 2015 07 27 at 15:55:50 GMT]
+//  [Last modified: 2026 10 17 at 09:12:52 GMT]
@@ -0,0 +1,80 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import edu.ncsu.csc.Galant.graph.datastructure.EdgeList;
+import edu.ncsu.csc.Galant.graph.datastructure.NodeList;
+
+/**
+ * What changed between two display states of an animation: the nodes and
+ * edges that were created, deleted or had any attribute changed, the keys
+ * of the graph attributes that were written and whether the message in the
+ * banner changed. It is the same whichever of the two states is displayed
+ * first. Obtained from Graph.changesBetween(), e.g., to repaint only what
+ * changed or to summarize a step.
+ */
+public class FrameDiff {
+
+    private final int from;
+    private final int to;
+    private final NodeList nodes = new NodeList();
+    private final EdgeList edges = new EdgeList();
+    private final ArrayList<String> graphAttributes = new ArrayList<String>();
+    private boolean messageChanged = false;
+
+    FrameDiff(int from, int to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    void add(GraphElement element) {
+        if ( element instanceof Node ) nodes.add((Node) element);
+        else if ( element instanceof Edge ) edges.add((Edge) element);
+        else if ( element instanceof MessageBanner ) messageChanged = true;
+    }
+
+    List<String> graphAttributeList() { return graphAttributes; }
+
+    public int getFrom() { return from; }
+    public int getTo() { return to; }
+
+    public NodeList getNodes() { return nodes; }
+    public EdgeList getEdges() { return edges; }
+
+    /**
+     * @return the keys of the graph attributes that were set or removed
+     */
+    public List<String> getGraphAttributes() { return graphAttributes; }
+
+    public boolean messageChanged() { return messageChanged; }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty() && edges.isEmpty()
+            && graphAttributes.isEmpty() && ! messageChanged;
+    }
+
+    /**
+     * @return a short description, e.g., "2 nodes, 1 edge, message changed"
+     */
+    public String summary() {
+        ArrayList<String> parts = new ArrayList<String>();
+        if ( ! nodes.isEmpty() )
+            parts.add(nodes.size() + ( nodes.size() == 1 ? " node" : " nodes" ));
+        if ( ! edges.isEmpty() )
+            parts.add(edges.size() + ( edges.size() == 1 ? " edge" : " edges" ));
+        if ( ! graphAttributes.isEmpty() ) parts.add("graph " + graphAttributes);
+        if ( messageChanged ) parts.add("message");
+        if ( parts.isEmpty() ) return "nothing changed";
+        String summary = parts.get(0);
+        for ( int i = 1; i < parts.size(); i++ ) summary += ", " + parts.get(i);
+        return summary + " changed";
+    }
+
+    public String toString() {
+        return "states " + from + " -> " + to + ": nodes " + nodes
+            + ", edges " + edges + ", graph " + graphAttributes
+            + ( messageChanged ? ", message" : "" );
+    }
+}
+
+//  [Last modified: 2026 10 17 at 15:52:40 GMT]
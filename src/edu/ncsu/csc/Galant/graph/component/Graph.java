@@ -6,11 +6,15 @@ package edu.ncsu.csc.Galant.graph.component;
 
 import java.awt.Point;
 import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import edu.ncsu.csc.Galant.GalantException;
 import edu.ncsu.csc.Galant.GraphDispatch;
@@ -50,6 +54,67 @@ public class Graph {
 
   private MessageBanner banner;
 
+  /**
+   * Slots for the attribute names used by this graph and its elements
+   */
+  private AttributeKeys attributeKeys = new AttributeKeys();
+
+  /**
+   * Latest attribute values of all nodes and edges, one column per
+   * attribute, for passes over the whole graph
+   */
+  private AttributeColumns attributeColumns = new AttributeColumns();
+
+  /**
+   * Periodic snapshots of the element timelines for fast access to
+   * arbitrary display states
+   */
+  private Keyframes keyframes = new Keyframes(attributeColumns);
+
+  /**
+   * The states in which each attribute of each node and edge changed
+   */
+  private ChangeIndex changeIndex = new ChangeIndex();
+
+  /**
+   * Followed by the timelines of all nodes and edges so that reset() can
+   * discard their states in constant time
+   */
+  private StateTimeline.Epoch epoch = new StateTimeline.Epoch();
+
+  /**
+   * Guards the lists of nodes and edges and the histories of the graph and
+   * its elements. The algorithm makes its changes, and the history is
+   * rewritten -- keyframes, spilling, compaction, reset -- under the write
+   * lock; the display reads the graph under the read lock, since it does
+   * so while the algorithm runs. The algorithm thread itself reads without
+   * the lock. The write lock is never held while the algorithm pauses, so
+   * that a reader waits for at most one change or rewrite.
+   */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Number of algorithm states whose element states are kept in memory,
+   * 0 if all are; older ones are spilled to the history file.
+   */
+  private int historyWindow = 0;
+  private File historyDirectory;
+  private SpilledHistory history;
+  private int lastTrim = 0;
+
+  /**
+   * Number of bytes the history may take before a warning, 0 for no limit;
+   * the memory is measured at least MEMORY_CHECK_INTERVAL states apart,
+   * and historyBytes, an estimate kept up to date in between by adding
+   * the size of each state as it is appended, is checked every time
+   */
+  private static final int MEMORY_CHECK_INTERVAL = 16;
+  private long memoryBudget = 0;
+  private int lastMemoryCheck = 0;
+  private MemoryUsage lastMemoryUsage = null;
+  private volatile boolean overMemoryBudget = false;
+  private long historyBytes = 0;
+
   /**
    * Keeps track of an edge selected during algorithm execution.
    */
@@ -65,7 +130,7 @@ public class Graph {
    * handled; perhaps a graph can be another GraphElement with attributes
    * such as a list of nodes, etc.
    */
-  protected List<GraphState> states;
+  protected StateTimeline<GraphState> states;
 
   /**
    * @todo Never clear what this meant. A better name might be startNode,
@@ -98,9 +163,10 @@ public class Graph {
     graphWindow = dispatch.getGraphWindow();
     nodes = new NodeList();
     edges = new EdgeList();
-    states = new ArrayList<GraphState>();
+    states = new StateTimeline<GraphState>();
     try {
-      this.addState( new GraphState() );
+      this.addState( new GraphState(attributeKeys,
+                                    dispatch.getAlgorithmState()) );
     }
     catch ( Terminate t ) {     // should not happen
       t.printStackTrace();
@@ -108,26 +174,424 @@ public class Graph {
     banner = new MessageBanner(this);
   }
 
+  /**
+   * @return the session in which this graph was created; its elements and
+   * states take their algorithm state from there
+   */
+  public GraphDispatch getDispatch() {
+    return dispatch;
+  }
+
+  /**
+   * @return the registry of attribute names shared by this graph and its
+   * elements
+   */
+  public AttributeKeys getAttributeKeys() {
+    return attributeKeys;
+  }
+
+  /**
+   * @return the columns in which the nodes and edges of this graph mirror
+   * their latest attribute values
+   */
+  public AttributeColumns getAttributeColumns() {
+    return attributeColumns;
+  }
+
+  public Keyframes getKeyframes() {
+    return keyframes;
+  }
+
+  public ChangeIndex getChangeIndex() {
+    return changeIndex;
+  }
+
+  StateTimeline.Epoch getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * @return the lock to take when reading the graph on another thread than
+   * the algorithm's, e.g., to paint it
+   */
+  public Lock readLock() {
+    return lock.readLock();
+  }
+
+  /**
+   * @return the lock under which the graph and the histories of its
+   * elements are changed
+   */
+  public Lock writeLock() {
+    return lock.writeLock();
+  }
+
+  /**
+   * @return the first algorithm state after the given one in which the
+   * attribute with the given key changed for any node or edge, -1 if there
+   * is none (yet)
+   * @see GraphElement#nextChange(String, int)
+   */
+  public int nextChange(String key, int state) {
+    int next = -1;
+    for ( Node node : nodes ) next = earlier(next, node.nextChange(key, state));
+    for ( Edge edge : edges ) next = earlier(next, edge.nextChange(key, state));
+    return next;
+  }
+
+  /**
+   * @return the last algorithm state before the given one in which the
+   * attribute with the given key changed for any node or edge, -1 if there
+   * is none
+   */
+  public int previousChange(String key, int state) {
+    int previous = -1;
+    for ( Node node : nodes )
+      previous = Math.max(previous, node.previousChange(key, state));
+    for ( Edge edge : edges )
+      previous = Math.max(previous, edge.previousChange(key, state));
+    return previous;
+  }
+
+  /**
+   * @return the nodes, edges, graph attributes and message that changed
+   * between the two display states, in either order. Found from the state
+   * numbers recorded in the change index, without comparing any
+   * attributes, in time proportional to the number of changes plus
+   * logarithmic in the length of the animation.
+   */
+  public FrameDiff changesBetween(int from, int to) {
+    FrameDiff diff = new FrameDiff(from, to);
+    int low = Math.min(from, to);
+    int high = Math.max(from, to);
+    if ( low == high ) return diff;
+    for ( int row : changeIndex.changedRows(low, high) ) {
+      diff.add(changeIndex.elementOf(row));
+    }
+    GraphState before = states.atOrBefore(low);
+    GraphState after = states.atOrBefore(high);
+    if ( after != null && after != before ) {
+      after.getAttributes().collectKeysSince
+        (before == null ? null : before.getAttributes(),
+         diff.graphAttributeList());
+    }
+    return diff;
+  }
+
+  private static int earlier(int first, int second) {
+    if ( first < 0 ) return second;
+    if ( second < 0 ) return first;
+    return Math.min(first, second);
+  }
+
+  /**
+   * Takes a keyframe of all nodes and edges if one is due in the given
+   * algorithm state.
+   * @see Keyframes#captureIfDue
+   */
+  public void captureKeyframe(int state) {
+    lock.writeLock().lock();
+    try {
+      keyframes.captureIfDue(state, nodes, edges, banner);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Bounds the memory taken by the history of an animation: only element
+   * states that are in effect during the last <code>window</code>
+   * algorithm states stay in memory, older ones are spilled to a file in
+   * the given directory.
+   * @param window 0 to keep everything in memory
+   */
+  public void setHistoryWindow(int window, File directory) {
+    this.historyWindow = Math.max(window, 0);
+    this.historyDirectory = directory;
+    this.lastTrim = 0;
+  }
+
+  /**
+   * @return the file to which states have been spilled, null if none
+   */
+  public SpilledHistory getSpilledHistory() {
+    return history;
+  }
+
+  /**
+   * Spills element states that have fallen out of the history window if
+   * the window has moved far enough since the last time. Like
+   * captureKeyframe(), this must be called while the algorithm is paused.
+   */
+  public void trimHistory(int state) {
+    if ( historyWindow <= 0
+         || state - lastTrim < Math.max(1, historyWindow / 2) ) return;
+    lastTrim = state;
+    lock.writeLock().lock();
+    try {
+      if ( history == null ) {
+        history = new SpilledHistory(attributeKeys, historyDirectory);
+      }
+      history.dropPagedIn();
+      int limit = state - historyWindow;
+      for ( Node node : nodes ) node.spillBefore(limit, history);
+      for ( Edge edge : edges ) edge.spillBefore(limit, history);
+      banner.spillBefore(limit, history);
+    }
+    catch ( IOException e ) {
+      // keep going with everything in memory
+      new GalantException("unable to spill history to "
+                          + historyDirectory, e).report();
+      historyWindow = 0;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the memory taken by the history of the animation, estimated
+   * by going through the states of all elements
+   */
+  public MemoryUsage getMemoryUsage() {
+    MemoryUsage usage = new MemoryUsage();
+    for ( Node node : nodes ) node.addMemoryUsage(usage.getNodes());
+    for ( Edge edge : edges ) edge.addMemoryUsage(usage.getEdges());
+    banner.addMemoryUsage(usage.getMessages());
+    MemoryUsage.Part part = usage.getGraph();
+    int size = states.size();
+    part.addElement(MemoryUsage.ARRAY_HEADER
+                    + (long) MemoryUsage.REFERENCE * size);
+    for ( int i = 0; i < size; i++ ) {
+      GraphState state = states.get(i);
+      part.addState(state.getMemoryUsage(),
+                    state.getAttributes().entryCount());
+    }
+    usage.addIndexes(keyframes.getMemoryOverhead()
+                     + changeIndex.getMemoryOverhead()
+                     + attributeColumns.getMemoryOverhead());
+    return usage;
+  }
+
+  /**
+   * Sets the number of bytes that the history of an animation may take
+   * before checkMemoryBudget() flags it as over budget.
+   * @param bytes 0 for no budget
+   */
+  public void setMemoryBudget(long bytes) {
+    this.memoryBudget = Math.max(bytes, 0);
+    this.lastMemoryCheck = 0;
+    this.lastMemoryUsage = null;
+    this.overMemoryBudget = false;
+    this.historyBytes = 0;
+  }
+
+  /**
+   * Measures the memory taken by the history the first time and then if
+   * the algorithm has moved far enough since the last time -- a quarter
+   * of the states so far, so that measuring takes time linear in the
+   * length of the animation overall -- for the status line of the graph
+   * window to show. The measurement also corrects the running estimate
+   * that addedState() checks against the budget. Like trimHistory(), this
+   * must be called while the algorithm is paused.
+   */
+  public void checkMemoryBudget(int state) {
+    if ( lastMemoryUsage != null
+         && state - lastMemoryCheck
+         < Math.max(MEMORY_CHECK_INTERVAL, lastMemoryCheck / 4) ) return;
+    lastMemoryCheck = state;
+    MemoryUsage usage = getMemoryUsage();
+    lock.writeLock().lock();
+    try {
+      lastMemoryUsage = usage;
+      historyBytes = usage.getTotalBytes();
+      checkHistoryBytes();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the given number of bytes, the size of a state that was just
+   * appended to the history of the graph or one of its elements, to the
+   * running estimate and checks it against the budget, so that an
+   * algorithm that runs away within a single step is caught as well.
+   * Called under the write lock.
+   */
+  void addedState(long bytes) {
+    historyBytes += bytes;
+    checkHistoryBytes();
+  }
+
+  /**
+   * Flags the history as over budget the first time the estimate exceeds
+   * it, measuring it then so that the status line has a report to show.
+   */
+  private void checkHistoryBytes() {
+    if ( memoryBudget <= 0 || overMemoryBudget
+         || historyBytes <= memoryBudget ) return;
+    overMemoryBudget = true;
+    lastMemoryUsage = getMemoryUsage();
+  }
+
+  /** @return the budget set by setMemoryBudget(), 0 if there is none */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * @return the memory usage found by the last checkMemoryBudget(), null
+   * if it has not measured anything yet
+   */
+  public MemoryUsage getLastMemoryUsage() {
+    return lastMemoryUsage;
+  }
+
+  public boolean isOverMemoryBudget() {
+    return overMemoryBudget;
+  }
+
+  /**
+   * Compacts the history of a finished animation. First, states of the
+   * graph and its elements that are identical to the ones before them are
+   * dropped. Then the algorithm states in which nothing changed any more
+   * are removed and later states are renumbered to close the gaps; state
+   * 1, the first one displayed, is always kept. None of this changes what
+   * is displayed, only the number of steps it takes to get there. Must not
+   * be called while the algorithm can still make changes.
+   * @param lastState the last algorithm state
+   * @return the new number of each old state 0..lastState
+   */
+  public int[] compactHistory(int lastState) {
+    lock.writeLock().lock();
+    try {
+      return compact(lastState);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private int[] compact(int lastState) {
+    boolean[] drop = new boolean[states.size()];
+    AttributeList previous = states.get(0).getAttributes();
+    for ( int i = 1; i < states.size(); i++ ) {
+      AttributeList current = states.get(i).getAttributes();
+      if ( current.sameAs(previous) ) drop[i] = true;
+      else previous = current;
+    }
+    states.removeAll(drop);
+    for ( Node node : nodes ) node.dropRedundantStates();
+    for ( Edge edge : edges ) edge.dropRedundantStates();
+    banner.dropRedundantStates();
+
+    boolean[] changed = new boolean[lastState + 1];
+    changed[0] = true;
+    if ( lastState >= 1 ) changed[1] = true;
+    for ( GraphState state : states ) {
+      int number = state.getState();
+      if ( number >= 0 && number <= lastState ) changed[number] = true;
+    }
+    for ( Node node : nodes ) node.markStates(changed);
+    for ( Edge edge : edges ) edge.markStates(changed);
+    banner.markStates(changed);
+    int[] map = new int[lastState + 1];
+    int next = -1;
+    for ( int state = 0; state <= lastState; state++ ) {
+      if ( changed[state] ) next++;
+      map[state] = next;
+    }
+
+    for ( GraphState state : states ) state.renumber(map);
+    changeIndex.renumber(map);
+    for ( Node node : nodes ) node.renumberStates(map);
+    for ( Edge edge : edges ) edge.renumberStates(map);
+    banner.renumberStates(map);
+    lastTrim = map[Math.min(lastTrim, lastState)];
+    rebuildIndexes(map[lastState]);
+    return map;
+  }
+
+  /**
+   * Rebuilds the columns and keyframes, which refer to state numbers and
+   * timeline indices, after the histories of the elements were changed
+   * wholesale, e.g., by compactHistory() or when an animation trace was
+   * loaded.
+   * @param lastState the last algorithm state
+   */
+  void rebuildIndexes(int lastState) {
+    lock.writeLock().lock();
+    try {
+      rebuild(lastState);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void rebuild(int lastState) {
+    attributeColumns.clear();
+    for ( Node node : nodes ) node.restoreColumns();
+    for ( Edge edge : edges ) edge.restoreColumns();
+    banner.restoreColumns();
+    int interval = keyframes.getInterval();
+    keyframes.clear();
+    if ( interval > 0 ) {
+      for ( int state = 0; state <= lastState; state += interval ) {
+        captureKeyframe(state);
+      }
+    }
+  }
+
+  /**
+   * @return all nodes and edges, including the deleted ones and the ones
+   * that do not exist yet in the current display state
+   */
+  NodeList allNodes() {
+    return nodes;
+  }
+  EdgeList allEdges() {
+    return edges;
+  }
+
+  /**
+   * @return the banner that holds the messages of an animation
+   */
+  MessageBanner getBanner() {
+    return banner;
+  }
+
   /**
    * Resets the graph to its original state at the end of an
-   * animation.
+   * animation. Takes time proportional to the number of nodes and edges,
+   * one lookup each, not to the size of the history: the timelines of the
+   * remaining elements drop the states of the animation when next used and
+   * the columns are restored element by element as they change, see
+   * StateTimeline and AttributeColumns. Only a history that was spilled to
+   * disk is reset right away, since its file is deleted.
    */
   public void reset() {
-    int initialStateNumber = GraphDispatch.getInstance().getAlgorithmState();
+    lock.writeLock().lock();
+    try {
+      resetHistory();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void resetHistory() {
+    int initialStateNumber = dispatch.getAlgorithmState();
 
     // first, reset any graph visibility attributes
     // not currently used
-    ArrayList<GraphState> initialStates
-      = new ArrayList<GraphState>();
-    for ( GraphState state : this.states ) {
-      if ( state.getState() > 0 ) break;
-      initialStates.add(state);
-    }
-    this.states = initialStates;
+    this.states.truncateAfter(0);
 
-    // get rid of any nodes and edges created by the algorithm; better to
-    // do this by gathering the ones that should not be removed and then
-    // resetting nodes/edges to be the gathered ones
+    // get rid of any nodes and edges created by the algorithm; these need
+    // not be at the end of the lists, since setNodes(), setEdges() and the
+    // remove methods may have changed them, so every element is checked
     NodeList validNodes = new NodeList();
     for ( Node node : this.nodes ) {
       if ( node.inScope(initialStateNumber) ) validNodes.add(node);
@@ -140,12 +604,21 @@ public class Graph {
     this.edges = validEdges;
 
     // then reset the attributes of all nodes and edges
-    for ( Node node : this.nodes ) {
-      node.reset();
-    }
-    for ( Edge edge : this.edges ) {
-      edge.reset();
+    epoch.advance();
+    if ( history != null ) {
+      for ( Node node : this.nodes ) {
+        node.reset();
+      }
+      for ( Edge edge : this.edges ) {
+        edge.reset();
+      }
+      history.close();
+      history = null;
     }
+    keyframes.clear();
+    changeIndex.clear();
+    attributeColumns.clear();
+    setMemoryBudget(memoryBudget);
     // then reinitialize the message banner
     banner = new MessageBanner(this);
   }
@@ -153,7 +626,8 @@ public class Graph {
   /**
    * @return a new state for this graph; the new state will be identical
    * to the current (latest one) except that it will be tagged with the
-   * current algorithm state.
+   * current algorithm state. The latest state itself is returned if it
+   * already has the current algorithm state.
    *
    * @todo there is no reason to create new states when parsing and the
    * only reason to do it when editing is for a possible "undo" mechanism,
@@ -162,8 +636,11 @@ public class Graph {
   private GraphState newState() throws Terminate {
     dispatch.startStepIfRunning();
     GraphState latest = latestState();
+    if ( latest.getState() == dispatch.getAlgorithmState() ) {
+      return latest;
+    }
     GraphState state
-      = new GraphState(latest);
+      = new GraphState(latest, dispatch.getAlgorithmState());
     return state;
   }
 
@@ -172,11 +649,7 @@ public class Graph {
    * retrieving information about any attribute.
    */
   public GraphState latestState() {
-    GraphState state = null;
-    if ( states.size() != 0 ) {
-      state = states.get(states.size() - 1);
-    }
-    return state;
+    return states.latest();
   }
 
   /**
@@ -189,19 +662,10 @@ public class Graph {
    * @return the latest instance of GraphState that was created
    * before the given time stamp, or null if the element did not exist
    * before the time stamp.
+   * @see StateTimeline#atOrBefore(int)
    */
   public GraphState getLatestValidState(int stateNumber) {
-    GraphState toReturn = null;
-    int stateIndex = states.size() - 1;
-    while ( stateIndex >= 0 ) {
-      GraphState state = states.get(stateIndex);
-      if ( state.getState() <= stateNumber ) {
-        toReturn = state;
-        break;
-      }
-      stateIndex--;
-    }
-    return toReturn;
+    return states.atOrBefore(stateNumber);
   }
 
   /**
@@ -216,18 +680,16 @@ public class Graph {
    * @invariant states are always sorted by state number.
    */
   private void addState(GraphState stateToAdd) throws Terminate {
-    int stateNumber = stateToAdd.getState();
-    boolean found = false;
-    for ( int i = states.size() - 1; i >= stateNumber; i-- ) {
-      GraphState state = states.get(i);
-      if ( state.getState() == stateNumber ) {
-        states.set(i, stateToAdd);
-        found = true;
-        break;
-      }
+    boolean appended;
+    lock.writeLock().lock();
+    try {
+      appended = states.add(stateToAdd);
+      if ( appended ) addedState(stateToAdd.getMemoryUsage());
+    }
+    finally {
+      lock.writeLock().unlock();
     }
-    if ( ! found ) {
-      states.add(stateToAdd);
+    if ( appended ) {
       dispatch.pauseExecutionIfRunning();
     }
   }
@@ -251,6 +713,7 @@ public class Graph {
    */
   public Edge getEdge(String prompt) throws Terminate {
     dispatch.initStepIfRunning();
+    dispatch.beginQueryIfRunning();
     EdgeSelectionDialog dialog = new EdgeSelectionDialog(prompt);
     dispatch.pauseExecutionIfRunning();
     dialog = null;              // to keep window from lingering when
@@ -268,6 +731,7 @@ public class Graph {
   public Edge getEdge(String prompt, EdgeSet restrictedSet, String errorMessage)
   throws Terminate {
     dispatch.initStepIfRunning();
+    dispatch.beginQueryIfRunning();
     EdgeSelectionDialog dialog
       = new EdgeSelectionDialog(prompt, restrictedSet, errorMessage);
     dispatch.pauseExecutionIfRunning();
@@ -290,6 +754,7 @@ public class Graph {
    */
   public Node getNode(String prompt) throws Terminate {
     dispatch.initStepIfRunning();
+    dispatch.beginQueryIfRunning();
     NodeSelectionDialog dialog = new NodeSelectionDialog(prompt);
     dispatch.pauseExecutionIfRunning();
     dialog = null;              // to keep window from lingering when
@@ -308,6 +773,7 @@ public class Graph {
   public Node getNode(String prompt, NodeSet restrictedSet, String errorMessage)
   throws Terminate {
     dispatch.initStepIfRunning();
+    dispatch.beginQueryIfRunning();
     NodeSelectionDialog dialog
       = new NodeSelectionDialog(prompt, restrictedSet, errorMessage);
     dispatch.pauseExecutionIfRunning();
@@ -319,14 +785,28 @@ public class Graph {
    * state information appropriately.
    */
   public void remove(String key) throws Terminate {
+    int slot = attributeKeys.lookup(key);
+    if ( slot < 0 || ! latestState().getAttributes().contains(slot) ) return;
     GraphState newState = newState();
     newState.remove(key);
     addState(newState);
   }
 
+  /**
+   * As with graph elements, writes that would not change the latest value
+   * of an attribute are skipped.
+   * @see GraphElement#set(int, Boolean)
+   */
+
   /************** Boolean attributes ***************/
 
   public boolean set(String key, Boolean value) throws Terminate {
+    int slot = attributeKeys.lookup(key);
+    AttributeList latest = latestState().getAttributes();
+    if ( value == null && ( slot < 0 || ! latest.contains(slot) ) )
+      return false;
+    if ( value != null && slot >= 0 && latest.holdsBoolean(slot, value) )
+      return true;
     GraphState newState = newState();
     boolean found = newState.set(key, value);
     addState(newState);
@@ -370,6 +850,10 @@ public class Graph {
 
   /************** String attributes ***************/
   public boolean set(String key, String value) throws Terminate {
+    int slot = attributeKeys.lookup(key);
+    if ( value != null && slot >= 0
+         && latestState().getAttributes().holdsString(slot, value) )
+      return true;
     GraphState newState = newState();
     boolean found = newState.set(key, value);
     addState(newState);
@@ -420,29 +904,29 @@ public class Graph {
     graphWindow.showEdgeWeights(show);
   }
 
+  /**
+   * @return an empty batch of changes to the elements of this graph that
+   * will be made as a single step
+   */
+  public GraphBatch batch() {
+    return new GraphBatch(this);
+  }
+
   /**
    * Individually hide Node/Edge labels or weights; has no effect if they
    * are already hidden via, e.g., hideNodeLabels()
    */
   public void hideAllNodeLabels() throws Terminate {
-    for ( Node node : nodes ) {
-      node.hideLabel();
-    }
+    setAllNodes(AttributeKeys.HIDDEN_LABEL, true);
   }
   public void hideAllEdgeLabels() throws Terminate {
-    for ( Edge edge : edges ) {
-      edge.hideLabel();
-    }
+    setAllEdges(AttributeKeys.HIDDEN_LABEL, true);
   }
   public void hideAllNodeWeights() throws Terminate {
-    for ( Node node : nodes ) {
-      node.hideWeight();
-    }
+    setAllNodes(AttributeKeys.HIDDEN_WEIGHT, true);
   }
   public void hideAllEdgeWeights() throws Terminate {
-    for ( Edge edge : edges ) {
-      edge.hideWeight();
-    }
+    setAllEdges(AttributeKeys.HIDDEN_WEIGHT, true);
   }
 
   /**
@@ -450,24 +934,40 @@ public class Graph {
    * if they are already hidden via, e.g., hideNodeLabels()
    */
   public void showAllNodeLabels() throws Terminate {
-    for ( Node node : nodes ) {
-      node.showLabel();
-    }
+    removeAllNodes(AttributeKeys.HIDDEN_LABEL);
   }
   public void showAllEdgeLabels() throws Terminate {
-    for ( Edge edge : edges ) {
-      edge.showLabel();
-    }
+    removeAllEdges(AttributeKeys.HIDDEN_LABEL);
   }
   public void showAllNodeWeights() throws Terminate {
-    for ( Node node : nodes ) {
-      node.showWeight();
-    }
+    removeAllNodes(AttributeKeys.HIDDEN_WEIGHT);
   }
   public void showAllEdgeWeights() throws Terminate {
-    for ( Edge edge : edges ) {
-      edge.showWeight();
-    }
+    removeAllEdges(AttributeKeys.HIDDEN_WEIGHT);
+  }
+
+  /**
+   * Set or remove an attribute of all nodes or all edges in one batch
+   */
+  private void setAllNodes(int slot, boolean value) throws Terminate {
+    GraphBatch batch = batch();
+    for ( Node node : nodes ) batch.setBoolean(node, slot, value);
+    batch.commit();
+  }
+  private void setAllEdges(int slot, boolean value) throws Terminate {
+    GraphBatch batch = batch();
+    for ( Edge edge : edges ) batch.setBoolean(edge, slot, value);
+    batch.commit();
+  }
+  private void removeAllNodes(int slot) throws Terminate {
+    GraphBatch batch = batch();
+    for ( Node node : nodes ) batch.remove(node, slot);
+    batch.commit();
+  }
+  private void removeAllEdges(int slot) throws Terminate {
+    GraphBatch batch = batch();
+    for ( Edge edge : edges ) batch.remove(edge, slot);
+    batch.commit();
   }
 
   /**
@@ -475,8 +975,11 @@ public class Graph {
    */
   public NodeList visibleNodes() {
     NodeList nodeList = new NodeList();
+    AttributeColumns.Column hidden
+      = attributeColumns.lookup(AttributeKeys.HIDDEN);
     for ( Node node : nodes ) {
-      if ( ! node.isHidden() ) {
+      if ( attributeColumns.covers(node.row)
+           ? hidden == null || ! hidden.isTrue(node.row) : ! node.isHidden() ) {
         nodeList.add(node);
       }
     }
@@ -488,8 +991,11 @@ public class Graph {
    */
   public EdgeList visibleEdges() {
     EdgeList edgeList = new EdgeList();
+    AttributeColumns.Column hidden
+      = attributeColumns.lookup(AttributeKeys.HIDDEN);
     for ( Edge edge : edges ) {
-      if ( ! edge.isHidden() ) {
+      if ( attributeColumns.covers(edge.row)
+           ? hidden == null || ! hidden.isTrue(edge.row) : ! edge.isHidden() ) {
         edgeList.add(edge);
       }
     }
@@ -500,49 +1006,45 @@ public class Graph {
    * Shows all Nodes that have been hidden individually
    */
   public void showNodes() throws Terminate {
-    for ( Node node : nodes ) {
-      node.show();
-    }
+    removeAllNodes(AttributeKeys.HIDDEN);
   }
 
   /**
    * Shows all edges that have been hidden individually
    */
   public void showEdges() throws Terminate {
-    for ( Edge edge : edges ) {
-      edge.show();
-    }
+    removeAllEdges(AttributeKeys.HIDDEN);
   }
 
   /**
    * The following are used to do blanket clearing of attributes
    */
   public void clearNodeMarks() throws Terminate {
-    for ( Node node : nodes ) node.unmark();
+    removeAllNodes(AttributeKeys.MARKED);
   }
   public void clearNodeHighlighting() throws Terminate {
-    for ( Node node : nodes ) node.unHighlight();
+    removeAllNodes(AttributeKeys.HIGHLIGHTED);
   }
   public void clearEdgeHighlighting() throws Terminate {
-    for ( Edge edge : edges ) edge.unHighlight();
+    removeAllEdges(AttributeKeys.HIGHLIGHTED);
   }
   public void clearNodeLabels() throws Terminate {
-    for ( Node node : nodes ) node.clearLabel();
+    removeAllNodes(AttributeKeys.LABEL);
   }
   public void clearEdgeLabels() throws Terminate {
-    for ( Edge edge : edges ) edge.clearLabel();
+    removeAllEdges(AttributeKeys.LABEL);
   }
   public void clearNodeWeights() throws Terminate {
-    for ( Node node : nodes ) node.clearWeight();
+    removeAllNodes(AttributeKeys.WEIGHT);
   }
   public void clearEdgeWeights() throws Terminate {
-    for ( Edge edge : edges ) edge.clearWeight();
+    removeAllEdges(AttributeKeys.WEIGHT);
   }
   public void clearAllNode(String attribute) throws Terminate {
-    for ( Node node : nodes ) node.clear(attribute);
+    removeAllNodes(attributeKeys.slot(attribute));
   }
   public void clearAllEdge(String attribute) throws Terminate {
-    for ( Edge edge : edges ) edge.clear(attribute);
+    removeAllEdges(attributeKeys.slot(attribute));
   }
 
   /** Graph methods that are independent of state */
@@ -700,7 +1202,13 @@ public class Graph {
    * @param nodes new set of nodes to be added to the graph
    */
   public void setNodes(Collection<Node> nodes) {
-    this.nodes = new NodeList(nodes);
+    lock.writeLock().lock();
+    try {
+      this.nodes = new NodeList(nodes);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
   }
 
   /**
@@ -789,7 +1297,13 @@ public class Graph {
    * @param edges new set of edges to be added to the graph
    */
   public void setEdges(Collection<Edge> edges) {
-    this.edges = new EdgeList(edges);
+    lock.writeLock().lock();
+    try {
+      this.edges = new EdgeList(edges);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
   }
 
   /**
@@ -959,8 +1473,14 @@ public class Graph {
     LogHelper.enterMethod(getClass(), "addInitialNode(), x = " + x + ", y = " + y);
     Integer newId = nextNodeId();
     Node n = new Node(this, newId, x, y);
-    nodes.add(n);
-    nodeById.put(newId, n);
+    lock.writeLock().lock();
+    try {
+      nodes.add(n);
+      nodeById.put(newId, n);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
 
     if ( this.rootNode == null ) {
       this.rootNode = n;
@@ -987,8 +1507,14 @@ public class Graph {
     dispatch.startStepIfRunning();
     Integer newId = nextNodeId();
     Node n = new Node(this, newId, x, y);
-    nodes.add(n);
-    nodeById.put(newId, n);
+    lock.writeLock().lock();
+    try {
+      nodes.add(n);
+      nodeById.put(newId, n);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
 
     // probably not needed but couldn't hurt; maybe the algorithm
     // constructs a tree and then traverses it
@@ -1019,8 +1545,14 @@ public class Graph {
       layerInformation.addNode(n);
     }
 
-    nodes.add(n);
-    nodeById.put(n.getId(), n);
+    lock.writeLock().lock();
+    try {
+      nodes.add(n);
+      nodeById.put(n.getId(), n);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
 
     if ( this.rootNode == null ) {
       this.rootNode = n;
@@ -1039,9 +1571,15 @@ public class Graph {
     // during parsing we need to know if the edge had an explicit id in
     // its GraphML representation
     if ( edge.hasExplicitId() ) this.hasExplicitEdgeIds = true;
-    edge.getSourceNode().addEdge(edge);
-    edge.getTargetNode().addEdge(edge);
-    edges.add(edge);
+    lock.writeLock().lock();
+    try {
+      edge.getSourceNode().addEdge(edge);
+      edge.getTargetNode().addEdge(edge);
+      edges.add(edge);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
     LogHelper.exitMethod(getClass(), "addEdge, hasExplicitEdgeIds = "
                          + hasExplicitEdgeIds);
     LogHelper.restoreState();
@@ -1101,12 +1639,18 @@ public class Graph {
    */
   public void removeEdge(Edge e) {
     LogHelper.enterMethod(getClass(), "removeEdge " + e);
-    edges.remove(e);
+    lock.writeLock().lock();
+    try {
+      edges.remove(e);
 
-    Node source = e.getSourceNode();
-    source.getIncidentEdges().remove(e);
-    Node target = e.getTargetNode();
-    target.getIncidentEdges().remove(e);
+      Node source = e.getSourceNode();
+      source.getIncidentEdges().remove(e);
+      Node target = e.getTargetNode();
+      target.getIncidentEdges().remove(e);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
     LogHelper.exitMethod(getClass(), "removeEdge");
   }
 
@@ -1133,7 +1677,13 @@ public class Graph {
       removeEdge(e);
     }
 
-    nodes.remove(n);
+    lock.writeLock().lock();
+    try {
+      nodes.remove(n);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
     LogHelper.exitMethod(getClass(), "removeNode");
   }
 
@@ -1336,4 +1886,4 @@ public class Graph {
   }
 }
 
-// [Last modified: 2017 04 18 at 19:59:20 GMT]
+// [Last modified: 2026 10 18 at 03:46:05 GMT]
@@ -0,0 +1,224 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import edu.ncsu.csc.Galant.GraphDispatch;
+import edu.ncsu.csc.Galant.algorithm.Terminate;
+
+/**
+ * A batch of attribute changes to many nodes and edges that is made as a
+ * single step of an animation. The changes are collected first, e.g.,
+ *
+ *   GraphBatch batch = graph.batch();
+ *   for ( Node node : nodes ) batch.remove(node, "marked");
+ *   batch.commit();
+ *
+ * and commit() then starts one step, gives each element that actually
+ * changes exactly one new state -- applying all of its changes, in the
+ * order in which they were made -- and pauses the algorithm once at the
+ * end. Setting the attributes one at a time does the same work per
+ * element and synchronizes with the display for each of them.
+ *
+ * Changes to attributes that already have the given values are skipped,
+ * as they are by the setters of GraphElement; a null value removes the
+ * attribute.
+ */
+public class GraphBatch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Kinds of changes
+     */
+    private static final byte REMOVE = 0;
+    private static final byte INTEGER = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+
+    private final GraphDispatch dispatch;
+    private final AttributeKeys keys;
+
+    /**
+     * The changes, in the order in which they were made: next[i] is the
+     * index of the next change of the same element, -1 if none
+     */
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private long[] bits = new long[INITIAL_CAPACITY];
+    private String[] strings = new String[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * The elements in the order of their first change, with the indices of
+     * their first and last changes
+     */
+    private ArrayList<GraphElement> elements = new ArrayList<GraphElement>();
+    private IdentityHashMap<GraphElement, int[]> firstAndLast
+        = new IdentityHashMap<GraphElement, int[]>();
+
+    GraphBatch(Graph graph) {
+        this.dispatch = graph.getDispatch();
+        this.keys = graph.getAttributeKeys();
+    }
+
+    private void add(GraphElement element, int slot, byte kind, long value,
+                     String string) {
+        if ( size == slots.length ) {
+            int capacity = 2 * size;
+            slots = Arrays.copyOf(slots, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        slots[size] = slot;
+        kinds[size] = kind;
+        bits[size] = value;
+        strings[size] = string;
+        next[size] = -1;
+        int[] ends = firstAndLast.get(element);
+        if ( ends == null ) {
+            elements.add(element);
+            firstAndLast.put(element, new int[] { size, size });
+        }
+        else {
+            next[ends[1]] = size;
+            ends[1] = size;
+        }
+        size++;
+    }
+
+    /**
+     * Setters with the same meaning as the ones of GraphElement
+     */
+    public GraphBatch set(GraphElement element, String key, Integer value) {
+        return set(element, keys.slot(key), value);
+    }
+    public GraphBatch set(GraphElement element, String key, Double value) {
+        return set(element, keys.slot(key), value);
+    }
+    public GraphBatch set(GraphElement element, String key, Boolean value) {
+        return set(element, keys.slot(key), value);
+    }
+    public GraphBatch set(GraphElement element, String key, String value) {
+        return set(element, keys.slot(key), value);
+    }
+    public GraphBatch setInteger(GraphElement element, String key, int value) {
+        return setInteger(element, keys.slot(key), value);
+    }
+    public GraphBatch setDouble(GraphElement element, String key,
+                                double value) {
+        return setDouble(element, keys.slot(key), value);
+    }
+    public GraphBatch setBoolean(GraphElement element, String key,
+                                 boolean value) {
+        return setBoolean(element, keys.slot(key), value);
+    }
+    public GraphBatch remove(GraphElement element, String key) {
+        return remove(element, keys.slot(key));
+    }
+
+    public GraphBatch set(GraphElement element, int slot, Integer value) {
+        if ( value == null ) return remove(element, slot);
+        return setInteger(element, slot, value);
+    }
+    public GraphBatch set(GraphElement element, int slot, Double value) {
+        if ( value == null ) return remove(element, slot);
+        return setDouble(element, slot, value);
+    }
+    public GraphBatch set(GraphElement element, int slot, Boolean value) {
+        if ( value == null ) return remove(element, slot);
+        return setBoolean(element, slot, value);
+    }
+    public GraphBatch set(GraphElement element, int slot, String value) {
+        if ( value == null ) return remove(element, slot);
+        add(element, slot, STRING, 0, value);
+        return this;
+    }
+    public GraphBatch setInteger(GraphElement element, int slot, int value) {
+        add(element, slot, INTEGER, value, null);
+        return this;
+    }
+    public GraphBatch setDouble(GraphElement element, int slot, double value) {
+        add(element, slot, DOUBLE, Double.doubleToRawLongBits(value), null);
+        return this;
+    }
+    public GraphBatch setBoolean(GraphElement element, int slot,
+                                 boolean value) {
+        add(element, slot, BOOLEAN, value ? 1 : 0, null);
+        return this;
+    }
+    public GraphBatch remove(GraphElement element, int slot) {
+        add(element, slot, REMOVE, 0, null);
+        return this;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Makes all changes collected so far as one step and empties the batch.
+     */
+    public void commit() throws Terminate {
+        if ( size == 0 ) return;
+        stepStarted = false;
+        boolean appended = false;
+        try {
+            for ( GraphElement element : elements ) {
+                if ( element.apply(this, firstAndLast.get(element)[0]) ) {
+                    appended = true;
+                }
+            }
+        }
+        finally {
+            clear();
+        }
+        if ( appended ) dispatch.pauseExecutionIfRunning();
+    }
+
+    private boolean stepStarted = false;
+
+    /**
+     * Called by GraphElement.apply() before the first change that is not
+     * skipped; starts the step of the batch, as the setters of GraphElement
+     * do for theirs.
+     */
+    void startStep() throws Terminate {
+        if ( stepStarted ) return;
+        stepStarted = true;
+        dispatch.startStepIfRunning();
+    }
+
+    /**
+     * Discards all changes collected so far.
+     */
+    public void clear() {
+        Arrays.fill(strings, 0, size, null);
+        size = 0;
+        elements.clear();
+        firstAndLast.clear();
+    }
+
+    /**
+     * Accessors for GraphElement.apply(), which walks the changes of an
+     * element starting from the first
+     */
+    int next(int change) { return next[change]; }
+    int slot(int change) { return slots[change]; }
+    boolean isRemove(int change) { return kinds[change] == REMOVE; }
+    boolean isInteger(int change) { return kinds[change] == INTEGER; }
+    boolean isDouble(int change) { return kinds[change] == DOUBLE; }
+    boolean isBoolean(int change) { return kinds[change] == BOOLEAN; }
+    int intValue(int change) { return (int) bits[change]; }
+    double doubleValue(int change) {
+        return Double.longBitsToDouble(bits[change]);
+    }
+    boolean booleanValue(int change) { return bits[change] != 0; }
+    String stringValue(int change) { return strings[change]; }
+}
+
+//  [Last modified: 2026 10 17 at 20:14:37 GMT]
@@ -1,5 +1,6 @@
 package edu.ncsu.csc.Galant.graph.component;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -45,11 +46,36 @@ public class GraphElement implements Comparable<GraphElement> {
 
     protected GraphDispatch dispatch;
 
+    /**
+     * The registry of attribute names of the graph
+     */
+    protected AttributeKeys keys;
+
     /**
      * The list of states that this element has been in up to this point --
      * essentially the list of all changes.
      */
-	protected List<GraphElementState> states;
+	protected StateTimeline<GraphElementState> states;
+
+    /**
+     * The columns of the graph, which mirror the latest attribute values of
+     * this element in the given row; null if there is no graph.
+     */
+    protected AttributeColumns columns;
+    protected int row = -1;
+
+    /**
+     * The index of the states in which the attributes of the graph's
+     * elements changed; null if there is no graph.
+     */
+    protected ChangeIndex changes;
+
+    /**
+     * The number of states at the beginning of the timeline whose attributes
+     * have been spilled to disk
+     * @see SpilledHistory
+     */
+    private int spilled = 0;
 
     /**
      * Constructor to be used during parsing; all additional information is
@@ -61,36 +87,256 @@ public class GraphElement implements Comparable<GraphElement> {
      * algorithm
      */
     public GraphElement(Graph graph) {
-        this.dispatch = GraphDispatch.getInstance();
-        this.states = new ArrayList<GraphElementState>();
+        this.dispatch = ( graph == null ) ? GraphDispatch.getInstance()
+            : graph.getDispatch();
+        this.states = new StateTimeline<GraphElementState>();
         this.graph = graph;
+        this.keys = ( graph == null ) ? new AttributeKeys()
+            : graph.getAttributeKeys();
         try {
-            this.addState(new GraphElementState());
+            this.addState(new GraphElementState(keys,
+                                                dispatch.getAlgorithmState()));
         }
         catch ( Terminate t ) { // should not happen
             t.printStackTrace();
         }
+        if ( graph != null ) {
+            lockGraph();
+            try {
+                states.follow(graph.getEpoch());
+                this.columns = graph.getAttributeColumns();
+                this.row = columns.addRow(states.get(0).getState());
+                this.changes = graph.getChangeIndex();
+                changes.register(row, this, states.get(0).getState());
+            }
+            finally {
+                unlockGraph();
+            }
+        }
     }
 
     /**
-     * Resets this element to its original state at the end of an animation.
-     * @param graphState the initial state of the graph containing this element
+     * Changes to the history of an element are made under the write lock
+     * of its graph, see Graph.readLock(); the lock is released before the
+     * algorithm pauses.
+     */
+    private void lockGraph() {
+        if ( graph != null ) graph.writeLock().lock();
+    }
+    private void unlockGraph() {
+        if ( graph != null ) graph.writeLock().unlock();
+    }
+
+    /**
+     * Resets this element to its original state at the end of an animation
+     * right away; Graph.reset() only does this when states were spilled,
+     * otherwise the timeline catches up with the reset when next used.
      */
     protected void reset() {
-        ArrayList<GraphElementState> initialStates
-            = new ArrayList<GraphElementState>();
-        for ( GraphElementState state : this.states ) {
-            if ( state.getState() > 0 ) break;
-            initialStates.add(state);
+        this.states.truncateAfter(0);
+        // the remaining states are needed after the history file is gone
+        for ( GraphElementState state : states ) state.getAttributes();
+        this.spilled = 0;
+    }
+
+    /**
+     * Spills the attributes of all states that were superseded before the
+     * given state to the history file. The state in effect at that time
+     * and later ones stay in memory; the former is made into a full
+     * snapshot so that nothing refers to the spilled states.
+     */
+    void spillBefore(int stateNumber, SpilledHistory history)
+        throws IOException {
+        int keep = states.indexAtOrBefore(stateNumber);
+        if ( keep <= spilled ) return;
+        states.get(keep).getAttributes().rebase();
+        for ( int i = spilled; i < keep; i++ ) {
+            history.spill(states.get(i));
+        }
+        spilled = keep;
+    }
+
+    /**
+     * Drops the states whose attributes are the same as those of the state
+     * before them, e.g., when a step undid its own changes; such states
+     * make no difference in any display state. The first state, which marks
+     * the creation of the element, and the spilled ones are left alone.
+     * @return the number of states dropped
+     */
+    int dropRedundantStates() {
+        boolean[] drop = new boolean[states.size()];
+        AttributeList previous = states.get(spilled).getAttributes();
+        for ( int i = spilled + 1; i < states.size(); i++ ) {
+            AttributeList current = states.get(i).getAttributes();
+            if ( current.sameAs(previous) ) {
+                drop[i] = true;
+                if ( changes != null )
+                    changes.forget(row, states.get(i).getState());
+            }
+            else previous = current;
+        }
+        return states.removeAll(drop);
+    }
+
+    /**
+     * Adds this element, its states and the attributes they hold in memory
+     * to the given part of a memory usage report.
+     */
+    void addMemoryUsage(MemoryUsage.Part part) {
+        int size = states.size();
+        part.addElement(MemoryUsage.ARRAY_HEADER
+                        + (long) MemoryUsage.REFERENCE * size);
+        for ( int i = 0; i < size; i++ ) {
+            GraphElementState state = states.get(i);
+            part.addState(state.getMemoryUsage(), state.attributeCount());
         }
-        this.states = initialStates;
+    }
+
+    /**
+     * Marks the numbers of the algorithm states in which this element
+     * changed.
+     */
+    void markStates(boolean[] changed) {
+        for ( GraphElementState state : states ) {
+            int number = state.getState();
+            if ( number >= 0 && number < changed.length ) changed[number] = true;
+        }
+    }
+
+    /**
+     * @see Graph#compactHistory(int)
+     */
+    void renumberStates(int[] map) {
+        for ( GraphElementState state : states ) state.renumber(map);
+    }
+
+    /**
+     * Replaces the whole history of this element, e.g., by one loaded from
+     * an animation trace; Graph.rebuildIndexes() must be called afterwards.
+     */
+    void replaceStates(StateTimeline<GraphElementState> states) {
+        if ( graph != null ) states.follow(graph.getEpoch());
+        this.states = states;
+        this.spilled = 0;
+    }
+
+    /**
+     * Copies the latest attributes of this element into its row of the
+     * columns after these were cleared, e.g., by Graph.reset(), at the
+     * latest when the element is next changed. The row holds them from the
+     * latest state on; the columns no longer know when each attribute last
+     * changed.
+     */
+    void restoreColumns() {
+        if ( columns == null || states.isEmpty() ) return;
+        GraphElementState latest = states.latest();
+        columns.restoreRow(row, latest.getState());
+        changes.restore(row, this);
+        for ( Attribute attribute : latest.getAttributes().getAttributes() ) {
+            columns.record(row, keys.slot(attribute.getKey()), latest);
+        }
+    }
+
+    /**
+     * Mirrors a change of the given attribute in the given state, which
+     * must be the latest one, in the columns and notes it in the change
+     * index.
+     */
+    protected void record(int slot, GraphElementState state) {
+        if ( columns == null ) return;
+        lockGraph();
+        try {
+            if ( ! columns.covers(row) ) restoreColumns();
+            columns.record(row, slot, state);
+            changes.record(row, slot, state.getState());
+        }
+        finally {
+            unlockGraph();
+        }
+    }
+
+    /**
+     * Notes a state loaded from an animation trace, in which the attributes
+     * with the given slots changed, in the change index.
+     */
+    void recordChanges(int[] slots, int state) {
+        if ( changes == null ) return;
+        changes.register(row, this, state);
+        for ( int slot : slots ) changes.record(row, slot, state);
+    }
+
+    /**
+     * @return the algorithm states in which the attribute with the given
+     * key changed, in increasing order; as far as the algorithm has gone if
+     * it is still running
+     */
+    public int[] getChanges(String key) {
+        int slot = keys.lookup(key);
+        if ( changes == null || slot < 0 ) return new int[0];
+        return changes.changes(row, slot);
+    }
+
+    /**
+     * @return the first algorithm state after the given one in which the
+     * attribute with the given key changed, -1 if there is none (yet)
+     */
+    public int nextChange(String key, int state) {
+        int slot = keys.lookup(key);
+        if ( changes == null || slot < 0 ) return -1;
+        return changes.nextChange(row, slot, state);
+    }
+
+    /**
+     * @return the last algorithm state before the given one in which the
+     * attribute with the given key changed, -1 if there is none
+     */
+    public int previousChange(String key, int state) {
+        int slot = keys.lookup(key);
+        if ( changes == null || slot < 0 ) return -1;
+        return changes.previousChange(row, slot, state);
+    }
+
+    /**
+     * The following tell whether the latest value of an attribute is
+     * already the given one, in which case a write is skipped: it would
+     * only add a state -- and, during an animation, a display step -- in
+     * which nothing changes.
+     */
+    private boolean contains(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.contains(row, slot);
+        return latestState().getAttributes().contains(slot);
+    }
+    private boolean holdsInteger(int slot, int value) {
+        if ( columns != null && columns.covers(row) )
+            return columns.holdsInteger(row, slot, value);
+        return latestState().getAttributes().holdsInteger(slot, value);
+    }
+    private boolean holdsDouble(int slot, double value) {
+        if ( columns != null && columns.covers(row) )
+            return columns.holdsDouble(row, slot, value);
+        return latestState().getAttributes().holdsDouble(slot, value);
+    }
+    private boolean holdsBoolean(int slot, boolean value) {
+        if ( columns != null && columns.covers(row) )
+            return columns.holdsBoolean(row, slot, value);
+        return latestState().getAttributes().holdsBoolean(slot, value);
+    }
+    private boolean holdsString(int slot, String value) {
+        if ( columns != null && columns.covers(row) )
+            return columns.holdsString(row, slot, value);
+        return latestState().getAttributes().holdsString(slot, value);
     }
 
     /**
      * @return a new state for this element; the new state will be identical
      * to the current (latest one) except that it will be tagged with the
      * current algorithm state if the algorithm is running; subsequent
-     * changes to this GraphElement will take place in the new state.
+     * changes to this GraphElement will take place in the new state. If the
+     * latest state already has the current algorithm state, it is returned
+     * instead: it would be replaced by the new one anyhow. It is then
+     * changed outside the lock of the graph, but only while the algorithm
+     * is working on that state, which the display does not show yet.
      *
      * @todo there is no reason to create new states when parsing and the
      * only reason to do it when editing is for a possible "undo" mechanism,
@@ -98,9 +344,22 @@ public class GraphElement implements Comparable<GraphElement> {
      */
     private GraphElementState newState() throws Terminate {
 		dispatch.startStepIfRunning();
+        return nextState();
+    }
+
+    /**
+     * @return the state in which to make changes in the current algorithm
+     * state: the latest one if it is for that state, otherwise a new one
+     * derived from it
+     */
+    private GraphElementState nextState() {
 		GraphElementState latest = latestState();
+        if ( latest == states.latest()
+             && latest.getState() == dispatch.getAlgorithmState() ) {
+            return latest;
+        }
 		GraphElementState elementState
-            = new GraphElementState(latest);
+            = new GraphElementState(latest, dispatch.getAlgorithmState());
 		return elementState;
     }
 
@@ -110,12 +369,9 @@ public class GraphElement implements Comparable<GraphElement> {
      * a "blank" one with all attributes = null is returned.
      */
     public GraphElementState latestState() {
-        GraphElementState state = null;
-        if ( states.size() != 0 ) {
-            state = states.get(states.size() - 1);
-        }
-        else {
-            state = new GraphElementState();
+        GraphElementState state = states.latest();
+        if ( state == null ) {
+            state = new GraphElementState(keys, dispatch.getAlgorithmState());
         }
         return state;
     }
@@ -130,20 +386,17 @@ public class GraphElement implements Comparable<GraphElement> {
      * usually the current display state
      * @return the latest instance of GraphElementState that was created before the
      * given time stamp, or null if the element did not exist before the time
-     * stamp.
+     * stamp. Takes constant time if the time stamp is at or after the latest
+     * change, otherwise time logarithmic in the number of changes between
+     * the keyframes around the time stamp.
+     * @see Keyframes
+     * @see StateTimeline#atOrBefore(int)
      */
 	public GraphElementState getLatestValidState(int stateNumber) {
-        GraphElementState toReturn = null;
-        int stateIndex = states.size() - 1;
-		while ( stateIndex >= 0 ) {
-			GraphElementState state = states.get(stateIndex);
-			if ( state.getState() <= stateNumber ) {
-				toReturn = state;
-                break;
-			}
-            stateIndex--;
-		}
-        return toReturn;
+        if ( graph == null ) return states.atOrBefore(stateNumber);
+        int index
+            = graph.getKeyframes().indexAtOrBefore(states, row, stateNumber);
+        return index < 0 ? null : states.get(index);
 	}
 
 	/**
@@ -159,18 +412,17 @@ public class GraphElement implements Comparable<GraphElement> {
      * @invariant states are always sorted by state number.
      */
 	private void addState(GraphElementState stateToAdd) throws Terminate {
-        int stateNumber = stateToAdd.getState();
-        boolean found = false;
-        for ( int i = states.size() - 1; i >= stateNumber; i-- ) {
-            GraphElementState state = states.get(i);
-            if ( state.getState() == stateNumber ) {
-                states.set(i, stateToAdd);
-                found = true;
-                break;
-            }
+        boolean appended;
+        lockGraph();
+        try {
+            appended = states.add(stateToAdd);
+            if ( appended && graph != null )
+                graph.addedState(stateToAdd.getMemoryUsage());
+        }
+        finally {
+            unlockGraph();
         }
-        if ( ! found ) {
-            states.add(stateToAdd);
+        if ( appended ) {
             dispatch.pauseExecutionIfRunning();
         }
 	}
@@ -180,42 +432,91 @@ public class GraphElement implements Comparable<GraphElement> {
    * that animator can say ge.hasInteger("attribute"), e.g.
    */
 
+    /**
+     * Each attribute can be accessed by its name (key) or by its slot, as
+     * registered with the AttributeKeys of the graph; the standard
+     * attributes have constant slots, e.g., AttributeKeys.WEIGHT. A name is
+     * resolved to its slot once, at the beginning of each method.
+     */
+
     /************** Integer attributes ***************/
 	public boolean set(String key, Integer value) throws Terminate {
+        return set(keys.slot(key), value);
+	}
+	public boolean set(int slot, Integer value) throws Terminate {
+        if ( value == null ? ! contains(slot) : holdsInteger(slot, value) )
+            return value != null;
         GraphElementState newState = newState();
-        boolean found = newState.set(key, value);
+        boolean found = newState.set(slot, value);
+        record(slot, newState);
         addState(newState);
         return found;
 	}
 	public Integer getInteger(String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getInteger(slot);
+	}
+	public Integer getInteger(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getInteger(row, slot);
         GraphElementState state = latestState();
-		return state.getAttributes().getInteger(key);
+		return state.getAttributes().getInteger(slot);
 	}
 	public Integer getInteger(int state, String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getInteger(state, slot);
+	}
+	public Integer getInteger(int state, int slot) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getInteger(row, slot);
         GraphElementState validState = getLatestValidState(state);
-		return validState == null ? null : validState.getAttributes().getInteger(key);
+		return validState == null ? null : validState.getAttributes().getInteger(slot);
 	}
 
     /************** Double attributes ***************/
 	public boolean set(String key, Double value) throws Terminate {
+        return set(keys.slot(key), value);
+	}
+	public boolean set(int slot, Double value) throws Terminate {
+        if ( value == null ? ! contains(slot) : holdsDouble(slot, value) )
+            return value != null;
         GraphElementState newState = newState();
-        boolean found = newState.set(key, value);
+        boolean found = newState.set(slot, value);
+        record(slot, newState);
         addState(newState);
         return found;
 	}
 	public Double getDouble(String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getDouble(slot);
+	}
+	public Double getDouble(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getDouble(row, slot);
         GraphElementState state = latestState();
-		return state.getAttributes().getDouble(key);
+		return state.getAttributes().getDouble(slot);
 	}
 	public Double getDouble(int state, String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getDouble(state, slot);
+	}
+	public Double getDouble(int state, int slot) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getDouble(row, slot);
         GraphElementState validState = getLatestValidState(state);
-		return validState == null ? null : validState.getAttributes().getDouble(key);
+		return validState == null ? null : validState.getAttributes().getDouble(slot);
 	}
 
     /************** Boolean attributes ***************/
 	public boolean set(String key, Boolean value) throws Terminate {
+        return set(keys.slot(key), value);
+	}
+	public boolean set(int slot, Boolean value) throws Terminate {
+        if ( value == null ? ! contains(slot) : holdsBoolean(slot, value) )
+            return value != null;
         GraphElementState newState = newState();
-        boolean found = newState.set(key, value);
+        boolean found = newState.set(slot, value);
+        record(slot, newState);
         addState(newState);
         return found;
 	}
@@ -236,14 +537,25 @@ public class GraphElement implements Comparable<GraphElement> {
      * that it's false.
      */
 	public Boolean getBoolean(String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? false : getBoolean(slot);
+	}
+	public Boolean getBoolean(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getBoolean(row, slot);
         GraphElementState state = latestState();
-		return state.getAttributes().getBoolean(key);
+		return state.getAttributes().getBoolean(slot);
 	}
 	public Boolean getBoolean(int state, String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? false : getBoolean(state, slot);
+	}
+	public Boolean getBoolean(int state, int slot) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getBoolean(row, slot);
         GraphElementState validState = getLatestValidState(state);
         if ( validState == null ) return false;
-        if ( validState.getAttributes() == null ) return false;
-		return validState.getAttributes().getBoolean(key);
+		return validState.getAttributes().getBoolean(slot);
 	}
 
     /**
@@ -256,20 +568,124 @@ public class GraphElement implements Comparable<GraphElement> {
         return getBoolean(state, key);
     }
 
+    /************** Unboxed attributes ***************/
+
+    /**
+     * Counterparts of the above that neither box the value nor, when the
+     * attribute has already been set during the current step, allocate a
+     * new attribute. The getters return <code>otherwise</code> if the
+     * attribute is missing or has a different type.
+     */
+	public boolean setInteger(String key, int value) throws Terminate {
+        return setInteger(keys.slot(key), value);
+	}
+	public boolean setInteger(int slot, int value) throws Terminate {
+        if ( holdsInteger(slot, value) ) return true;
+        GraphElementState newState = newState();
+        boolean found = newState.setInteger(slot, value);
+        record(slot, newState);
+        addState(newState);
+        return found;
+	}
+	public boolean setDouble(String key, double value) throws Terminate {
+        return setDouble(keys.slot(key), value);
+	}
+	public boolean setDouble(int slot, double value) throws Terminate {
+        if ( holdsDouble(slot, value) ) return true;
+        GraphElementState newState = newState();
+        boolean found = newState.setDouble(slot, value);
+        record(slot, newState);
+        addState(newState);
+        return found;
+	}
+	public boolean setBoolean(String key, boolean value) throws Terminate {
+        return setBoolean(keys.slot(key), value);
+	}
+	public boolean setBoolean(int slot, boolean value) throws Terminate {
+        if ( holdsBoolean(slot, value) ) return true;
+        GraphElementState newState = newState();
+        boolean found = newState.setBoolean(slot, value);
+        record(slot, newState);
+        addState(newState);
+        return found;
+	}
+	public int getIntegerValue(String key, int otherwise) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? otherwise : getIntegerValue(slot, otherwise);
+	}
+	public int getIntegerValue(int slot, int otherwise) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getIntegerValue(row, slot, otherwise);
+		return latestState().getIntegerValue(slot, otherwise);
+	}
+	public int getIntegerValue(int state, int slot, int otherwise) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getIntegerValue(row, slot, otherwise);
+        GraphElementState validState = getLatestValidState(state);
+        if ( validState == null ) return otherwise;
+		return validState.getIntegerValue(slot, otherwise);
+	}
+	public double getDoubleValue(String key, double otherwise) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? otherwise : getDoubleValue(slot, otherwise);
+	}
+	public double getDoubleValue(int slot, double otherwise) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getDoubleValue(row, slot, otherwise);
+		return latestState().getDoubleValue(slot, otherwise);
+	}
+	public double getDoubleValue(int state, int slot, double otherwise) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getDoubleValue(row, slot, otherwise);
+        GraphElementState validState = getLatestValidState(state);
+        if ( validState == null ) return otherwise;
+		return validState.getDoubleValue(slot, otherwise);
+	}
+	public boolean getBooleanValue(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getBooleanValue(row, slot);
+		return latestState().getBooleanValue(slot);
+	}
+	public boolean getBooleanValue(int state, int slot) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getBooleanValue(row, slot);
+        GraphElementState validState = getLatestValidState(state);
+        if ( validState == null ) return false;
+		return validState.getBooleanValue(slot);
+	}
+
     /************** String attributes ***************/
 	public boolean set(String key, String value) throws Terminate {
+        return set(keys.slot(key), value);
+	}
+	public boolean set(int slot, String value) throws Terminate {
+        if ( value == null ? ! contains(slot) : holdsString(slot, value) )
+            return value != null;
         GraphElementState newState = newState();
-        boolean found = newState.set(key, value);
+        boolean found = newState.set(slot, value);
+        record(slot, newState);
         addState(newState);
         return found;
 	}
 	public String getString(String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getString(slot);
+	}
+	public String getString(int slot) {
+        if ( columns != null && columns.covers(row) )
+            return columns.getString(row, slot);
         GraphElementState state = latestState();
-		return state.getAttributes().getString(key);
+		return state.getAttributes().getString(slot);
 	}
 	public String getString(int state, String key) {
+        int slot = keys.lookup(key);
+		return slot < 0 ? null : getString(state, slot);
+	}
+	public String getString(int state, int slot) {
+        if ( columns != null && columns.covers(row, slot, state) )
+            return columns.getString(row, slot);
         GraphElementState validState = getLatestValidState(state);
-		return validState == null ? null : validState.getAttributes().getString(key);
+		return validState == null ? null : validState.getAttributes().getString(slot);
 	}
 
     /**
@@ -277,25 +693,102 @@ public class GraphElement implements Comparable<GraphElement> {
      * state information appropriately.
      */
     public void remove(String key) throws Terminate {
+        remove(keys.slot(key));
+    }
+    public void remove(int slot) throws Terminate {
+        if ( ! contains(slot) ) return;
         GraphElementState newState = newState();
-        newState.remove(key);
+        newState.remove(slot);
+        record(slot, newState);
         addState(newState);
     }
 
+    /**
+     * Makes the changes of a batch, from the given one on, in a single new
+     * state, skipping the ones that would change nothing. Does not
+     * synchronize with the display; GraphBatch.commit() does that once for
+     * all elements.
+     * @return true if a state was added for a new algorithm state
+     */
+    boolean apply(GraphBatch batch, int change) throws Terminate {
+        GraphElementState newState = null;
+        for ( ; change >= 0; change = batch.next(change) ) {
+            if ( changesNothing(batch, change, newState) ) continue;
+            if ( newState == null ) newState = batchState(batch);
+            int slot = batch.slot(change);
+            if ( batch.isRemove(change) )
+                newState.remove(slot);
+            else if ( batch.isInteger(change) )
+                newState.setInteger(slot, batch.intValue(change));
+            else if ( batch.isDouble(change) )
+                newState.setDouble(slot, batch.doubleValue(change));
+            else if ( batch.isBoolean(change) )
+                newState.setBoolean(slot, batch.booleanValue(change));
+            else
+                newState.set(slot, batch.stringValue(change));
+            record(slot, newState);
+        }
+        if ( newState == null ) return false;
+        lockGraph();
+        try {
+            boolean appended = states.add(newState);
+            if ( appended && graph != null )
+                graph.addedState(newState.getMemoryUsage());
+            return appended;
+        }
+        finally {
+            unlockGraph();
+        }
+    }
+
+    /**
+     * @return true if the change of the batch would leave the attribute as
+     * it is, either in the latest state or, once the batch has made a
+     * change, in the given new state
+     */
+    private boolean changesNothing(GraphBatch batch, int change,
+                                   GraphElementState newState) {
+        int slot = batch.slot(change);
+        if ( newState == null ) {
+            if ( batch.isRemove(change) ) return ! contains(slot);
+            if ( batch.isInteger(change) )
+                return holdsInteger(slot, batch.intValue(change));
+            if ( batch.isDouble(change) )
+                return holdsDouble(slot, batch.doubleValue(change));
+            if ( batch.isBoolean(change) )
+                return holdsBoolean(slot, batch.booleanValue(change));
+            return holdsString(slot, batch.stringValue(change));
+        }
+        AttributeList attributes = newState.getAttributes();
+        if ( batch.isRemove(change) ) return ! attributes.contains(slot);
+        if ( batch.isInteger(change) )
+            return attributes.holdsInteger(slot, batch.intValue(change));
+        if ( batch.isDouble(change) )
+            return attributes.holdsDouble(slot, batch.doubleValue(change));
+        if ( batch.isBoolean(change) )
+            return attributes.holdsBoolean(slot, batch.booleanValue(change));
+        return attributes.holdsString(slot, batch.stringValue(change));
+    }
+
+    private GraphElementState batchState(GraphBatch batch) throws Terminate {
+        batch.startStep();
+        return nextState();
+    }
+
     public boolean isDeleted() {
-        return getBoolean(DELETED);
+        return getBoolean(AttributeKeys.DELETED);
     }
     public boolean isDeleted(int state) {
-        return getBoolean(state, DELETED);
+        return getBoolean(state, AttributeKeys.DELETED);
     }
     /**
      * @param true iff this element is to be deleted in the current state.
      */
     public void setDeleted(boolean deleted) throws Terminate {
         if (deleted) {
-            set(DELETED, true);
+            set(AttributeKeys.DELETED, true);
         }
-        else remove(DELETED);
+        else remove(AttributeKeys.DELETED);
     }
 
     /**
@@ -315,8 +808,16 @@ public class GraphElement implements Comparable<GraphElement> {
 		return ! isDeleted();
 	}
 
+    /**
+     * @return true if the element exists and has not been deleted in the
+     * given state; does a single lookup of the valid state.
+     */
 	public boolean inScope(int state) {
-		return isCreated(state) && ! isDeleted(state);
+        if ( columns != null && columns.covers(row, AttributeKeys.DELETED, state) )
+            return ! columns.getBooleanValue(row, AttributeKeys.DELETED);
+        GraphElementState validState = getLatestValidState(state);
+        if ( validState == null ) return false;
+		return ! validState.getAttributes().getBoolean(AttributeKeys.DELETED);
 	}
 
     /**
@@ -325,31 +826,39 @@ public class GraphElement implements Comparable<GraphElement> {
      * visible and which are not
      */
     public Boolean isHidden() {
-        return getBoolean(HIDDEN);
+        return getBoolean(AttributeKeys.HIDDEN);
     }
     /**
      * @return true if this element is hidden, i.e., will not be drawn on the
      * graph panel.
      */
-    public Boolean isHidden(int state) { return getBoolean(state, HIDDEN); }
-    public void hide() throws Terminate { set(HIDDEN); }
-    public void show() throws Terminate { clear(HIDDEN); }
+    public Boolean isHidden(int state) {
+        return getBoolean(state, AttributeKeys.HIDDEN);
+    }
+    public void hide() throws Terminate { set(AttributeKeys.HIDDEN, true); }
+    public void show() throws Terminate { remove(AttributeKeys.HIDDEN); }
 
 
     /**************************** weights **************************/
 	public Double getWeight() {
-        return getDouble(WEIGHT);
+        return getDouble(AttributeKeys.WEIGHT);
     }
 	public Double getWeight(int state) {
-        return getDouble(state, WEIGHT);
+        return getDouble(state, AttributeKeys.WEIGHT);
+    }
+    /**
+     * Unboxed version, used when drawing; 0 if there is no weight.
+     */
+	public double getWeightValue(int state) {
+        return getDoubleValue(state, AttributeKeys.WEIGHT, 0.0);
     }
 
     /**
-     * Need to convert the argument to a double because it eventually
-     * converts to Double -- see initializeAfterParsing()
+     * The weight is always stored as a double -- see
+     * initializeAfterParsing() -- and written without boxing.
      */
 	public void setWeight(double weight) throws Terminate {
-        set(WEIGHT, (double) weight);
+        setDouble(AttributeKeys.WEIGHT, weight);
     }
 
     public boolean hasWeight() {
@@ -362,7 +871,7 @@ public class GraphElement implements Comparable<GraphElement> {
      * removes the weight from the property list
      */
     public void clearWeight() throws Terminate {
-        remove(WEIGHT);
+        remove(AttributeKeys.WEIGHT);
     }
 
     /**
@@ -370,22 +879,26 @@ public class GraphElement implements Comparable<GraphElement> {
      * drawn on the graph panel.
      */
     public Boolean weightIsHidden(int state) {
-        return getBoolean(state, HIDDEN_WEIGHT);
+        return getBoolean(state, AttributeKeys.HIDDEN_WEIGHT);
+    }
+    public void hideWeight() throws Terminate {
+        set(AttributeKeys.HIDDEN_WEIGHT, true);
+    }
+    public void showWeight() throws Terminate {
+        remove(AttributeKeys.HIDDEN_WEIGHT);
     }
-    public void hideWeight() throws Terminate { set(HIDDEN_WEIGHT); }
-    public void showWeight() throws Terminate { clear(HIDDEN_WEIGHT); }
 
 
     /**************************** labels *************************/
 	public String getLabel() {
-        return getString(LABEL);
+        return getString(AttributeKeys.LABEL);
     }
 	public String getLabel(int state) {
-        return getString(state, LABEL);
+        return getString(state, AttributeKeys.LABEL);
     }
 
 	public void setLabel(String label) throws Terminate {
-        set(LABEL, label);
+        set(AttributeKeys.LABEL, label);
     }
 
     public boolean hasLabel() {
@@ -398,7 +911,7 @@ public class GraphElement implements Comparable<GraphElement> {
      * removes the label from the property list
      */
     public void clearLabel() throws Terminate {
-        remove(LABEL);
+        remove(AttributeKeys.LABEL);
     }
 
     /**
@@ -406,21 +919,25 @@ public class GraphElement implements Comparable<GraphElement> {
      * drawn on the graph panel.
      */
     public Boolean labelIsHidden(int state) {
-        return getBoolean(state, HIDDEN_LABEL);
+        return getBoolean(state, AttributeKeys.HIDDEN_LABEL);
+    }
+    public void hideLabel() throws Terminate {
+        set(AttributeKeys.HIDDEN_LABEL, true);
+    }
+    public void showLabel() throws Terminate {
+        remove(AttributeKeys.HIDDEN_LABEL);
     }
-    public void hideLabel() throws Terminate { set(HIDDEN_LABEL); }
-    public void showLabel() throws Terminate { clear(HIDDEN_LABEL); }
 
     /**************************** colors *************************/
 	public String getColor() {
-        return getString(COLOR);
+        return getString(AttributeKeys.COLOR);
     }
 	public String getColor(int state) {
-        return getString(state, COLOR);
+        return getString(state, AttributeKeys.COLOR);
     }
 
 	public void setColor(String color) throws Terminate {
-        set(COLOR, color);
+        set(AttributeKeys.COLOR, color);
     }
 
     public boolean hasColor() {
@@ -433,7 +950,7 @@ public class GraphElement implements Comparable<GraphElement> {
      * removes the color from the property list
      */
     public void clearColor() throws Terminate {
-        remove(COLOR);
+        remove(AttributeKeys.COLOR);
     }
 
     /**************************** highlighting ***********************/
@@ -444,29 +961,29 @@ public class GraphElement implements Comparable<GraphElement> {
      * is the same, but the nature of the list traversal might not be.
      */
 	public boolean isSelected() {
-        return getBoolean(HIGHLIGHTED);
+        return getBoolean(AttributeKeys.HIGHLIGHTED);
     }
 	public Boolean isSelected(int state) {
-        return getBoolean(state, HIGHLIGHTED);
+        return getBoolean(state, AttributeKeys.HIGHLIGHTED);
     }
 	public void setSelected(Boolean highlighted) throws Terminate {
-        set(HIGHLIGHTED, highlighted);
+        set(AttributeKeys.HIGHLIGHTED, highlighted);
     }
 	public boolean isHighlighted() {
-        return getBoolean(HIGHLIGHTED);
+        return getBoolean(AttributeKeys.HIGHLIGHTED);
     }
 	public Boolean isHighlighted(int state) {
-        return getBoolean(state, HIGHLIGHTED);
+        return getBoolean(state, AttributeKeys.HIGHLIGHTED);
     }
 	public void highlight() throws Terminate {
-        set(HIGHLIGHTED, true);
+        set(AttributeKeys.HIGHLIGHTED, true);
     }
 	public void unHighlight() throws Terminate {
-        remove(HIGHLIGHTED);
+        remove(AttributeKeys.HIGHLIGHTED);
     }
     // alternate spelling
 	public void unhighlight() throws Terminate {
-        remove(HIGHLIGHTED);
+        remove(AttributeKeys.HIGHLIGHTED);
     }
 
     /**
@@ -619,10 +1136,16 @@ public class GraphElement implements Comparable<GraphElement> {
         return elementState.attributesWithoutId();
     }
 
+    /**
+     * Elements without a weight compare as if their weight were NaN, i.e.,
+     * after all the others.
+     */
 	public int compareTo(GraphElement other) {
-        Double thisDouble = new Double( this.getWeight() );
-        Double otherDouble = new Double( other.getWeight() );
-		return thisDouble.compareTo( otherDouble );
+        double thisDouble
+            = this.getDoubleValue(AttributeKeys.WEIGHT, Double.NaN);
+        double otherDouble
+            = other.getDoubleValue(AttributeKeys.WEIGHT, Double.NaN);
+		return Double.compare( thisDouble, otherDouble );
 	}
 
     /**
@@ -632,8 +1155,8 @@ public class GraphElement implements Comparable<GraphElement> {
   public static GraphElementComparator getDoubleComparator(String attribute) {
     return new GraphElementComparator(attribute, false) {
           public int compare(GraphElement ge_1, GraphElement ge_2) {
-            Double value_1 = ge_1.getDouble(attribute);
-            Double value_2 = ge_2.getDouble(attribute);
+            double value_1 = ge_1.getDoubleValue(attribute, Double.NaN);
+            double value_2 = ge_2.getDoubleValue(attribute, Double.NaN);
             if ( value_1 > value_2 ) return 1;
             else if ( value_2 > value_1 ) return -1;
             else return 0;
@@ -682,11 +1205,11 @@ public class GraphElement implements Comparable<GraphElement> {
                                                              boolean reverse) {
     return new GraphElementComparator(attribute, reverse) {
       public int compare(GraphElement ge_1, GraphElement ge_2) {
-        Double value_1 = ge_1.getDouble(attribute);
-        Double value_2 = ge_2.getDouble(attribute);
+        double value_1 = ge_1.getDoubleValue(attribute, Double.NaN);
+        double value_2 = ge_2.getDoubleValue(attribute, Double.NaN);
         if ( reverse )
-          return value_2.compareTo(value_1);
-        else return value_1.compareTo(value_2);
+          return Double.compare(value_2, value_1);
+        else return Double.compare(value_1, value_2);
       }
     };
   }
@@ -729,4 +1252,4 @@ public class GraphElement implements Comparable<GraphElement> {
 
 }
 
-//  [Last modified: 2017 07 22 at 18:47:03 GMT]
+//  [Last modified: 2026 10 18 at 03:46:05 GMT]
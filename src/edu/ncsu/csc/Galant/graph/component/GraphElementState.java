@@ -1,6 +1,5 @@
 package edu.ncsu.csc.Galant.graph.component;
 import java.awt.Point;
-import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 /**
@@ -24,7 +23,7 @@ import edu.ncsu.csc.Galant.logging.LogHelper;
  * a simple test for Booleans (where it's about presence or absence
  * anyhow). The getters can do parsing.
  */
-public class GraphElementState {
+public class GraphElementState implements TimeStamped {
 
     /**
      * The sequence number (algorithm state) of this state.
@@ -34,32 +33,106 @@ public class GraphElementState {
     public int getState() { return state; }
 
     /**
-     * Attribute list for the snapshot representing this element state
+     * Gives this state its number after empty algorithm states have been
+     * removed, see Graph.compactHistory()
+     * @param map the new number of each old state number
      */
-    protected AttributeList attributes;
-    public AttributeList getAttributes() { return attributes; }
+    void renumber(int[] map) {
+        if ( state >= 0 && state < map.length ) state = map[state];
+    }
+
+    /**
+     * Attribute list for the snapshot representing this element state;
+     * volatile since it may be read back from the history file on one
+     * thread and used on another
+     */
+    protected volatile AttributeList attributes;
+
+    /**
+     * Where the attributes are if they were spilled to disk (see
+     * SpilledHistory); the attributes are null while they are only there.
+     */
+    SpilledHistory spilledTo;
+    long spillOffset = -1;
+    int spillLength;
 
-    private GraphDispatch dispatch;
+    public AttributeList getAttributes() {
+        AttributeList list = attributes;
+        return list != null ? list : pageIn();
+    }
+
+    private synchronized AttributeList pageIn() {
+        if ( attributes == null ) {
+            try {
+                attributes = spilledTo.read(this);
+            }
+            catch ( java.io.IOException e ) {
+                throw new IllegalStateException("unable to read state "
+                                                + state + " from history", e);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * @return the number of attribute entries this state holds in memory,
+     * 0 if they were spilled
+     */
+    int attributeCount() {
+        AttributeList list = attributes;
+        return list == null ? 0 : list.entryCount();
+    }
+
+    /**
+     * @return an estimate of the memory taken by this state and the
+     * attributes it holds in memory, in bytes; does not read spilled ones
+     */
+    long getMemoryUsage() {
+        AttributeList list = attributes;
+        long bytes = MemoryUsage.OBJECT_HEADER + 2 * MemoryUsage.REFERENCE + 16;
+        return list == null ? bytes : bytes + list.getMemoryUsage();
+    }
 
     /**
      * Constructor used during parsing and editing, when no attributes are
      * known yet.
+     * @param keys the registry of attribute names of the graph
+     * @param state the current algorithm state of the element's session
+     */
+    public GraphElementState(AttributeKeys keys, int state) {
+        this.state = state;
+        this.attributes = new AttributeList(keys);
+    }
+
+    /**
+     * Same as above for an element that does not belong to a graph, hence
+     * not to an animation
      */
     public GraphElementState() {
-        this.dispatch = GraphDispatch.getInstance();
-        this.state = dispatch.getAlgorithmState();
-        this.attributes = new AttributeList();
+        this(new AttributeKeys(), 0);
     }
 
     /**
      * This serves essentially as a copy constructor: creates the new object
-     * in a different algorithm state and copies all the information for the
-     * node (state) - except, of course, the state
+     * in a different algorithm state with all the information for the
+     * node (state) - except, of course, the state. The attributes are a
+     * delta of the ones of elementState, so only subsequent changes take up
+     * space.
+     * @see AttributeList#derive()
+     * @param state the current algorithm state of the element's session
      */
-    public GraphElementState(GraphElementState elementState) {
-        this.dispatch = GraphDispatch.getInstance();
-        this.state = dispatch.getAlgorithmState();
-        this.attributes = elementState.getAttributes().duplicate();
+    public GraphElementState(GraphElementState elementState, int state) {
+        this.state = state;
+        this.attributes = elementState.getAttributes().derive();
+    }
+
+    /**
+     * Creates a state with the given number and attributes, e.g., when an
+     * animation trace is loaded.
+     */
+    GraphElementState(int state, AttributeList attributes) {
+        this.state = state;
+        this.attributes = attributes;
     }
 
     /**
@@ -73,10 +146,19 @@ public class GraphElementState {
         if ( value == null ) {
             return remove(key);
         }
-        return attributes.set(key, value);
+        return getAttributes().set(key, value);
+	}
+	public boolean set(int slot, Integer value) {
+        if ( value == null ) {
+            return remove(slot);
+        }
+        return getAttributes().set(slot, value);
 	}
 	public Integer getIntegerAttribute(String key) {
-		return attributes.getInteger(key);
+		return getAttributes().getInteger(key);
+	}
+	public Integer getIntegerAttribute(int slot) {
+		return getAttributes().getInteger(slot);
 	}
 
     /************** Double attributes ***************/
@@ -84,10 +166,19 @@ public class GraphElementState {
         if ( value == null ) {
             return remove(key);
         }
-        return attributes.set(key, value);
+        return getAttributes().set(key, value);
+	}
+	public boolean set(int slot, Double value) {
+        if ( value == null ) {
+            return remove(slot);
+        }
+        return getAttributes().set(slot, value);
 	}
 	public Double getDoubleAttribute(String key) {
-		return attributes.getDouble(key);
+		return getAttributes().getDouble(key);
+	}
+	public Double getDoubleAttribute(int slot) {
+		return getAttributes().getDouble(slot);
 	}
 
     /************** Boolean attributes ***************/
@@ -95,27 +186,65 @@ public class GraphElementState {
         if ( value == null ) {
             return remove(key);
         }
-        return attributes.set(key, value);
+        return getAttributes().set(key, value);
+	}
+	public boolean set(int slot, Boolean value) {
+        if ( value == null ) {
+            return remove(slot);
+        }
+        return getAttributes().set(slot, value);
 	}
     public boolean set(String key) {
-        return attributes.set(key, true);
+        return getAttributes().set(key, true);
     }
 	public Boolean getBooleanAttribute(String key) {
-		return attributes.getBoolean(key);
+		return getAttributes().getBoolean(key);
+	}
+	public Boolean getBooleanAttribute(int slot) {
+		return getAttributes().getBoolean(slot);
 	}
     public Boolean is(String key) {
-        return attributes.getBoolean(key);
+        return getAttributes().getBoolean(key);
     }
 
+    /************** Unboxed attributes ***************/
+	public boolean setInteger(int slot, int value) {
+        return getAttributes().setInteger(slot, value);
+	}
+	public boolean setDouble(int slot, double value) {
+        return getAttributes().setDouble(slot, value);
+	}
+	public boolean setBoolean(int slot, boolean value) {
+        return getAttributes().setBoolean(slot, value);
+	}
+	public int getIntegerValue(int slot, int otherwise) {
+		return getAttributes().getIntegerValue(slot, otherwise);
+	}
+	public double getDoubleValue(int slot, double otherwise) {
+		return getAttributes().getDoubleValue(slot, otherwise);
+	}
+	public boolean getBooleanValue(int slot) {
+		return getAttributes().getBooleanValue(slot);
+	}
+
     /************** String attributes ***************/
 	public boolean set(String key, String value) {
         if ( value == null ) {
             return remove(key);
         }
-        return attributes.set(key, value);
+        return getAttributes().set(key, value);
+	}
+	public boolean set(int slot, String value) {
+        if ( value == null ) {
+            return remove(slot);
+        }
+        return getAttributes().set(slot, value);
 	}
 	public String getStringAttribute(String key) {
-		return attributes.getString(key);
+		return getAttributes().getString(key);
+	}
+	public String getStringAttribute(int slot) {
+		return getAttributes().getString(slot);
 	}
 
     /**
@@ -124,7 +253,10 @@ public class GraphElementState {
      * @return true if the attribute was present before the call
      */
     public boolean remove(String key) {
-        return attributes.remove(key);
+        return getAttributes().remove(key);
+    }
+    public boolean remove(int slot) {
+        return getAttributes().remove(slot);
     }
 
     /**
@@ -133,7 +265,7 @@ public class GraphElementState {
      */
     public String xmlString() {
         String s = " ";
-        for ( Attribute attribute : attributes.getAttributes() ) {
+        for ( Attribute attribute : getAttributes().getAttributes() ) {
             s += attribute + " ";
         }
         return s;
@@ -146,7 +278,7 @@ public class GraphElementState {
      */
     public String attributesWithoutPosition() {
         String s = " ";
-        for ( Attribute attribute : attributes.getAttributes() ) {
+        for ( Attribute attribute : getAttributes().getAttributes() ) {
             if ( ! attribute.getKey().equals("x")
                  && ! attribute.getKey().equals("y") ) {
                 s += attribute + " ";
@@ -161,7 +293,7 @@ public class GraphElementState {
      */
     public String attributesWithoutId() {
         String s = " ";
-        for ( Attribute attribute : attributes.getAttributes() ) {
+        for ( Attribute attribute : getAttributes().getAttributes() ) {
             if ( ! attribute.getKey().equals("id") ) {
                 s += attribute + " ";
             }
@@ -172,10 +304,10 @@ public class GraphElementState {
     public String toString() {
         String s = "{elementState ";
         s += "" + state + " ";
-        s += attributes.getAttributes();
+        s += getAttributes().getAttributes();
         s += "}";
         return s;
     }
 }
 
-//  [Last modified: 2017 07 22 at 18:41:38 GMT]
+//  [Last modified: 2026 10 18 at 03:24:41 GMT]
@@ -255,7 +255,7 @@ public class GraphLayout {
         double sourceHeight = y_most - y_least;
 
         // compute target window width and height
-        GraphDispatch dispatch = GraphDispatch.getInstance();
+        GraphDispatch dispatch = graph.getDispatch();
         double targetWidth = dispatch.getWindowWidth() - 2 * WINDOW_PADDING;
         targetWidth = targetWidth < MIN_WINDOW_DIMENSION
             ? MIN_WINDOW_DIMENSION : targetWidth;
@@ -583,4 +583,4 @@ public class GraphLayout {
 
 }
 
-//  [Last modified: 2017 01 04 at 02:19:46 GMT]
+//  [Last modified: 2026 10 17 at 20:14:37 GMT]
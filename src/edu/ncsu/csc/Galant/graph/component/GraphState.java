@@ -1,6 +1,5 @@
 package edu.ncsu.csc.Galant.graph.component;
 import java.awt.Point;
-import edu.ncsu.csc.Galant.GraphDispatch; 
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 /**
@@ -10,7 +9,7 @@ import edu.ncsu.csc.Galant.logging.LogHelper;
  *
  * @author Matthias Stallmann
  */
-public class GraphState {
+public class GraphState implements TimeStamped {
 
     /**
      * The sequence number (algorithm state) of this state.
@@ -18,6 +17,15 @@ public class GraphState {
 	private int state;
 
     public int getState() { return state; }
+
+    /**
+     * Gives this state its number after empty algorithm states have been
+     * removed, see Graph.compactHistory()
+     * @param map the new number of each old state number
+     */
+    void renumber(int[] map) {
+        if ( state >= 0 && state < map.length ) state = map[state];
+    }
 	
     /**
      * Attribute list for the snapshot representing this  state
@@ -25,27 +33,46 @@ public class GraphState {
     protected AttributeList attributes;
     public AttributeList getAttributes() { return attributes; }
 
-    private GraphDispatch dispatch;
+    /**
+     * @return an estimate of the memory taken by this state and its
+     * attributes, in bytes
+     */
+    long getMemoryUsage() {
+        return MemoryUsage.OBJECT_HEADER + MemoryUsage.REFERENCE + 8
+            + attributes.getMemoryUsage();
+    }
 
     /**
      * Constructor used during parsing and editing, when no attributes are
      * known yet.
+     * @param keys the registry of attribute names of the graph
+     * @param state the current algorithm state of the graph's session
      */
-    public GraphState() {
-        this.dispatch = GraphDispatch.getInstance();
-        this.state = dispatch.getAlgorithmState();
-        this.attributes = new AttributeList();
+    public GraphState(AttributeKeys keys, int state) {
+        this.state = state;
+        this.attributes = new AttributeList(keys);
     }
 
     /**
      * This serves essentially as a copy constructor: creates the new object
-     * in a different algorithm state and copies all the information for the
-     * node (state) - except, of course, the state
+     * in a different algorithm state with all the information for the
+     * graph (state) - except, of course, the state; the attributes are a
+     * delta of the ones of State.
+     * @see AttributeList#derive()
+     * @param state the current algorithm state of the graph's session
+     */
+    public GraphState(GraphState State, int state) {
+        this.state = state;
+        this.attributes = State.getAttributes().derive();
+    }
+
+    /**
+     * Creates a state with the given number and attributes, e.g., when an
+     * animation trace is loaded.
      */
-    public GraphState(GraphState State) {
-        this.dispatch = GraphDispatch.getInstance();
-        this.state = dispatch.getAlgorithmState();
-        this.attributes = State.getAttributes().duplicate();
+    GraphState(int state, AttributeList attributes) {
+        this.state = state;
+        this.attributes = attributes;
     }
 
     /************** Integer attributes ***************/
@@ -116,4 +143,4 @@ public class GraphState {
     }
 }
 
-//  [Last modified: 2016 10 17 at 12:52:59 GMT]
+//  [Last modified: 2026 10 17 at 20:06:40 GMT]
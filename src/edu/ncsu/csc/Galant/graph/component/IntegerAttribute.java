@@ -1,17 +1,22 @@
 package edu.ncsu.csc.Galant.graph.component;
 
+/**
+ * The value is kept unboxed so that reading or updating it does not
+ * allocate; getIntegerValue() boxes it for callers that need an object.
+ */
 public class IntegerAttribute extends Attribute implements Cloneable {
-    private Integer value;
-    public IntegerAttribute(String key, Integer value) {
+    private int value;
+    public IntegerAttribute(String key, int value) {
         super(key);
         this.value = value;
     }
     public Integer getIntegerValue() { return value; }
-    public void set(Integer value) { this.value = value; }
+    public int intValue() { return value; }
+    public void set(int value) { this.value = value; }
     public Attribute clone() { return new IntegerAttribute(key, value); }
     public String toString() {
         return key + "=\"" + value + "\"";
     }
 }
 
-//  [Last modified: 2015 07 27 at 15:56:47 GMT]
+//  [Last modified: 2026 10 17 at 09:12:40 GMT]
@@ -0,0 +1,116 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Periodic snapshots of where every node and edge of a graph is in its own
+ * state timeline. Keyframe k is taken when the algorithm is about to move
+ * past state k * interval and records, for each row (see AttributeColumns),
+ * the index of the element state in effect at that time. Finding the state
+ * of an element in display state N then only has to search between the
+ * indices recorded in the keyframes on either side of N, usually a handful
+ * of states, instead of the element's whole history. This is what makes a
+ * jump to an arbitrary display state cheap even for very long animations.
+ *
+ * An interval of 0 means that no keyframes are taken.
+ */
+public class Keyframes {
+
+    private final AttributeColumns columns;
+
+    private int interval = 0;
+
+    /**
+     * frames.get(k)[row] is the timeline index of the element of the given
+     * row in state k * interval, -1 if it did not exist yet
+     */
+    private ArrayList<int[]> frames = new ArrayList<int[]>();
+
+    /**
+     * @param columns the columns of the graph, which assign the rows
+     */
+    public Keyframes(AttributeColumns columns) {
+        this.columns = columns;
+    }
+
+    public int getInterval() { return interval; }
+
+    /**
+     * Discards all keyframes and starts over with the given interval.
+     */
+    public void reset(int interval) {
+        this.interval = Math.max(interval, 0);
+        frames = new ArrayList<int[]>();
+    }
+
+    public void clear() { reset(interval); }
+
+    public int size() { return frames.size(); }
+
+    /**
+     * Takes a keyframe if one is due in the given state, i.e., if the state
+     * is the next multiple of the interval. Must be called when all changes
+     * for the state have been made and before any for the next one.
+     * @param others elements other than nodes and edges, e.g., the message
+     * banner
+     */
+    void captureIfDue(int state, Collection<Node> nodes,
+                      Collection<Edge> edges, GraphElement... others) {
+        if ( interval <= 0
+             || state % interval != 0
+             || state / interval != frames.size() ) return;
+        int[] frame = new int[columns.rows()];
+        Arrays.fill(frame, -1);
+        for ( Node node : nodes ) capture(frame, node, state);
+        for ( Edge edge : edges ) capture(frame, edge, state);
+        for ( GraphElement other : others ) capture(frame, other, state);
+        frames.add(frame);
+    }
+
+    private void capture(int[] frame, GraphElement element, int state) {
+        if ( element.row >= 0 && element.row < frame.length ) {
+            frame[element.row] = element.states.indexAtOrBefore(state);
+        }
+    }
+
+    /**
+     * @return the index of the state of the element with the given timeline
+     * and row that is in effect in the given state, -1 if none
+     */
+    <S extends TimeStamped> int indexAtOrBefore(StateTimeline<S> timeline,
+                                                int row, int state) {
+        if ( frames.isEmpty() || row < 0 || state < 0 ) {
+            return timeline.indexAtOrBefore(state);
+        }
+        int k = Math.min(state / interval, frames.size() - 1);
+        int low = indexIn(frames.get(k), row);
+        int high = ( k + 1 < frames.size() )
+            ? indexIn(frames.get(k + 1), row) : -1;
+        return timeline.indexAtOrBefore(state, low, high);
+    }
+
+    private static int indexIn(int[] frame, int row) {
+        return row < frame.length ? frame[row] : -1;
+    }
+
+    /**
+     * @return an estimate of the memory taken by the keyframes, in bytes
+     */
+    public long getMemoryOverhead() {
+        final int ARRAY_HEADER = 16;
+        long bytes = 0;
+        for ( int[] frame : frames ) {
+            bytes += ARRAY_HEADER + 4L * frame.length;
+        }
+        return bytes;
+    }
+
+    public String toString() {
+        return frames.size() + " keyframes, every " + interval
+            + " states, " + getMemoryOverhead() + " bytes";
+    }
+}
+
+//  [Last modified: 2026 10 17 at 11:05:47 GMT]
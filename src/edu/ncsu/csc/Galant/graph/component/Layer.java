@@ -14,7 +14,6 @@ import java.util.Comparator;
 import java.util.List;
 
 import edu.ncsu.csc.Galant.algorithm.Terminate;
-import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.logging.LogHelper;
 
 class Layer extends GraphElement {
@@ -192,7 +191,7 @@ class Layer extends GraphElement {
      */
     final Comparator<Node> POSITION_COMPARATOR = new Comparator<Node>() {
         public int compare(Node x, Node y) {
-            int state = GraphDispatch.getInstance().getDisplayState();
+            int state = dispatch.getDisplayState();
             return x.getPositionInLayer(state) - y.getPositionInLayer(state);
         }
     };
@@ -353,4 +352,4 @@ class Layer extends GraphElement {
 
 } // end, class Layer
 
-//  [Last modified: 2016 06 16 at 15:13:58 GMT]
+//  [Last modified: 2026 10 17 at 20:14:37 GMT]
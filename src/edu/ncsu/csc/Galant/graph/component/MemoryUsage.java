@@ -0,0 +1,132 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+/**
+ * An estimate of the heap taken by the history of an animation: for the
+ * nodes, the edges, the graph itself and the message banner, the number of
+ * elements, of states and of attributes held in memory and the bytes these
+ * take, plus the bytes taken by the indexes (keyframes, change index and
+ * columns). States spilled to disk count, but their attributes do not.
+ * Obtained from Graph.getMemoryUsage(); the sizes assume a 64-bit virtual
+ * machine and are meant for spotting runaway growth, not for accounting
+ * to the byte.
+ */
+public class MemoryUsage {
+
+    static final int OBJECT_HEADER = 16;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 8;
+
+    /**
+     * The counts for one kind of element
+     */
+    public static class Part {
+        private final String name;
+        private int elements = 0;
+        private long states = 0;
+        private long attributes = 0;
+        private long bytes = 0;
+
+        Part(String name) { this.name = name; }
+
+        void addElement(long bytes) {
+            this.elements++;
+            this.bytes += bytes;
+        }
+
+        void addState(long bytes, int attributes) {
+            this.states++;
+            this.attributes += attributes;
+            this.bytes += bytes;
+        }
+
+        public int getElements() { return elements; }
+        public long getStates() { return states; }
+        public long getAttributes() { return attributes; }
+        public long getBytes() { return bytes; }
+
+        public String toString() {
+            return name + ": " + elements
+                + ( elements == 1 ? " element, " : " elements, " )
+                + states + " states, " + attributes + " attributes, "
+                + format(bytes);
+        }
+    }
+
+    private final Part nodes = new Part("nodes");
+    private final Part edges = new Part("edges");
+    private final Part graph = new Part("graph");
+    private final Part messages = new Part("messages");
+    private long indexBytes = 0;
+
+    MemoryUsage() { }
+
+    void addIndexes(long bytes) { indexBytes += bytes; }
+
+    public Part getNodes() { return nodes; }
+    public Part getEdges() { return edges; }
+    public Part getGraph() { return graph; }
+    public Part getMessages() { return messages; }
+
+    /**
+     * @return the bytes taken by the keyframes, the change index and the
+     * columns of the graph
+     */
+    public long getIndexBytes() { return indexBytes; }
+
+    public long getTotalStates() {
+        return nodes.states + edges.states + graph.states + messages.states;
+    }
+
+    public long getTotalAttributes() {
+        return nodes.attributes + edges.attributes + graph.attributes
+            + messages.attributes;
+    }
+
+    public long getTotalBytes() {
+        return nodes.bytes + edges.bytes + graph.bytes + messages.bytes
+            + indexBytes;
+    }
+
+    /**
+     * @return a one-line description, e.g., "1234 states, 56.7 KB"
+     */
+    public String summary() {
+        return getTotalStates() + " states, " + format(getTotalBytes());
+    }
+
+    public String toString() {
+        return nodes + "\n" + edges + "\n" + graph + "\n" + messages
+            + "\nindexes: " + format(indexBytes)
+            + "\ntotal: " + getTotalStates() + " states, "
+            + getTotalAttributes() + " attributes, "
+            + format(getTotalBytes());
+    }
+
+    /**
+     * @return the number of bytes in a readable form, e.g., "3.4 MB"
+     */
+    public static String format(long bytes) {
+        if ( bytes < 1024 ) return bytes + " bytes";
+        if ( bytes < 1024 * 1024 )
+            return String.format("%.1f KB", bytes / 1024.0);
+        if ( bytes < 1024L * 1024 * 1024 )
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    /**
+     * @return an estimate of the bytes taken by the attribute, not counting
+     * its key, which is shared
+     */
+    static long sizeOf(Attribute attribute) {
+        long bytes = OBJECT_HEADER + REFERENCE + 8;
+        if ( attribute instanceof StringAttribute ) {
+            String value = attribute.getStringValue();
+            if ( value != null )
+                bytes += OBJECT_HEADER + 8 + ARRAY_HEADER + value.length();
+        }
+        return bytes;
+    }
+}
+
+//  [Last modified: 2026 10 17 at 17:20:14 GMT]
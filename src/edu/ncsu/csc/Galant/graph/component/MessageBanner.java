@@ -12,18 +12,18 @@ public class MessageBanner extends GraphElement {
     }
 
     public boolean set(String message) throws Terminate {
-        return super.set("message", message);
+        return super.set(AttributeKeys.MESSAGE, message);
     }
 
     public void clear() throws Terminate {
-        super.remove("message");
+        super.remove(AttributeKeys.MESSAGE);
     }
 
     /**
      * get the current message (only makes sense in context of an algorithm)
      */
     public String get(int state) {
-        String message = super.getString(state, "message");
+        String message = super.getString(state, AttributeKeys.MESSAGE);
         if ( message == null ) return "";
         return message;
     }
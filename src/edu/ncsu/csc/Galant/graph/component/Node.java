@@ -67,10 +67,12 @@ public class Node extends GraphElement {
         this.xCoordinate = x;
         this.yCoordinate = y;
         // set starting position based on the initial one
-        if ( GraphDispatch.getInstance().algorithmMovesNodes() ) {
+        if ( dispatch.algorithmMovesNodes() ) {
             GraphElementState startingState = latestState();
-            startingState.set("x", x);
-            startingState.set("y", y);
+            startingState.set(AttributeKeys.X, x);
+            startingState.set(AttributeKeys.Y, y);
+            record(AttributeKeys.X, startingState);
+            record(AttributeKeys.Y, startingState);
         }
    }
 
@@ -88,24 +90,16 @@ public class Node extends GraphElement {
      * during algorithm execution.
      */
     public Integer getX() {
-        Integer x = super.getInteger("x");
-        if ( x == null ) x = this.xCoordinate;
-        return x;
+        return super.getIntegerValue(AttributeKeys.X, this.xCoordinate);
     }
     public Integer getY() {
-        Integer y = super.getInteger("y");
-        if ( y == null ) y = this.yCoordinate;
-        return y;
+        return super.getIntegerValue(AttributeKeys.Y, this.yCoordinate);
     }
     public Integer getX(int state) {
-        Integer x = super.getInteger(state, "x");
-        if ( x == null ) x = this.xCoordinate;
-        return x;
+        return super.getIntegerValue(state, AttributeKeys.X, this.xCoordinate);
     }
     public Integer getY(int state) {
-        Integer y = super.getInteger(state, "y");
-        if ( y == null ) y = this.yCoordinate;
-        return y;
+        return super.getIntegerValue(state, AttributeKeys.Y, this.yCoordinate);
     }
 
     /**
@@ -123,19 +117,24 @@ public class Node extends GraphElement {
         return p;
     }
 
+    /**
+     * Called for every node whenever the graph is drawn, hence reads the
+     * coordinates without boxing them.
+     */
     public Point getPosition(int state) {
-        Integer x = getX(state);
-        Integer y = getY(state);
-        Point p = null;
-        if ( x == null || y == null )
-            p = getFixedPosition();
-        else
-            p = new Point(x, y);
-        return p;
+        int x = getIntegerValue(state, AttributeKeys.X, this.xCoordinate);
+        int y = getIntegerValue(state, AttributeKeys.Y, this.yCoordinate);
+        return new Point(x, y);
     }
 
-    public void setX(Integer x) throws Terminate { super.set("x", x); }
-    public void setY(Integer y) throws Terminate { super.set("y", y); }
+    public void setX(Integer x) throws Terminate {
+        if ( x == null ) super.remove(AttributeKeys.X);
+        else super.setInteger(AttributeKeys.X, x);
+    }
+    public void setY(Integer y) throws Terminate {
+        if ( y == null ) super.remove(AttributeKeys.Y);
+        else super.setInteger(AttributeKeys.Y, y);
+    }
     public void setPosition(Integer x, Integer y) throws Terminate {
         setX(x);
         setY(y);
@@ -146,22 +145,22 @@ public class Node extends GraphElement {
     }
 
     public Integer getLayer() {
-        return super.getInteger("layer");
+        return super.getInteger(AttributeKeys.LAYER);
     }
     public Integer getPositionInLayer() {
-        return super.getInteger("positionInLayer");
+        return super.getInteger(AttributeKeys.POSITION_IN_LAYER);
     }
     public Integer getLayer(int state) {
-        return super.getInteger(state, "layer");
+        return super.getInteger(state, AttributeKeys.LAYER);
     }
     public Integer getPositionInLayer(int state) {
-        return super.getInteger(state, "positionInLayer");
+        return super.getInteger(state, AttributeKeys.POSITION_IN_LAYER);
     }
     public void setLayer(Integer layer) throws Terminate {
-        super.set("layer", layer);
+        super.set(AttributeKeys.LAYER, layer);
     }
     public void setPositionInLayer(Integer positionInLayer) throws Terminate {
-        super.set("positionInLayer", positionInLayer);
+        super.set(AttributeKeys.POSITION_IN_LAYER, positionInLayer);
     }
 
     /**
@@ -227,10 +226,10 @@ public class Node extends GraphElement {
                 if ( xString == null || yString == null ) {
                     Random r = new Random();
                     if ( xString == null ) {
-                        x = r.nextInt(GraphDispatch.getInstance().getWindowWidth());
+                        x = r.nextInt(dispatch.getWindowWidth());
                     }
                     if ( yString == null ) {
-                        y = r.nextInt(GraphDispatch.getInstance().getWindowHeight());
+                        y = r.nextInt(dispatch.getWindowHeight());
                     }
                 }
                 else {
@@ -270,10 +269,10 @@ public class Node extends GraphElement {
 
     /**************** marking *******************/
 	public Boolean isVisited() {
-		return super.getBoolean(MARKED);
+		return super.getBoolean(AttributeKeys.MARKED);
 	}
 	public Boolean isVisited(int state) {
-		return super.getBoolean(state, MARKED);
+		return super.getBoolean(state, AttributeKeys.MARKED);
 	}
 
 	public boolean isMarked() {
@@ -284,20 +283,20 @@ public class Node extends GraphElement {
 	}
 
 	public void setVisited(Boolean visited) throws Terminate {
-        super.set(MARKED, visited);
+        super.set(AttributeKeys.MARKED, visited);
 	}
 
     public void mark() throws Terminate {
         setVisited(true);
     }
     public void unmark() throws Terminate {
-        clear(MARKED);
+        remove(AttributeKeys.MARKED);
     }
     /**
      * Some algorithms use this alternate "spelling"
      */
     public void unMark() throws Terminate {
-        clear(MARKED);
+        remove(AttributeKeys.MARKED);
     }
 
 
@@ -655,4 +654,4 @@ public class Node extends GraphElement {
 	}
 }
 
-//  [Last modified: 2017 01 19 at 15:08:14 GMT]
+//  [Last modified: 2026 10 17 at 20:14:37 GMT]
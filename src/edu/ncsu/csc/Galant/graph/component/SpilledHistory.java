@@ -0,0 +1,169 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * A file that holds the attributes of element states that are older than
+ * the history window of an animation, so that long animations can run in
+ * bounded memory. A spilled GraphElementState keeps its state number and
+ * the location of its attributes in the file; the attributes are read back
+ * -- through a memory mapping of a window of the file around them, so that
+ * the file may grow beyond what a single mapping can hold -- the first time
+ * they are needed, e.g., when the user steps back far enough. States that
+ * were read back are dropped again at the next trim; they need not be
+ * rewritten.
+ *
+ * The algorithm thread spills and the display reads back, so the methods
+ * that touch the file, the mapping or the list of states read back are
+ * synchronized.
+ *
+ * Each spilled state is a full snapshot, written in the binary form of
+ * AttributeList.writeDelta().
+ *
+ * The file is deleted when the graph is reset at the end of the animation.
+ */
+public class SpilledHistory {
+
+    private final AttributeKeys keys;
+    private final File file;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long size = 0;
+
+    /**
+     * The size of the window of the file that is mapped at a time
+     */
+    private static final long WINDOW = 1L << 26;
+
+    /**
+     * Mapping of the bytes mappedStart..mappedEnd-1 of the file; another
+     * window is mapped when a state outside of it is read.
+     */
+    private MappedByteBuffer mapped;
+    private long mappedStart = 0;
+    private long mappedEnd = 0;
+
+    /**
+     * States whose attributes were read back since the last trim
+     */
+    private ArrayList<GraphElementState> pagedIn
+        = new ArrayList<GraphElementState>();
+
+    private int statesSpilled = 0;
+
+    /**
+     * Creates a new, empty, file in the given directory
+     */
+    public SpilledHistory(AttributeKeys keys, File directory)
+        throws IOException {
+        this.keys = keys;
+        directory.mkdirs();
+        this.file = File.createTempFile("galant-history", ".bin", directory);
+        this.file.deleteOnExit();
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * Writes the attributes of the state to the file unless they are there
+     * already, and drops them from memory.
+     */
+    synchronized void spill(GraphElementState state) throws IOException {
+        if ( state.spillOffset < 0 ) {
+            byte[] bytes = encode(state.getAttributes());
+            channel.write(ByteBuffer.wrap(bytes), size);
+            state.spillOffset = size;
+            state.spillLength = bytes.length;
+            state.spilledTo = this;
+            size += bytes.length;
+            statesSpilled++;
+        }
+        state.attributes = null;
+    }
+
+    /**
+     * Drops the attributes of all states that were read back since the
+     * last call.
+     */
+    synchronized void dropPagedIn() {
+        for ( GraphElementState state : pagedIn ) {
+            state.attributes = null;
+        }
+        pagedIn.clear();
+    }
+
+    private byte[] encode(AttributeList list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        list.writeDelta(null, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the attributes of the state, read back from the file as a
+     * full snapshot
+     */
+    synchronized AttributeList read(GraphElementState state)
+        throws IOException {
+        long offset = state.spillOffset;
+        long end = offset + state.spillLength;
+        if ( mapped == null || offset < mappedStart || end > mappedEnd ) {
+            long start = offset - offset % WINDOW;
+            long stop = Math.min(size, Math.max(end, start + WINDOW));
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                                 start, stop - start);
+            mappedStart = start;
+            mappedEnd = stop;
+        }
+        ByteBuffer in = mapped.duplicate();
+        in.position((int) (offset - mappedStart));
+        byte[] bytes = new byte[state.spillLength];
+        in.get(bytes);
+        AttributeList list = new AttributeList(keys);
+        list.readDelta(new DataInputStream(new ByteArrayInputStream(bytes)),
+                       null);
+        pagedIn.add(state);
+        return list;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public long size() { return size; }
+
+    public int getStatesSpilled() { return statesSpilled; }
+
+    /**
+     * Closes and deletes the file; all states that are still needed must
+     * have been read back.
+     */
+    public synchronized void close() {
+        try {
+            mapped = null;
+            channel.close();
+            randomAccessFile.close();
+        }
+        catch ( IOException e ) {
+            // nothing to be done; the file is deleted on exit anyhow
+        }
+        file.delete();
+    }
+
+    public String toString() {
+        return statesSpilled + " states spilled to " + file
+            + ", " + size + " bytes";
+    }
+}
+
+//  [Last modified: 2026 10 18 at 03:24:41 GMT]
@@ -0,0 +1,179 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * The list of states that a graph or a graph element has been in, sorted by
+ * state number (time stamp). Every attribute lookup relative to a display
+ * state goes through atOrBefore(), so it matters that this is fast: the
+ * latest state is checked first -- it's the answer whenever the display has
+ * caught up with the algorithm -- and otherwise a binary search is used.
+ *
+ * A timeline may follow the reset epoch of its graph: Graph.reset() then
+ * only advances the epoch, in constant time, and every timeline drops the
+ * states after the initial ones -- those numbered 0 or less -- the next
+ * time it is used. The states of the previous run are thus invisible right
+ * away and reclaimed lazily. Since that may happen on a read, and the
+ * display reads while the algorithm does, catching up replaces the list
+ * rather than changing it.
+ *
+ * @invariant states are always sorted by state number and no two states
+ * have the same state number.
+ */
+public class StateTimeline<S extends TimeStamped> implements Iterable<S> {
+
+    /**
+     * The number of times the timelines that share it were reset
+     */
+    static final class Epoch {
+        private volatile int resets = 0;
+
+        void advance() { resets++; }
+    }
+
+    private volatile ArrayList<S> states;
+
+    private Epoch epoch = null;
+    private volatile int resets = 0;
+
+    public StateTimeline() { states = new ArrayList<S>(); }
+
+    /**
+     * Makes this timeline follow the given epoch; its current states are
+     * the ones of the current epoch.
+     */
+    void follow(Epoch epoch) {
+        this.epoch = epoch;
+        this.resets = epoch.resets;
+    }
+
+    /**
+     * Drops the states of earlier epochs if the timeline was reset since it
+     * was last used.
+     */
+    private void catchUp() {
+        if ( epoch == null || resets == epoch.resets ) return;
+        synchronized ( this ) {
+            int current = epoch.resets;
+            if ( resets == current ) return;
+            int index = search(0);
+            states = new ArrayList<S>(states.subList(0, index + 1));
+            resets = current;
+        }
+    }
+
+    public int size() { catchUp(); return states.size(); }
+    public boolean isEmpty() { catchUp(); return states.isEmpty(); }
+    public S get(int index) { catchUp(); return states.get(index); }
+    public Iterator<S> iterator() { catchUp(); return states.iterator(); }
+
+    /**
+     * @return the last state on the list or null if there is none
+     */
+    public S latest() {
+        catchUp();
+        int size = states.size();
+        return size == 0 ? null : states.get(size - 1);
+    }
+
+    /**
+     * @return the index of the latest state whose state number is at most
+     * stateNumber, or -1 if there is no such state
+     */
+    public int indexAtOrBefore(int stateNumber) {
+        catchUp();
+        return search(stateNumber);
+    }
+
+    private int search(int stateNumber) {
+        int high = states.size() - 1;
+        if ( high < 0 ) return -1;
+        // fast path: display state is at or beyond the latest change
+        if ( states.get(high).getState() <= stateNumber ) return high;
+        int low = 0;
+        while ( low <= high ) {
+            int mid = (low + high) >>> 1;
+            if ( states.get(mid).getState() <= stateNumber ) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Same as above, except that the search can be narrowed to the indices
+     * low..high, e.g., using keyframes. The bounds are only hints: a bound
+     * that turns out to be wrong is ignored, so the result is always
+     * correct.
+     */
+    public int indexAtOrBefore(int stateNumber, int low, int high) {
+        catchUp();
+        int last = states.size() - 1;
+        if ( last < 0 ) return -1;
+        if ( states.get(last).getState() <= stateNumber ) return last;
+        if ( low < 0 || low > last
+             || states.get(low).getState() > stateNumber ) low = 0;
+        if ( high < low || high >= last
+             || states.get(high + 1).getState() <= stateNumber ) high = last;
+        while ( low <= high ) {
+            int mid = (low + high) >>> 1;
+            if ( states.get(mid).getState() <= stateNumber ) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high;
+    }
+
+    /**
+     * @return the latest state that was created at or before the given time
+     * stamp, or null if there is none
+     */
+    public S atOrBefore(int stateNumber) {
+        int index = indexAtOrBefore(stateNumber);
+        return index < 0 ? null : states.get(index);
+    }
+
+    /**
+     * Adds the given state, replacing an existing one with the same state
+     * number if there is one.
+     * @return true if the state was appended, false if it replaced another
+     */
+    public boolean add(S stateToAdd) {
+        int stateNumber = stateToAdd.getState();
+        int index = indexAtOrBefore(stateNumber);
+        if ( index >= 0 && states.get(index).getState() == stateNumber ) {
+            states.set(index, stateToAdd);
+            return false;
+        }
+        states.add(index + 1, stateToAdd);
+        return true;
+    }
+
+    /**
+     * Removes the states at the indices for which drop[index] is true, in
+     * time linear in the number of states.
+     * @return the number of states removed
+     */
+    public int removeAll(boolean[] drop) {
+        catchUp();
+        int kept = 0;
+        for ( int i = 0; i < states.size(); i++ ) {
+            if ( i >= drop.length || ! drop[i] ) {
+                states.set(kept++, states.get(i));
+            }
+        }
+        int removed = states.size() - kept;
+        states.subList(kept, states.size()).clear();
+        return removed;
+    }
+
+    /**
+     * Removes all states whose state number is greater than stateNumber.
+     */
+    public void truncateAfter(int stateNumber) {
+        int index = indexAtOrBefore(stateNumber);
+        states.subList(index + 1, states.size()).clear();
+        states.trimToSize();
+    }
+}
+
+//  [Last modified: 2026 10 18 at 02:14:37 GMT]
@@ -0,0 +1,14 @@
+package edu.ncsu.csc.Galant.graph.component;
+
+/**
+ * Anything that is tagged with the algorithm state (time stamp) in which it
+ * was created, i.e., a GraphState or a GraphElementState.
+ */
+public interface TimeStamped {
+    /**
+     * @return the sequence number (algorithm state) of this object
+     */
+    int getState();
+}
+
+//  [Last modified: 2026 10 17 at 09:12:40 GMT]
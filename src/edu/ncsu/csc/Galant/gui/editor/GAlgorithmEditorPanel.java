@@ -1,18 +1,33 @@
 package edu.ncsu.csc.Galant.gui.editor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 
 import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Element;
+import javax.swing.text.Highlighter;
 import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import edu.ncsu.csc.Galant.GalantPreferences;
 import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.code.BackgroundCompiler;
 import edu.ncsu.csc.Galant.algorithm.code.CodeIntegrator;
 import edu.ncsu.csc.Galant.algorithm.code.CompilationException;
 import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
@@ -30,6 +45,12 @@ import edu.ncsu.csc.Galant.algorithm.AlgorithmSynchronizer;
  * The panel displays in the GTabbedPane and provides all the graphical interface
  * for the algorithm edit session, including the Compile and Run buttons.
  *
+ * Unless {@link GalantPreferences#COMPILE_WHILE_EDITING} is turned off,
+ * the algorithm is compiled in the background whenever the user pauses
+ * while editing it: the lines with errors are highlighted, with the
+ * messages as their tool tips, and code that compiles can be run right
+ * away, without compiling it again.
+ *
  * Compare to GGraphEditorPanel.
  *
  * @author Jason Cockrell
@@ -44,10 +65,30 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
    */
   private static final int MAX_LINES_IN_ERROR_DISPLAY = 1;
 
+  /**
+   * milliseconds after the latest edit when the algorithm is compiled in
+   * the background
+   */
+  private static final int COMPILE_DELAY = 500;
+
+  private static final Highlighter.HighlightPainter ERROR_PAINTER
+    = new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 205, 205));
+
   /** Should always be accessed through getter/setter */
   private Algorithm compiledAlgorithm;
+  /** the code that compiledAlgorithm was compiled from */
+  private String compiledText;
   private RunButton runButton;
 
+  /** started again by every edit; compiles when it goes off */
+  private Timer compileTimer;
+  /** the outcome of the latest compilation */
+  private JLabel statusLabel;
+  /** highlights of the lines with errors */
+  private List<Object> errorHighlights = new ArrayList<Object>();
+  /** the error messages for each line with errors, counting from 1 */
+  private Map<Integer, String> errorMessages = new HashMap<Integer, String>();
+
   /**
    * Create a new edit session of an algorithm.
    * @param gTabbedPane The parent tabbed pane, of which there is only ever one.
@@ -58,7 +99,15 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
    */
   public GAlgorithmEditorPanel(GTabbedPane gTabbedPane, String filename, String content) {
     super(gTabbedPane, filename, content);
-    add(new ButtonsPanel(), BorderLayout.SOUTH);
+    JPanel southPanel = new JPanel( new BorderLayout() );
+    statusLabel = new JLabel(" ");
+    southPanel.add(statusLabel, BorderLayout.NORTH);
+    southPanel.add(new ButtonsPanel(), BorderLayout.CENTER);
+    add(southPanel, BorderLayout.SOUTH);
+    compileTimer = new Timer(COMPILE_DELAY, new ActionListener() {
+        public void actionPerformed(ActionEvent e) { compileInBackground(); }
+      });
+    compileTimer.setRepeats(false);
     syntaxHighlighter = new GAlgorithmSyntaxHighlighting(textPane);
     documentUpdated();
     setCompiledAlgorithm(null);
@@ -77,20 +126,155 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
    * @param compiledAlgorithm the new compiledAlgorithm.
    */
   private void setCompiledAlgorithm(Algorithm compiledAlgorithm) {
+    // nothing else refers to the algorithm being replaced; without this
+    // every compilation while editing would be kept until the end
+    if ( this.compiledAlgorithm != null )
+      Algorithm.algorithms.remove(this.compiledAlgorithm);
     this.compiledAlgorithm = compiledAlgorithm;
     runButton.setEnabled(compiledAlgorithm != null);
   }
 
+  /**
+   * Compiles the algorithm, unless the current code has already been
+   * compiled; the outcome is shown when it is known.
+   */
+  private void compileInBackground() {
+    String text = textPane.getText();
+    if ( getCompiledAlgorithm() != null && text.equals(compiledText) )
+      return;
+    showStatus("Compiling ...", false);
+    BackgroundCompiler.getInstance().submit(this, fileName, text,
+                                            new BackgroundCompiler.Listener() {
+        public void compiled(final BackgroundCompiler.Job job) {
+          SwingUtilities.invokeLater(new Runnable() {
+              public void run() { showCompiled(job); }
+            });
+        }
+      });
+  }
+
+  /**
+   * Shows the outcome of a compilation in the background, and keeps the
+   * algorithm if it compiled; nothing happens if the code has been edited
+   * since.
+   */
+  private void showCompiled(BackgroundCompiler.Job job) {
+    if ( ! job.getCode().equals( textPane.getText() ) )
+      return;
+    Exception error = job.getError();
+    if ( error instanceof CompilationException ) {
+      setCompiledAlgorithm(null);
+      showErrors( (CompilationException) error );
+    }
+    else if ( error != null || ! job.isCompiled() ) {
+      setCompiledAlgorithm(null);
+      clearErrors();
+      String message = error == null ? null : error.getMessage();
+      showStatus(message == null ? "Could not compile" : message, true);
+    }
+    else {
+      // the algorithm is loaded only now, on the event thread, so that
+      // outdated compilations never get into Algorithm.algorithms
+      setCompiledAlgorithm( job.newAlgorithm() );
+      compiledText = job.getCode();
+      clearErrors();
+      if ( getCompiledAlgorithm() == null )
+        showStatus("Could not load", true);
+      else
+        showStatus("No errors", false);
+    }
+  }
+
+  private void showStatus(String status, boolean isError) {
+    statusLabel.setForeground(isError ? Color.RED : Color.DARK_GRAY);
+    statusLabel.setText(status);
+  }
+
+  private void clearErrors() {
+    for ( Object highlight : errorHighlights )
+      textPane.getHighlighter().removeHighlight(highlight);
+    errorHighlights.clear();
+    errorMessages.clear();
+  }
+
+  /**
+   * Highlights the lines with errors and shows the first error in the
+   * status line.
+   */
+  private void showErrors(CompilationException e) {
+    clearErrors();
+    Element root = textPane.getDocument().getDefaultRootElement();
+    String first = null;
+    int count = 0;
+    for ( Diagnostic<? extends JavaFileObject> diagnostic :
+            e.getDiagnostics().getDiagnostics() ) {
+      if ( diagnostic.getKind() != Diagnostic.Kind.ERROR ) continue;
+      int line = Math.max(1, Math.min(e.getAlgorithmLine(diagnostic),
+                                      root.getElementCount()));
+      String message = diagnostic.getMessage(null);
+      if ( first == null )
+        first = "Line " + line + ": " + message.split("\n")[0];
+      count++;
+      if ( errorMessages.containsKey(line) )
+        errorMessages.put(line, errorMessages.get(line) + "\n" + message);
+      else {
+        errorMessages.put(line, message);
+        Element element = root.getElement(line - 1);
+        try {
+          errorHighlights.add( textPane.getHighlighter().addHighlight(element.getStartOffset(),
+                                                                      element.getEndOffset(),
+                                                                      ERROR_PAINTER) );
+        } catch ( BadLocationException ble ) { }
+      }
+    }
+    if ( first == null )
+      showStatus("Could not compile", true);
+    else
+      showStatus(count == 1 ? first
+                 : first + "  (" + (count - 1) + " more)", true);
+  }
+
+  @Override
+  protected String getDiagnosticAt(int offset) {
+    int line = textPane.getDocument().getDefaultRootElement().getElementIndex(offset) + 1;
+    String messages = errorMessages.get(line);
+    if ( messages == null ) return null;
+    return "<html>" + messages.replace("&", "&amp;").replace("<", "&lt;")
+      .replace(">", "&gt;").replace("\n", "<br>") + "</html>";
+  }
+
+  /**
+   * Cancels the compilation of the code before the edit, and compiles the
+   * code after it once the user pauses.
+   */
+  @Override
+  protected void documentUpdated() {
+    super.documentUpdated();
+    BackgroundCompiler.getInstance().cancel(this);
+    if ( GalantPreferences.COMPILE_WHILE_EDITING.get() )
+      compileTimer.restart();
+    else
+      compileTimer.stop();
+  }
+
   /**
    * Called when the user presses the Compile button.
    * @return Whether the algorithm compiled into an executable correctly.
    */
   public boolean compile() {
+    compileTimer.stop();
+    BackgroundCompiler.getInstance().cancel(this);
+    String text = textPane.getText();
+    // compiled in the background already
+    if ( getCompiledAlgorithm() != null && text.equals(compiledText) )
+      return true;
     LogHelper.disable();
     LogHelper.enterMethod(getClass(), "compile");
     try {
-      setCompiledAlgorithm( CodeIntegrator.integrateCode( fileName,
-                                                          textPane.getText() ) );
+      setCompiledAlgorithm( CodeIntegrator.integrateCode(fileName, text) );
+      compiledText = text;
+      clearErrors();
+      showStatus(getCompiledAlgorithm() == null ? " " : "No errors", false);
       LogHelper.exitMethod(getClass(), "compile");
       LogHelper.restoreState();
       return true;
@@ -101,11 +285,12 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
       // int displayLineCount = 0;
       for ( Diagnostic<?> diagnostic :
             e.getDiagnostics().getDiagnostics() ) {
-        long line = diagnostic.getLineNumber();
+        long line = e.getAlgorithmLine(diagnostic);
         String message = diagnostic.getMessage(null);
         System.out.println("Error, line " + line + ": " + message);
         forDisplay += line + " " + message + "<br>";
       }
+      showErrors(e);
       ExceptionDialog.displayExceptionInDialog(e, forDisplay + "</html>");
       LogHelper.exitMethod(getClass(), "compile [CompilationException]");
       LogHelper.restoreState();
@@ -113,6 +298,8 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
     }
     catch ( MalformedMacroException e ) {
       setCompiledAlgorithm(null);
+      clearErrors();
+      showStatus(e.getMessage(), true);
       ExceptionDialog.displayExceptionInDialog( e, e.getMessage() );
       LogHelper.disable();
       LogHelper.exitMethod(getClass(), "compile [MalformedMacroException]");
@@ -148,8 +335,11 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
     dispatch.setAlgorithmSynchronizer(algorithmSynchronizer);
     dispatch.setAlgorithmExecutor(algorithmExecutor);
     dispatch.getGraphWindow().updateStatusLabel();
-    algorithmExecutor.startAlgorithm();
-    dispatch.getGraphWindow().updateStatusLabel();
+    // the first step executes the algorithm, off the event thread
+    final AlgorithmExecutor executor = algorithmExecutor;
+    dispatch.getGraphWindow().runAlgorithmStep(new Runnable() {
+        public void run() { executor.startAlgorithm(); }
+      });
   }
 
   /**
@@ -213,4 +403,4 @@ public class GAlgorithmEditorPanel extends GEditorPanel {
 
 }
 
-// [Last modified: 2017 03 07 at 17:42:02 GMT]
+// [Last modified: 2026 10 18 at 01:54:12 GMT]
@@ -19,6 +19,9 @@ import edu.ncsu.csc.Galant.Galant;
 import edu.ncsu.csc.Galant.GalantException;
 import edu.ncsu.csc.Galant.GalantPreferences;
 import edu.ncsu.csc.Galant.GraphDispatch;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmExecutor;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmSynchronizer;
+import edu.ncsu.csc.Galant.graph.component.AnimationTrace;
 import edu.ncsu.csc.Galant.graph.component.Graph;
 import edu.ncsu.csc.Galant.graph.parser.GraphMLParser;
 import edu.ncsu.csc.Galant.gui.editor.GTabbedPane.AlgorithmOrGraph;
@@ -42,6 +45,8 @@ public class GEditorFrame extends JFrame implements WindowListener {
   public static final int DEFAULT_WIDTH = 750;
   public static final int DEFAULT_HEIGHT = 600;
 
+  public static final String TRACE_EXTENSION = "trace";
+
   private static GEditorFrame singleton;
 
   private final GTabbedPane tabbedPane;
@@ -144,6 +149,85 @@ public class GEditorFrame extends JFrame implements WindowListener {
     }
   }
 
+  /**
+   * Saves the animation that is running, as far as it has gone, to a trace
+   * file that can be replayed later without running the algorithm. The
+   * algorithm has to be paused or finished; the trace is written under the
+   * read lock of the graph so that it cannot change in the meantime.
+   */
+  public void saveTrace() throws GalantException {
+    GraphDispatch dispatch = GraphDispatch.getInstance();
+    AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
+    if ( ! dispatch.isAnimationMode() || executor == null )
+      throw new GalantException("No animation to save - run an algorithm first");
+    checkPaused(dispatch);
+
+    jfc.setFileFilter( new FileNameExtensionFilter("Animation Trace", TRACE_EXTENSION) );
+    jfc.setCurrentDirectory( GalantPreferences.DEFAULT_DIRECTORY.get() );
+    int returnVal = jfc.showSaveDialog(this);
+    if ( returnVal == JFileChooser.APPROVE_OPTION ) {
+      File file = jfc.getSelectedFile();
+      if ( ! file.getName().endsWith("." + TRACE_EXTENSION) )
+        file = new File(file.getPath() + "." + TRACE_EXTENSION);
+      // the algorithm may have been resumed while the dialog was up; the
+      // synchronizer is asked before the graph is locked, never after
+      checkPaused(dispatch);
+      Graph graph = dispatch.getWorkingGraph();
+      graph.readLock().lock();
+      try {
+        AnimationTrace.write(graph, executor.getAlgorithmState(), file);
+      } catch ( IOException e ) { ExceptionDialog.displayExceptionInDialog(e); }
+      finally {
+        graph.readLock().unlock();
+      }
+    }
+  }
+
+  private static void checkPaused(GraphDispatch dispatch)
+    throws GalantException {
+    AlgorithmSynchronizer synchronizer = dispatch.getAlgorithmSynchronizer();
+    if ( synchronizer != null && ! synchronizer.algorithmIdle() )
+      throw new GalantException("The algorithm is running - save the animation when it pauses");
+  }
+
+  /**
+   * Loads a trace file saved from the working graph and starts its
+   * animation; nothing is compiled or run.
+   */
+  public void replayTrace() throws GalantException {
+    GraphDispatch dispatch = GraphDispatch.getInstance();
+    if ( dispatch.isAnimationMode() )
+      throw new GalantException("An animation is already running - stop it first");
+    Graph graph = dispatch.getWorkingGraph();
+    if ( graph == null )
+      throw new GalantException("No graph to replay the trace on");
+
+    jfc.setFileFilter( new FileNameExtensionFilter("Animation Trace", TRACE_EXTENSION) );
+    jfc.setCurrentDirectory( GalantPreferences.DEFAULT_DIRECTORY.get() );
+    int returnVal = jfc.showOpenDialog(this);
+    if ( returnVal == JFileChooser.APPROVE_OPTION
+         && jfc.getSelectedFile().isFile() ) {
+      int lastState;
+      try {
+        // the trace has to be in place before animation mode is turned on
+        graph.getKeyframes().reset(GalantPreferences.KEYFRAME_INTERVAL.get());
+        lastState = AnimationTrace.read(graph, jfc.getSelectedFile());
+      } catch ( IOException e ) {
+        ExceptionDialog.displayExceptionInDialog(e);
+        return;
+      }
+      dispatch.setAnimationMode(true);
+      AlgorithmSynchronizer algorithmSynchronizer = new AlgorithmSynchronizer();
+      AlgorithmExecutor algorithmExecutor
+        = new AlgorithmExecutor(algorithmSynchronizer);
+      dispatch.setAlgorithmSynchronizer(algorithmSynchronizer);
+      dispatch.setAlgorithmExecutor(algorithmExecutor);
+      dispatch.getGraphWindow().updateStatusLabel();
+      algorithmExecutor.startReplay(lastState);
+      dispatch.getGraphWindow().updateStatusLabel();
+    }
+  }
+
   public void saveAs() throws GalantException {
     GEditorPanel gaep = tabbedPane.getSelectedPanel();
     if ( gaep == null )
@@ -256,4 +340,4 @@ public class GEditorFrame extends JFrame implements WindowListener {
   public void windowOpened(WindowEvent e) { }
 }
 
-// [Last modified: 2017 07 25 at 19:31:20 GMT]
+// [Last modified: 2026 10 18 at 04:12:44 GMT]
@@ -38,6 +38,8 @@ public class GEditorMenuBar extends JMenuBar {
       add( new GSaveItem() );
       add( new GSaveAsItem() );
       add( new GLoadCompiledAlgorithm() );
+      add( new GSaveTraceItem() );
+      add( new GReplayTraceItem() );
       add( PreferencesPanel.SHOW_PREFS_DIALOG);
       add( WindowUtil.QUIT_ACTION);
     }
@@ -106,6 +108,38 @@ public class GEditorMenuBar extends JMenuBar {
       parentFrame.loadCompiledAlgorithm();
       /* parentFrame.open(); */ }
   }
+  class GSaveTraceItem extends JMenuItem implements ActionListener {
+    public GSaveTraceItem() {
+      super("<html>Save Animation Trace&hellip;</html>"); addActionListener(this);
+      setMnemonic(KeyEvent.VK_T);
+    }
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      try {
+        parentFrame.saveTrace();
+      }
+      catch ( GalantException ge ) {
+        ge.report("");
+        ExceptionDialog.displayExceptionInDialog( ge, ge.getMessage() );
+      }
+    }
+  }
+  class GReplayTraceItem extends JMenuItem implements ActionListener {
+    public GReplayTraceItem() {
+      super("<html>Replay Animation Trace&hellip;</html>"); addActionListener(this);
+      setMnemonic(KeyEvent.VK_R);
+    }
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      try {
+        parentFrame.replayTrace();
+      }
+      catch ( GalantException ge ) {
+        ge.report("");
+        ExceptionDialog.displayExceptionInDialog( ge, ge.getMessage() );
+      }
+    }
+  }
 }
 
-// [Last modified: 2016 12 11 at 17:32:28 GMT]
+// [Last modified: 2026 10 17 at 14:52:30 GMT]
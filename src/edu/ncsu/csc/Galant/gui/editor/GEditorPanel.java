@@ -91,6 +91,8 @@ public abstract class GEditorPanel extends JPanel implements DocumentListener,
     textPane = new JTextPane() {
       @Override
       public String getToolTipText(MouseEvent me) {
+        String diagnostic = getDiagnosticAt( viewToModel( me.getPoint() ) );
+        if ( diagnostic != null ) return diagnostic;
         String content = (getText() + "  ").replace("\r\n", "\n");
         viewToModel( me.getPoint() );
         try {
@@ -157,6 +159,12 @@ public abstract class GEditorPanel extends JPanel implements DocumentListener,
     LogHelper.exitConstructor( getClass() );
   }
 
+  /**
+   * @return the compilation errors to show as the tool tip at the given
+   * offset of the text, null if there are none
+   */
+  protected String getDiagnosticAt(int offset) { return null; }
+
   protected void documentUpdated() {
     if ( syntaxHighlighter != null )
       try {
@@ -251,4 +259,4 @@ public abstract class GEditorPanel extends JPanel implements DocumentListener,
   }
 }
 
-// [Last modified: 2017 02 09 at 15:29:56 GMT]
+// [Last modified: 2026 10 17 at 23:29:47 GMT]
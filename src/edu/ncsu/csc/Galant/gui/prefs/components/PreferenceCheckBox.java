@@ -0,0 +1,36 @@
+package edu.ncsu.csc.Galant.gui.prefs.components;
+
+import javax.swing.JCheckBox;
+
+import edu.ncsu.csc.Galant.gui.prefs.PreferenceComponent;
+import edu.ncsu.csc.Galant.prefs.Preference;
+
+/**
+ * Enables users to turn a boolean preference on or off via a JCheckBox
+ */
+public class PreferenceCheckBox extends PreferenceComponent<Boolean, JCheckBox>
+	{
+		/**
+		 * Creates a new <code>PreferenceCheckBox</code> for the given preference.
+		 * @param preference the {@link Preference} that this component is associated with.
+		 */
+		public PreferenceCheckBox(Preference<Boolean> preference)
+			{
+				super(preference, new JCheckBox());
+				getComponent().setSelected(preference.getDefaultValue());
+			}
+
+		@Override
+		protected Boolean getValue()
+			{
+				return getComponent().isSelected();
+			}
+
+		@Override
+		protected void setValue(Boolean value)
+			{
+				getComponent().setSelected(value);
+			}
+	}
+
+//  [Last modified: 2026 10 17 at 20:31:05 GMT]
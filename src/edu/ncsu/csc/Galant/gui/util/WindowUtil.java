@@ -85,7 +85,15 @@ public class WindowUtil
 							}
 							int state = gd.getAlgorithmExecutor().getDisplayState();
 							outfile = new FileWriter(file);
-							outfile.write(g.xmlString(state));
+							String xml;
+							g.readLock().lock();
+							try {
+								xml = g.xmlString(state);
+							}
+							finally {
+								g.readLock().unlock();
+							}
+							outfile.write(xml);
 						} catch (Exception ex) {
 							ExceptionDialog.displayExceptionInDialog(ex);
 						} finally {
@@ -220,4 +228,4 @@ public class WindowUtil
 			}
 	}
 
-//  [Last modified: 2016 12 15 at 01:47:00 GMT]
+//  [Last modified: 2026 10 18 at 02:14:37 GMT]
@@ -11,6 +11,7 @@
 package edu.ncsu.csc.Galant.gui.window;
 
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.GridLayout;
@@ -46,15 +47,20 @@ import javax.swing.JPanel;
 import javax.swing.JToggleButton;
 import javax.swing.JToolBar;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 import javax.swing.JOptionPane;
 
 import edu.ncsu.csc.Galant.Galant;
 import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.graph.component.Edge;
+import edu.ncsu.csc.Galant.graph.component.FrameDiff;
 import edu.ncsu.csc.Galant.graph.component.Graph;
+import edu.ncsu.csc.Galant.graph.component.GraphElement;
+import edu.ncsu.csc.Galant.graph.component.MemoryUsage;
 import edu.ncsu.csc.Galant.graph.component.Node;
 import edu.ncsu.csc.Galant.gui.prefs.PreferencesPanel;
+import edu.ncsu.csc.Galant.gui.util.ExceptionDialog;
 import edu.ncsu.csc.Galant.gui.util.WindowUtil;
 import edu.ncsu.csc.Galant.gui.util.DoubleQuery;
 import edu.ncsu.csc.Galant.gui.window.panels.ComponentEditPanel;
@@ -105,6 +111,20 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
     return stepBack;
   }
   private final JButton done;
+  private final JButton nextChange;
+  private final JButton runToEnd;
+
+  /**
+   * The attribute whose changes nextChange jumps to
+   */
+  private String changeAttribute = GraphElement.WEIGHT;
+
+  /**
+   * true while the algorithm executes a step in the background; further
+   * steps are ignored until it is done
+   * @see #runAlgorithmStep(Runnable)
+   */
+  private boolean stepInProgress = false;
 	
   private ButtonGroup modeGroup = new ButtonGroup();
   private JToggleButton select;
@@ -146,11 +166,33 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
     else if ( executor.infiniteLoop )
       updateStatusLabel("Terminated because of possible infinite loop");
     else {
-      int algorithmState = executor.getAlgorithmState();
-      int displayState = executor.getDisplayState();
-      String message = "algorithm state is "
-        + algorithmState + ", display state is " + displayState;
+      Graph graph = dispatch.getWorkingGraph();
+      String message;
+      String report = null;
+      if ( graph != null ) graph.readLock().lock();
+      try {
+        int algorithmState = executor.getAlgorithmState();
+        int displayState = executor.getDisplayState();
+        message = "algorithm state is "
+          + algorithmState + ", display state is " + displayState;
+        FrameDiff changes = executor.getLastStepChanges();
+        if ( ! changes.isEmpty() ) message += "; " + changes.summary();
+        MemoryUsage usage
+          = ( graph == null ) ? null : graph.getLastMemoryUsage();
+        if ( usage != null ) {
+          message += "; history " + usage.summary();
+          if ( graph.isOverMemoryBudget() ) {
+            message += ", over the budget of "
+              + MemoryUsage.format(graph.getMemoryBudget());
+            report = "<html><pre>" + usage + "</pre></html>";
+          }
+        }
+      }
+      finally {
+        if ( graph != null ) graph.readLock().unlock();
+      }
       statusLabel.setText(message);
+      statusLabel.setToolTipText(report);
     }
   }
 
@@ -462,6 +504,10 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
     stepBack.setToolTipText("Step Backward\n[<-]");
     done = new JButton(new ImageIcon(GraphWindow.class.getResource("images/close_24.png")));
     done.setToolTipText("Exit Animation\n[Esc]");
+    nextChange = new JButton("Next Change");
+    nextChange.setToolTipText("Jump to the next change of an attribute of the selected node, or of any node or edge\n[N]");
+    runToEnd = new JButton("Run to End");
+    runToEnd.setToolTipText("Run the algorithm to the end, recording every step\n[End]");
     
     componentEditPanel = new ComponentEditPanel();
     componentEditPanel.setVisible(false);
@@ -562,6 +608,7 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
         componentEditPanel.setWorkingComponent(null);
         stepForward.setEnabled(true);
         stepBack.setEnabled(false);
+        runToEnd.setEnabled(true);
         animationButtons.setVisible(true);
         animationButtons.setFocusable(true);
         animationButtons.requestFocusInWindow();
@@ -781,22 +828,153 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
 
   private synchronized void performStepBack() {
     AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
-    if ( ! executor.hasPreviousState() ) return;
+    if ( stepInProgress || ! executor.hasPreviousState() ) return;
     executor.decrementDisplayState();
     stepForward.setEnabled(executor.hasNextState());
     stepBack.setEnabled(executor.hasPreviousState());
+    runToEnd.setEnabled(executor.hasNextState());
     updateStatusLabel();
   }
 
   private synchronized void performStepForward() {
-    AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
-    if ( ! executor.hasNextState() ) return;
+    final AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
+    if ( stepInProgress || ! executor.hasNextState() ) return;
+    if ( executor.nextStepRunsAlgorithm() ) {
+      runAlgorithmStep(new Runnable() {
+          public void run() { executor.incrementDisplayState(); }
+        });
+      return;
+    }
     executor.incrementDisplayState();
     stepForward.setEnabled(executor.hasNextState());
     stepBack.setEnabled(executor.hasPreviousState());
+    runToEnd.setEnabled(executor.hasNextState());
     updateStatusLabel();
   }
 
+  /**
+   * Moves the display to the next state in which the attribute
+   * changeAttribute changed, for the selected node if there is one and for
+   * any node or edge otherwise.
+   * @param ask whether to ask the user for the attribute first; the
+   * dialog is shown before the window is locked for the step
+   */
+  private void performNextChange(boolean ask) {
+    String key = null;
+    if ( ask ) {
+      key = JOptionPane.showInputDialog(frame,
+                                        "Jump to the next change of attribute",
+                                        changeAttribute);
+      if ( key == null || key.trim().isEmpty() ) return;
+    }
+    jumpToNextChange(key);
+  }
+
+  /**
+   * @param key the attribute to look for from now on, null to keep the
+   * current one
+   */
+  private synchronized void jumpToNextChange(String key) {
+    final AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
+    Graph graph = dispatch.getWorkingGraph();
+    if ( executor == null || graph == null || stepInProgress ) return;
+    if ( key != null ) changeAttribute = key.trim();
+    Node node = graphPanel.getSelectedNode();
+    int displayState = executor.getDisplayState();
+    final int next;
+    graph.readLock().lock();
+    try {
+      next = ( node != null )
+        ? node.nextChange(changeAttribute, displayState)
+        : graph.nextChange(changeAttribute, displayState);
+    }
+    finally {
+      graph.readLock().unlock();
+    }
+    if ( next < 0 ) {
+      updateStatusLabel("No later change of " + changeAttribute
+                        + ( node != null ? " for node " + node.getId() : "" )
+                        + " so far");
+      return;
+    }
+    if ( next > executor.getAlgorithmState() ) {
+      runAlgorithmStep(new Runnable() {
+          public void run() { executor.seekDisplayState(next); }
+        });
+      return;
+    }
+    executor.seekDisplayState(next);
+    stepForward.setEnabled(executor.hasNextState());
+    stepBack.setEnabled(executor.hasPreviousState());
+    runToEnd.setEnabled(executor.hasNextState());
+    updateStatusLabel();
+  }
+
+  /**
+   * Has the algorithm run to the end without pausing and moves the
+   * display to the last state.
+   * @see AlgorithmExecutor#runToCompletion()
+   */
+  private synchronized void performRunToEnd() {
+    final AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
+    if ( executor == null || stepInProgress || ! executor.hasNextState() )
+      return;
+    runAlgorithmStep(new Runnable() {
+        public void run() { executor.runToCompletion(); }
+      });
+  }
+
+  /**
+   * Runs a move of the display that has the algorithm execute, e.g.,
+   * AlgorithmExecutor.incrementDisplayState() when the display has caught
+   * up with the algorithm, off the event thread, so that the window stays
+   * responsive -- the user can quit -- while the algorithm takes its step;
+   * the animation controls are disabled until the step is done.
+   */
+  public synchronized void runAlgorithmStep(final Runnable move) {
+    stepInProgress = true;
+    // the display shows the state before the step until it is done,
+    // rather than the one the algorithm is working on; it reads the graph
+    // under its lock meanwhile, see GraphPanel.paintComponent()
+    final AlgorithmExecutor stepExecutor = dispatch.getAlgorithmExecutor();
+    if ( stepExecutor != null ) stepExecutor.holdDisplay();
+    stepForward.setEnabled(false);
+    stepBack.setEnabled(false);
+    nextChange.setEnabled(false);
+    runToEnd.setEnabled(false);
+    new SwingWorker<Void, Void>() {
+      @Override
+      protected Void doInBackground() {
+        move.run();
+        return null;
+      }
+
+      @Override
+      protected void done() {
+        if ( stepExecutor != null ) stepExecutor.releaseDisplay();
+        stepInProgress = false;
+        try {
+          get();
+        }
+        catch ( ExecutionException e ) {
+          ExceptionDialog.displayExceptionInDialog(e.getCause());
+        }
+        catch ( InterruptedException e ) {
+          ExceptionDialog.displayExceptionInDialog(e);
+        }
+        AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
+        if ( executor != null ) {
+          stepForward.setEnabled(executor.hasNextState());
+          stepBack.setEnabled(executor.hasPreviousState());
+          runToEnd.setEnabled(executor.hasNextState());
+        }
+        nextChange.setEnabled(true);
+        updateStatusLabel();
+        frame.repaint();
+      }
+    }.execute();
+  }
+
   public synchronized void performDone() {
     AlgorithmExecutor executor = dispatch.getAlgorithmExecutor();
     // does not appear to help in case of infinite loop
@@ -836,6 +1014,21 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
         }
       });
 		
+    nextChange.addActionListener(new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+          performNextChange(true);
+          frame.repaint();
+        }
+      });
+
+    runToEnd.addActionListener(new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+          performRunToEnd();
+        }
+      });
+
     // Exit the animation and change back to Edit mode
     done.addActionListener(new ActionListener() {
         @Override
@@ -846,6 +1039,8 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
     
     animationButtons.add(stepBack);
     animationButtons.add(stepForward);
+    animationButtons.add(nextChange);
+    animationButtons.add(runToEnd);
     animationButtons.add(done);
     animationButtons.setMaximumSize(new Dimension(DEFAULT_WIDTH, ANIMATION_BUTTON_SIZE));
     animationButtons.setMinimumSize(new Dimension(DEFAULT_WIDTH, ANIMATION_BUTTON_SIZE));
@@ -935,6 +1130,23 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
             LogHelper.exitMethod(getClass(), "step forward");
             return true;
           }
+          // "N" jump to the next change of the last attribute asked for
+          if ( dispatch.isAnimationMode()
+               && e.getID() == KeyEvent.KEY_PRESSED
+               && e.getKeyCode() == KeyEvent.VK_N ) {
+            performNextChange(false);
+            frame.repaint();
+            LogHelper.exitMethod(getClass(), "next change");
+            return true;
+          }
+          // "End" run the algorithm to the end
+          if ( dispatch.isAnimationMode()
+               && e.getID() == KeyEvent.KEY_PRESSED
+               && e.getKeyCode() == KeyEvent.VK_END ) {
+            performRunToEnd();
+            LogHelper.exitMethod(getClass(), "run to end");
+            return true;
+          }
           // "Esc" leave animation mode when in animation mode
           if ( dispatch.isAnimationMode()
                && e.getID() == KeyEvent.KEY_PRESSED
@@ -1144,4 +1356,4 @@ public class GraphWindow extends JPanel implements PropertyChangeListener, Compo
   }
 }
 
-//  [Last modified: 2017 03 13 at 19:31:25 GMT]
+//  [Last modified: 2026 10 18 at 03:38:50 GMT]
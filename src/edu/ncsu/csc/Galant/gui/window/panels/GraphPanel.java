@@ -38,6 +38,7 @@ import edu.ncsu.csc.Galant.graph.component.Edge;
 import edu.ncsu.csc.Galant.graph.component.Node;
 import edu.ncsu.csc.Galant.graph.component.Graph;
 import edu.ncsu.csc.Galant.graph.component.GraphElementState;
+import edu.ncsu.csc.Galant.graph.datastructure.EdgeList;
 import edu.ncsu.csc.Galant.gui.window.GraphWindow;
 import edu.ncsu.csc.Galant.gui.window.GraphWindow.GraphDisplays;
 import edu.ncsu.csc.Galant.logging.LogHelper;
@@ -311,8 +312,16 @@ public class GraphPanel extends JPanel{
     Timer.drawingTime.stop();
   }
 
+    /**
+     * The graph is drawn under its read lock: the algorithm may be taking a
+     * step off the event thread in the meantime, see
+     * GraphWindow.runAlgorithmStep(), and the display state stays the one
+     * shown before the step until it is done.
+     */
 	@Override
 	public void paintComponent(Graphics g) {
+        Graph locked = dispatch.getWorkingGraph();
+        if ( locked != null ) locked.readLock().lock();
         try {
             // Get the graph to draw
             Graph graph = dispatch.getWorkingGraph();
@@ -359,6 +368,9 @@ public class GraphPanel extends JPanel{
         catch (GalantException e) {
             e.report( "error while redrawing" );
         }
+        finally {
+            if ( locked != null ) locked.readLock().unlock();
+        }
     }
 
     /**
@@ -548,7 +560,7 @@ public class GraphPanel extends JPanel{
         } // end, draw node label
 			
         if ( weightVisible(n) ) {
-            String weight = doubleToString(n.getWeight(stateNumber));
+            String weight = doubleToString(n.getWeightValue(stateNumber));
             TextLayout layout = new TextLayout( weight, NODE_WEIGHT_FONT,
                                                 g2d.getFontRenderContext() );
             Rectangle2D bounds = layout.getBounds();
@@ -705,7 +717,7 @@ public class GraphPanel extends JPanel{
             if ( labelVisible(e) )
                 drawEdgeLabel(e.getLabel(stateNumber), p1, p2, g2d);
             if ( weightVisible(e) )
-                drawEdgeWeight(e.getWeight(stateNumber), p1, p2, g2d);
+                drawEdgeWeight(e.getWeightValue(stateNumber), p1, p2, g2d);
         }
         g2d.setColor(Color.BLACK);
     }
@@ -936,11 +948,17 @@ public class GraphPanel extends JPanel{
 		LogHelper.enterMethod(getClass(), "selectTopClickedNode");
 		Graph g = dispatch.getWorkingGraph();
 		Node top = null;
-		for (Node n : g.getNodes()) {
-			if ( p.distance(n.getFixedPosition()) < NODE_SELECTION_RADIUS ) {
-				top = n;
+		g.readLock().lock();
+		try {
+			for (Node n : g.getNodes()) {
+				if ( p.distance(n.getFixedPosition()) < NODE_SELECTION_RADIUS ) {
+					top = n;
+				}
 			}
 		}
+		finally {
+			g.readLock().unlock();
+		}
 		previousNode = selectedNode;
 		selectedNode = top;
 		selectedEdge = null;
@@ -987,7 +1005,15 @@ public class GraphPanel extends JPanel{
             LogHelper.logDebug( "centerVal = " + centerVal );
 			Rectangle2D clickArea = new Rectangle2D.Double(p.getX() - centerVal, p.getY() - centerVal - 1, i, i);
 			
-            for (Edge e : g.getEdges()) {
+            EdgeList edges;
+            g.readLock().lock();
+            try {
+                edges = g.getEdges();
+            }
+            finally {
+                g.readLock().unlock();
+            }
+            for (Edge e : edges) {
                 Point p1 = e.getSourceNode().getFixedPosition();
                 Point p2 = e.getTargetNode().getFixedPosition();
 
@@ -1058,4 +1084,4 @@ public class GraphPanel extends JPanel{
 	
 }
 
-//  [Last modified: 2017 11 03 at 01:00:34 GMT]
+//  [Last modified: 2026 10 18 at 02:14:37 GMT]
@@ -29,8 +29,10 @@ import java.util.Comparator;
 import java.util.List;
 
 import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.graph.component.AttributeKeys;
 import edu.ncsu.csc.Galant.graph.component.Edge;
 import edu.ncsu.csc.Galant.graph.component.Graph;
+import edu.ncsu.csc.Galant.graph.component.GraphBatch;
 import edu.ncsu.csc.Galant.graph.component.Node;
 import edu.ncsu.csc.Galant.GraphDispatch;
 import edu.ncsu.csc.Galant.algorithm.Terminate;
@@ -196,8 +198,17 @@ class Layer {
      * Displays logical weights assigned to the nodes
      */
     public void displayWeights() throws Terminate {
+        GraphBatch batch = graph.batch();
+        displayWeights( batch );
+        batch.commit();
+    }
+
+    /**
+     * Adds the changes that display the weights to the batch
+     */
+    void displayWeights( GraphBatch batch ) {
         for ( Node v: nodes ) {
-            v.setWeight( graph.getWeight( v ) );
+            batch.setDouble( v, AttributeKeys.WEIGHT, graph.getWeight( v ) );
         }
     }
 
@@ -241,7 +252,7 @@ class Layer {
      */
     final Comparator<Node> POSITION_COMPARATOR = new Comparator<Node>() {
         public int compare(Node x, Node y) {
-            int state = GraphDispatch.getInstance().getDisplayState();
+            int state = graph.getDispatch().getDisplayState();
             return x.getPositionInLayer(state) - y.getPositionInLayer(state);
         }
     };
@@ -322,10 +333,19 @@ class Layer {
      * positions changed: see previewPositionChanges()
      */
     public void displayPositions() throws Terminate {
+        GraphBatch batch = graph.batch();
+        displayPositions( batch );
+        batch.commit();
+    }
+
+    /**
+     * Adds the changes that display the positions to the batch
+     */
+    void displayPositions( GraphBatch batch ) {
         int i = 0;
         for ( Node v: nodes ) {
             if ( v.getPositionInLayer() != i ) {
-                v.setPositionInLayer( i );
+                batch.setInteger( v, AttributeKeys.POSITION_IN_LAYER, i );
             }
             i++;
         }
@@ -587,12 +607,14 @@ public class LayeredGraph {
 
     /**
      * Updates the display to reflect the logical position information of
-     * all nodes.
+     * all nodes, as a single step.
      */
     public void displayPositions() throws Terminate {
+        GraphBatch batch = graph.batch();
         for ( int layer = 0; layer < numberOfLayers(); layer++ ) {
-            displayPositions( layer );
+            layers.get( layer ).displayPositions( batch );
         }
+        batch.commit();
     }
 
     /**
@@ -904,12 +926,28 @@ public class LayeredGraph {
     }
 
     /**
-     * Displays the weights of all nodes.
+     * Displays the weights of all nodes, as a single step.
      */
     public void displayWeights() throws Terminate {
+        GraphBatch batch = graph.batch();
         for ( int layer = 0; layer < numberOfLayers(); layer++ ) {
-            displayWeights( layer );
+            layers.get( layer ).displayWeights( batch );
         }
+        batch.commit();
+    }
+
+    /**
+     * @return an empty batch of changes to the underlying graph
+     */
+    GraphBatch batch() {
+        return graph.batch();
+    }
+
+    /**
+     * @return the session of the underlying graph
+     */
+    GraphDispatch getDispatch() {
+        return graph.getDispatch();
     }
 
     /**
@@ -1590,4 +1628,4 @@ public class LayeredGraph {
 
 } // end, class LayeredGraph
 
-//  [Last modified: 2016 10 17 at 13:03:08 GMT]
+//  [Last modified: 2026 10 17 at 20:14:37 GMT]
@@ -10,13 +10,22 @@ public class LogHelper {
 
     private static final String INDENT_STRING = "..";
 	private static LogHelper logHelper = null;
-	private static boolean loggingEnabled = false;
 
   /**
-   * a stack is used in order to selectively enable/disable debug printing in
-   * a sequence of nested method calls.
+   * Whether logging is enabled and a stack used in order to selectively
+   * enable/disable debug printing in a sequence of nested method calls;
+   * kept for each thread, since the algorithms of several sessions may
+   * run side by side, each turning logging on and off on its own thread.
    */
-  private static Stack<Boolean> savedStates = new Stack<Boolean>();
+  private static class State {
+    boolean loggingEnabled = false;
+    Stack<Boolean> savedStates = new Stack<Boolean>();
+  }
+
+  private static final ThreadLocal<State> state = new ThreadLocal<State>() {
+      @Override
+      protected State initialValue() { return new State(); }
+    };
 
   /**
    * Logging related to the graph panel, i.e., mouse actions and drawing,
@@ -31,15 +40,16 @@ public class LogHelper {
 	private static int spaces = 0;
 
     public static void setEnabled( boolean enabled ) {
-      savedStates.push(loggingEnabled);
-        loggingEnabled = enabled;
+      State current = state.get();
+      current.savedStates.push(current.loggingEnabled);
+      current.loggingEnabled = enabled;
     }
 
     public static void enable() { setEnabled(true); }
     public static void disable() { setEnabled(false); }
 
     public static boolean isEnabled() {
-        return loggingEnabled;
+        return state.get().loggingEnabled;
     }
 
     /**
@@ -49,16 +59,17 @@ public class LogHelper {
      * - mfms
      */
     public static void restoreState() {
-      if ( savedStates.isEmpty() ) {
-        loggingEnabled = false;
+      State current = state.get();
+      if ( current.savedStates.isEmpty() ) {
+        current.loggingEnabled = false;
       }
       else {
-        loggingEnabled = savedStates.pop();
+        current.loggingEnabled = current.savedStates.pop();
       }
     }
 
 	public static void logDebug(String msg) {
-		if (loggingEnabled) {
+		if (isEnabled()) {
 			for (String line: msg.split("\n")){
          		System.out.println(spaceString() + line);
       		}
@@ -67,24 +78,24 @@ public class LogHelper {
 
 	public static void enterConstructor(Class<?> cls) {
 		spaces++;
-		if (loggingEnabled)
+		if (isEnabled())
 			System.out.println(spaceString() + "=> " + cls.getName() + "()");
 	}
 	public static void exitConstructor(Class<?> cls) {
-		if (loggingEnabled)
+		if (isEnabled())
 			System.out.println(spaceString() + "<= " + cls.getName() + "()");
 		spaces--;
 	}
 
 	public static void enterMethod(Class<?> cls, String methodName) {
-		if (loggingEnabled) {
+		if (isEnabled()) {
             spaces++;
 			System.out.println(spaceString() + "-> " + cls.getName() + "." + methodName);
         }
 	}
 
 	public static void exitMethod(Class<?> cls, String methodName) {
-		if (loggingEnabled) {
+		if (isEnabled()) {
 			System.out.println(spaceString() + "<- " + cls.getName() + "." + methodName);
             spaces--;
         }
@@ -153,4 +164,4 @@ public class LogHelper {
 	}
 }
 
-//  [Last modified: 2017 01 10 at 14:50:35 GMT]
+//  [Last modified: 2026 10 18 at 04:17:02 GMT]
@@ -0,0 +1,133 @@
+package edu.ncsu.csc.Galant.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
+
+/**
+ * Measures how long the macro expander and the regular expressions of the
+ * macros take to turn algorithms into Java classes. The algorithms are the
+ * ones in the given files and directories, by default those that come with
+ * Galant, followed by ones made of more and more copies of the largest, to
+ * show how the times grow with the length of the code. Run from the top of
+ * the project, e.g.,
+ * <pre>
+ * java -cp classes:junit.jar edu.ncsu.csc.Galant.test.MacroExpanderBenchmark [file|directory ...]
+ * </pre>
+ */
+public class MacroExpanderBenchmark extends RegexIntegrator {
+
+	/** each conversion is repeated until it has taken this long in total */
+	private static final long MIN_NANOS = 200 * 1000 * 1000L;
+	private static final int MAX_ROUNDS = 100;
+	/** the regular expressions take minutes for more copies */
+	private static final int[] COPIES = { 2, 4 };
+
+	private static void collect(File file, List<String> names, List<String> algorithms) throws Exception {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files != null)
+				for (File child : files)
+					collect(child, names, algorithms);
+		}
+		else if (file.getName().endsWith(".alg")) {
+			names.add(file.getPath());
+			algorithms.add(new String(Files.readAllBytes(file.toPath())));
+		}
+	}
+
+	/**
+	 * @return the average time in microseconds that one conversion of the
+	 * given algorithm takes, -1 if it is malformed
+	 */
+	private static long time(String algorithm, boolean withRegexes) {
+		long start = System.nanoTime();
+		int rounds = 0;
+		try {
+			do {
+				if (withRegexes)
+					toJavaClassWithRegexes("Benchmark", algorithm);
+				else
+					toJavaClass("Benchmark", algorithm);
+				rounds++;
+			} while (System.nanoTime() - start < MIN_NANOS && rounds < MAX_ROUNDS);
+		}
+		catch (MalformedMacroException e) {
+			return -1;
+		}
+		return (System.nanoTime() - start) / 1000 / rounds;
+	}
+
+	private static String convert(String algorithm, boolean withRegexes) {
+		try {
+			return withRegexes ? toJavaClassWithRegexes("Benchmark", algorithm)
+				: toJavaClass("Benchmark", algorithm);
+		}
+		catch (MalformedMacroException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * @return an algorithm with the given number of copies of everything
+	 * that comes before the algorithm block of the given one
+	 */
+	private static String repeat(String algorithm, int copies) {
+		int start = algorithm.lastIndexOf("algorithm");
+		StringBuilder repeated = new StringBuilder();
+		for (int i = 0; i < copies; i++)
+			repeated.append(algorithm, 0, start);
+		return repeated.append(algorithm.substring(start)).toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> names = new ArrayList<String>();
+		List<String> algorithms = new ArrayList<String>();
+		String[] roots = args.length > 0 ? args : TestMacroExpander.ALGORITHM_DIRECTORIES;
+		for (String root : roots)
+			collect(new File(root), names, algorithms);
+		if (algorithms.isEmpty()) {
+			System.out.println("no algorithms found");
+			return;
+		}
+
+		int largest = 0;
+		for (int i = 0; i < algorithms.size(); i++)
+			if (algorithms.get(i).length() > algorithms.get(largest).length()
+				&& !convert(algorithms.get(i), false).startsWith("Algorithm needs"))
+				largest = i;
+		for (int copies : COPIES) {
+			names.add(copies + " x " + names.get(largest));
+			algorithms.add(repeat(algorithms.get(largest), copies));
+		}
+
+		// the first round also warms up both
+		int different = 0;
+		for (String algorithm : algorithms)
+			if (!convert(algorithm, true).equals(convert(algorithm, false)))
+				different++;
+
+		System.out.println(String.format("%10s %10s %8s %8s  %s", "regex us", "sweep us", "speedup", "chars",
+			"algorithm"));
+		long totalRegexes = 0, totalSweep = 0;
+		for (int i = 0; i < algorithms.size(); i++) {
+			String algorithm = algorithms.get(i);
+			long withRegexes = time(algorithm, true);
+			long sweep = time(algorithm, false);
+			if (withRegexes < 0 || sweep < 0) {
+				System.out.println(String.format("%39s  %s (malformed)", "", names.get(i)));
+				continue;
+			}
+			totalRegexes += withRegexes;
+			totalSweep += sweep;
+			System.out.println(String.format("%10d %10d %7.1fx %8d  %s", withRegexes, sweep,
+				withRegexes / (double) Math.max(1, sweep), algorithm.length(), names.get(i)));
+		}
+		System.out.println(String.format("%10d %10d %7.1fx %8s  total", totalRegexes, totalSweep,
+			totalRegexes / (double) Math.max(1, totalSweep), ""));
+		System.out.println(different + " of " + algorithms.size() + " algorithms converted differently");
+	}
+}
@@ -0,0 +1,38 @@
+package edu.ncsu.csc.Galant.test;
+
+import edu.ncsu.csc.Galant.algorithm.code.CodeIntegrator;
+import edu.ncsu.csc.Galant.algorithm.code.macro.Macro;
+import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
+
+/**
+ * Converts algorithms into Java classes the way CodeIntegrator did before
+ * the macro expander, applying the regular expression of each macro in
+ * turn; kept to check and measure the expander against.
+ */
+public class RegexIntegrator extends CodeIntegrator {
+
+	protected static String toJavaClassWithRegexes(String algorithmName, String userCode)
+		throws MalformedMacroException {
+		// separate animator declared imports from main code; these are
+		// assumed to be at the beginning of the program
+		int splitAt = endOfImports(userCode);
+		String imports = userCode.substring(0, splitAt);
+		userCode = removeAllComments(userCode.substring(splitAt));
+
+		// Rebuild the algorithm and add head or tail as needed; this
+		// essentially expands the 'algorithm' macro
+		int startOfAlgorithm = userCode.indexOf("algorithm");
+		if (startOfAlgorithm < 0)
+			throw new MalformedMacroException("Algorithm needs to be contained in 'algorithm { ... }'");
+		// everything up to the key word 'algorithm', followed by the
+		// algorithm body as a run() method with calls on initialization
+		// and cleanup methods
+		StringBuilder sb = new StringBuilder(userCode.substring(0, startOfAlgorithm));
+		sb.append(modifyAlgorithm(REAL_ALGORITHM_HEAD, REAL_ALGORITHM_TAIL, userCode));
+		userCode = sb.toString();
+
+		for (Macro macro : Macro.MACROS)
+			userCode = macro.applyTo(userCode);
+		return toJavaClass(algorithmName, imports, userCode);
+	}
+}
@@ -0,0 +1,152 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.graph.component.Attribute;
+import edu.ncsu.csc.Galant.graph.component.AttributeKeys;
+import edu.ncsu.csc.Galant.graph.component.AttributeList;
+
+public class TestAttributeList {
+
+	@Test
+	public void testDeltaLookup() {
+		AttributeList base = new AttributeList();
+		base.set("weight", 2.0);
+		base.set("label", "a");
+		AttributeList delta = base.derive();
+
+		assertTrue(delta.set("weight", 3.0));
+		assertFalse(delta.set("count", 4));
+
+		assertEquals(2.0, base.getDouble("weight"), 0.0);
+		assertNull(base.getInteger("count"));
+		assertEquals(3.0, delta.getDouble("weight"), 0.0);
+		assertEquals("a", delta.getString("label"));
+		assertEquals(Integer.valueOf(4), delta.getInteger("count"));
+	}
+
+	@Test
+	public void testDeltaRemove() {
+		AttributeList base = new AttributeList();
+		base.set("highlighted", true);
+		base.set("label", "a");
+		AttributeList delta = base.derive();
+
+		assertTrue(delta.remove("highlighted"));
+		assertFalse(delta.remove("highlighted"));
+		assertFalse(delta.getBoolean("highlighted"));
+		assertTrue(base.getBoolean("highlighted"));
+		assertEquals(1, delta.getAttributes().size());
+
+		assertFalse(delta.set("highlighted", true));
+		assertTrue(delta.getBoolean("highlighted"));
+	}
+
+	@Test
+	public void testLongChain() {
+		AttributeList list = new AttributeList();
+		list.set("label", "start");
+		for ( int i = 0; i < 5 * AttributeList.MAX_DELTA_DEPTH; i++ ) {
+			list = list.derive();
+			list.set("x", i);
+		}
+
+		assertEquals(Integer.valueOf(5 * AttributeList.MAX_DELTA_DEPTH - 1),
+					 list.getInteger("x"));
+		assertEquals("start", list.getString("label"));
+		assertEquals("label", list.getAttributes().get(0).getKey());
+		assertEquals(2, list.getAttributes().size());
+	}
+
+	@Test
+	public void testSlots() {
+		AttributeKeys keys = new AttributeKeys();
+		AttributeList list = new AttributeList(keys);
+
+		assertEquals(AttributeKeys.WEIGHT, keys.lookup("weight"));
+		assertEquals(-1, keys.lookup("distance"));
+		assertNull(list.getDouble("distance"));
+		assertEquals(-1, keys.lookup("distance"));
+
+		list.set("distance", 1.5);
+		int slot = keys.lookup("distance");
+		assertTrue(slot >= 0);
+		assertEquals(1.5, list.getDouble(slot), 0.0);
+
+		list.set(AttributeKeys.LABEL, "a");
+		assertEquals("a", list.getString("label"));
+		assertTrue(list.remove(AttributeKeys.LABEL));
+		assertNull(list.getString("label"));
+	}
+
+	@Test
+	public void testUnboxed() {
+		AttributeList list = new AttributeList();
+		list.setDouble(AttributeKeys.WEIGHT, 2.0);
+		Attribute weight = list.getAttributes().get(0);
+		list.setDouble(AttributeKeys.WEIGHT, 3.0);
+		assertSame(weight, list.getAttributes().get(0));
+		assertEquals(3.0, list.getDoubleValue(AttributeKeys.WEIGHT, 0.0), 0.0);
+		assertEquals(-1, list.getIntegerValue(AttributeKeys.WEIGHT, -1));
+
+		// writes to a delta or a copy must not show through
+		AttributeList delta = list.derive();
+		delta.setDouble(AttributeKeys.WEIGHT, 4.0);
+		AttributeList copy = delta.duplicate();
+		copy.setDouble(AttributeKeys.WEIGHT, 5.0);
+		assertEquals(3.0, list.getDoubleValue(AttributeKeys.WEIGHT, 0.0), 0.0);
+		assertEquals(4.0, delta.getDoubleValue(AttributeKeys.WEIGHT, 0.0), 0.0);
+		assertEquals(5.0, copy.getDouble("weight"), 0.0);
+	}
+
+	@Test
+	public void testRebase() {
+		AttributeList list = new AttributeList();
+		list.set("label", "a");
+		list.set("x", 1);
+		AttributeList middle = list.derive();
+		middle.remove("label");
+		middle.set("y", 2);
+		AttributeList child = middle.derive();
+		child.set("x", 3);
+
+		middle.rebase();
+		assertNull(middle.getString("label"));
+		assertEquals(Integer.valueOf(1), middle.getInteger("x"));
+		assertEquals(Integer.valueOf(3), child.getInteger("x"));
+		assertEquals(Integer.valueOf(2), child.getInteger("y"));
+		assertEquals(2, child.getAttributes().size());
+		assertEquals(2, child.duplicate().getAttributes().size());
+	}
+
+	@Test
+	public void testSameAs() {
+		AttributeList list = new AttributeList();
+		list.set("label", "a");
+		list.setInteger("x", 1);
+		list.setBoolean("marked", true);
+		assertTrue(list.holdsInteger(list.getKeys().slot("x"), 1));
+		assertFalse(list.holdsDouble(list.getKeys().slot("x"), 1.0));
+		assertTrue(list.holdsString(list.getKeys().slot("label"), "a"));
+
+		AttributeList same = list.derive();
+		same.setInteger("x", 1);
+		same.set("label", "a");
+		assertTrue(same.sameAs(list));
+		assertTrue(list.sameAs(same));
+
+		AttributeList changed = same.derive();
+		changed.remove("marked");
+		assertFalse(changed.sameAs(same));
+		changed.setBoolean("marked", true);
+		assertTrue(changed.sameAs(list));
+		changed.setDouble("x", 1.0);
+		assertFalse(changed.sameAs(list));
+	}
+}
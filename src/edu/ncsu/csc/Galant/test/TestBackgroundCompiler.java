@@ -0,0 +1,172 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.GalantPreferences;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.code.BackgroundCompiler;
+import edu.ncsu.csc.Galant.algorithm.code.CodeIntegrator;
+import edu.ncsu.csc.Galant.algorithm.code.CompilationException;
+import edu.ncsu.csc.Galant.algorithm.code.CompilerAndLoader;
+
+public class TestBackgroundCompiler {
+
+	/** the error is on line 12, after macros that join lines */
+	private static final String WITH_ERROR = "import java.util.*;\n"
+		+ "import java.awt.Point;\n"
+		+ "function int f(\n"
+		+ "    int a)\n"
+		+ "{\n"
+		+ "  return a;\n"
+		+ "}\n"
+		+ "algorithm\n"
+		+ "{\n"
+		+ "  for_nodes(\n"
+		+ "      v ) {\n"
+		+ "    undefined = f(1);\n"
+		+ "  }\n"
+		+ "}\n";
+
+	private boolean writeClassFiles;
+	private File outputDirectory;
+
+	/** Compiles in memory, with any cache in a directory of its own. */
+	@Before
+	public void configure() throws Exception {
+		writeClassFiles = GalantPreferences.WRITE_CLASS_FILES.get();
+		outputDirectory = GalantPreferences.OUTPUT_DIRECTORY.get();
+		GalantPreferences.WRITE_CLASS_FILES.put(false);
+		GalantPreferences.OUTPUT_DIRECTORY.put(Files.createTempDirectory("galant").toFile());
+	}
+
+	/** Puts back the preferences of the user running the tests. */
+	@After
+	public void restore() {
+		GalantPreferences.WRITE_CLASS_FILES.put(writeClassFiles);
+		GalantPreferences.OUTPUT_DIRECTORY.put(outputDirectory);
+	}
+
+	@Test
+	public void testAlgorithmLines() throws Exception {
+		try {
+			CodeIntegrator.integrateCode("WithError", WITH_ERROR);
+			fail("compiled");
+		}
+		catch (CompilationException e) {
+			List<Diagnostic<?>> errors = new ArrayList<Diagnostic<?>>(e.getDiagnostics().getDiagnostics());
+			assertEquals(1, errors.size());
+			assertTrue(errors.get(0).getLineNumber() < 12);
+			assertEquals(12, e.getAlgorithmLine(errors.get(0)));
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		assertNull(CodeIntegrator.compileCode("Cancelled", "algorithm { }", new AtomicBoolean(true)));
+
+		// only the latest of the jobs submitted for an owner is reported;
+		// holding the compiler while submitting keeps it from starting on
+		// any of them before the last one is in
+		final List<BackgroundCompiler.Job> reported = new ArrayList<BackgroundCompiler.Job>();
+		final CountDownLatch done = new CountDownLatch(1);
+		BackgroundCompiler.Listener listener = new BackgroundCompiler.Listener() {
+			public void compiled(BackgroundCompiler.Job job) {
+				synchronized (reported) {
+					reported.add(job);
+				}
+				if (job.getCode().contains("last"))
+					done.countDown();
+			}
+		};
+		Object owner = new Object();
+		BackgroundCompiler compiler = BackgroundCompiler.getInstance();
+		synchronized (compiler) {
+			for (int i = 0; i < 5; i++)
+				compiler.submit(owner, "Job", "algorithm { int job" + i + "; }", listener);
+			compiler.submit(owner, "Job", "algorithm { int last; }", listener);
+		}
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		synchronized (reported) {
+			assertEquals(1, reported.size());
+			BackgroundCompiler.Job last = reported.get(0);
+			assertTrue(last.getCode().contains("last"));
+			assertNull(last.getError());
+			assertTrue(last.isCompiled());
+		}
+
+		// the algorithm is only created when it is asked for
+		int algorithms = Algorithm.algorithms.size();
+		Algorithm algorithm = reported.get(0).newAlgorithm();
+		assertNotNull(algorithm);
+		assertEquals(algorithms + 1, Algorithm.algorithms.size());
+		Algorithm.algorithms.remove(algorithm);
+	}
+
+	/** @return code of an algorithm whose toString() is the given text */
+	private static String named(String text) {
+		return "public String toString() { return \"" + text + "\"; }\nalgorithm { }";
+	}
+
+	/** @return the job of the given code once it has been compiled */
+	private static BackgroundCompiler.Job compile(String name, String code) throws Exception {
+		final BackgroundCompiler.Job[] compiled = new BackgroundCompiler.Job[1];
+		final CountDownLatch done = new CountDownLatch(1);
+		BackgroundCompiler.getInstance().submit(new Object(), name, code, new BackgroundCompiler.Listener() {
+			public void compiled(BackgroundCompiler.Job job) {
+				compiled[0] = job;
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertNull(compiled[0].getError());
+		return compiled[0];
+	}
+
+	/** @return the toString() of a new instance of the algorithm */
+	private static String load(Algorithm algorithm) {
+		Algorithm.algorithms.remove(algorithm);
+		return algorithm.toString();
+	}
+
+	@Test
+	public void testOwnBytecode() throws Exception {
+		String name = CodeIntegrator.qualifiedName("Same");
+		load(CodeIntegrator.integrateCode("Same", named("foreground")));
+		BackgroundCompiler.Job job = compile("Same", named("background"));
+
+		// neither compilation gets the bytecode of the other
+		assertEquals("foreground", load(CompilerAndLoader.loadAlgorithm(name)));
+		assertEquals("background", load(job.newAlgorithm()));
+	}
+
+	@Test
+	public void testWriteClassFiles() throws Exception {
+		GalantPreferences.WRITE_CLASS_FILES.put(true);
+		BackgroundCompiler.Job job = compile("Written", named("background"));
+		load(CodeIntegrator.integrateCode("Written", named("foreground")));
+
+		// the job does not load the class files written since
+		assertTrue(new File(GalantPreferences.OUTPUT_DIRECTORY.get(),
+			CodeIntegrator.PACKAGE.replace('.', File.separatorChar) + File.separator + "Written.class").isFile());
+		assertEquals("background", load(job.newAlgorithm()));
+		assertEquals("foreground", load(CompilerAndLoader.loadAlgorithm(CodeIntegrator.qualifiedName("Written"))));
+	}
+}
@@ -0,0 +1,71 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.algorithm.code.CompiledAlgorithmCache;
+
+public class TestCompiledAlgorithmCache {
+
+	private static Map<String, byte[]> classes(String name, int size) {
+		Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		classes.put(name, new byte[size]);
+		return classes;
+	}
+
+	@Test
+	public void testKey() {
+		String key = CompiledAlgorithmCache.key("a.B", "class B {}");
+		assertEquals(key, CompiledAlgorithmCache.key("a.B", "class B {}"));
+		assertFalse(key.equals(CompiledAlgorithmCache.key("a.B", "class B { }")));
+		assertFalse(key.equals(CompiledAlgorithmCache.key("a.C", "class B {}")));
+	}
+
+	@Test
+	public void testEviction() {
+		CompiledAlgorithmCache cache = new CompiledAlgorithmCache(null, 250);
+		cache.put("a", classes("A", 100));
+		cache.put("b", classes("B", 100));
+		assertNotNull(cache.get("a"));
+		// b is now the least recently used
+		cache.put("c", classes("C", 100));
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getMemoryEvictions());
+		assertEquals(0, cache.getDiskEvictions());
+		assertEquals(200, cache.getMemoryBytes());
+	}
+
+	@Test
+	public void testDisk() throws Exception {
+		File directory = Files.createTempDirectory("galant-cache").toFile();
+		new CompiledAlgorithmCache(directory, 1000).put("a", classes("A", 10));
+
+		// a new session finds the algorithm on disk
+		CompiledAlgorithmCache cache = new CompiledAlgorithmCache(directory, 1000);
+		Map<String, byte[]> classes = cache.get("a");
+		assertNotNull(classes);
+		assertEquals(10, classes.get("A").length);
+		assertEquals(1, cache.getDiskHits());
+		assertNull(cache.get("b"));
+
+		cache.configure(directory, 0);
+		assertEquals(1, cache.getMemoryEvictions());
+		assertEquals(1, cache.getDiskEvictions());
+		assertNull(new CompiledAlgorithmCache(directory, 1000).get("a"));
+		assertTrue(directory.delete());
+	}
+}
@@ -0,0 +1,83 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.GalantPreferences;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.code.CodeIntegrator;
+import edu.ncsu.csc.Galant.algorithm.code.CompilerAndLoader;
+
+public class TestCompilerAndLoader {
+
+	private static final String NAME = CodeIntegrator.PACKAGE + ".InMemory";
+
+	/**
+	 * An algorithm whose name is the given string, returned by an anonymous
+	 * class so that there is more than one class file
+	 */
+	private static String source(String name) {
+		return "package " + CodeIntegrator.PACKAGE + ";\n"
+			+ "public class InMemory extends edu.ncsu.csc.Galant.algorithm.Algorithm {\n"
+			+ "  public void run() {}\n"
+			+ "  public String toString() {\n"
+			+ "    return new Object() { public String toString() { return \"" + name + "\"; } }.toString();\n"
+			+ "  }\n"
+			+ "}\n";
+	}
+
+	private boolean writeClassFiles;
+	private File outputDirectory;
+
+	/** Compiles in memory, with any cache in a directory of its own. */
+	@Before
+	public void configure() throws Exception {
+		writeClassFiles = GalantPreferences.WRITE_CLASS_FILES.get();
+		outputDirectory = GalantPreferences.OUTPUT_DIRECTORY.get();
+		GalantPreferences.WRITE_CLASS_FILES.put(false);
+		GalantPreferences.OUTPUT_DIRECTORY.put(Files.createTempDirectory("galant").toFile());
+	}
+
+	/** Puts back the preferences of the user running the tests. */
+	@After
+	public void restore() {
+		GalantPreferences.WRITE_CLASS_FILES.put(writeClassFiles);
+		GalantPreferences.OUTPUT_DIRECTORY.put(outputDirectory);
+	}
+
+	@Test
+	public void testInMemory() throws Exception {
+		assertNull(CompilerAndLoader.compile(NAME, source("first")));
+		Algorithm first = CompilerAndLoader.loadAlgorithm(NAME);
+		assertNotNull(first);
+		assertFalse(first.getClass().getClassLoader() instanceof URLClassLoader);
+		assertEquals("first", first.toString());
+
+		// a recompiled algorithm replaces the old one
+		assertNull(CompilerAndLoader.compile(NAME, source("second")));
+		Algorithm second = CompilerAndLoader.loadAlgorithm(NAME);
+		assertEquals("second", second.toString());
+		assertEquals("first", first.toString());
+
+		// the first algorithm is not compiled again
+		int misses = CompilerAndLoader.getCache().getMisses();
+		assertNull(CompilerAndLoader.compile(NAME, source("first")));
+		assertEquals("first", CompilerAndLoader.loadAlgorithm(NAME).toString());
+		assertEquals(misses, CompilerAndLoader.getCache().getMisses());
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		assertNotNull(CompilerAndLoader.compile(NAME, source("x").replace("run()", "run(")));
+	}
+}
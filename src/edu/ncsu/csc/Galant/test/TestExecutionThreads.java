@@ -0,0 +1,36 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.algorithm.ExecutionThreads;
+
+public class TestExecutionThreads {
+
+	/**
+	 * From Java 21 on virtual threads are there without preview features;
+	 * on earlier versions there is no virtual thread rather than an
+	 * exception.
+	 */
+	@Test
+	public void testVirtualThread() throws InterruptedException {
+		final int[] runs = new int[1];
+		Runnable code = new Runnable() {
+			public void run() { runs[0]++; }
+		};
+		Thread thread = ExecutionThreads.newVirtualThread(code);
+		if ( Runtime.version().feature() >= 21 ) {
+			assertTrue(ExecutionThreads.virtualThreadsAvailable());
+		}
+		if ( ! ExecutionThreads.virtualThreadsAvailable() ) {
+			assertNull(thread);
+			return;
+		}
+		thread.start();
+		thread.join();
+		assertEquals(1, runs[0]);
+	}
+}
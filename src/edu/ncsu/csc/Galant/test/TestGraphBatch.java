@@ -0,0 +1,242 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.GraphDispatch;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmExecutor;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmSynchronizer;
+import edu.ncsu.csc.Galant.algorithm.Terminate;
+import edu.ncsu.csc.Galant.graph.component.AttributeKeys;
+import edu.ncsu.csc.Galant.graph.component.Edge;
+import edu.ncsu.csc.Galant.graph.component.Graph;
+import edu.ncsu.csc.Galant.graph.component.GraphBatch;
+import edu.ncsu.csc.Galant.graph.component.GraphElement;
+import edu.ncsu.csc.Galant.graph.component.Node;
+
+public class TestGraphBatch {
+
+	/**
+	 * What an algorithm does with the nodes and edges of its graph
+	 */
+	private interface Body {
+		void run(Graph graph, Node[] nodes, Edge[] edges)
+			throws Terminate, GalantException;
+	}
+
+	/**
+	 * Runs a body on a path of four nodes, to the end, in a session of its
+	 * own; the graph is reset when the animation is stopped.
+	 */
+	private static class Run {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		final Graph graph;
+		final Node[] nodes = new Node[4];
+		final Edge[] edges = new Edge[3];
+		final AlgorithmExecutor executor;
+
+		Run(final Body body) {
+			dispatch.bind();
+			graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			for ( int i = 0; i < nodes.length; i++ ) {
+				nodes[i] = graph.addInitialNode(10 * i, 10);
+			}
+			for ( int i = 0; i < edges.length; i++ ) {
+				edges[i] = graph.addInitialEdge(nodes[i], nodes[i + 1]);
+			}
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						body.run(graph, nodes, edges);
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+					catch ( GalantException e ) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			executor = new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+		}
+
+		int lastState() { return executor.getAlgorithmState(); }
+
+		/**
+		 * @return the attributes of the graph and all its elements in the
+		 * last state
+		 */
+		String dump() {
+			return graph.xmlString(lastState());
+		}
+	}
+
+	private Run run;
+	private Run other;
+
+	@After
+	public void tearDown() {
+		for ( Run finished : new Run[] { run, other } ) {
+			if ( finished == null ) continue;
+			finished.dispatch.bind();
+			finished.executor.stopAlgorithm();
+			GraphDispatch.unbind();
+		}
+		GraphDispatch.unbind();
+	}
+
+	/**
+	 * A batch is a single step -- one pause, hence one algorithm state --
+	 * however many elements and attributes it changes; the same changes
+	 * made one at a time take a step each.
+	 */
+	@Test
+	public void testOneStepPerBatch() {
+		final int[] states = new int[4];
+		final int[] sizes = new int[2];
+		run = new Run(new Body() {
+				public void run(Graph graph, Node[] nodes, Edge[] edges)
+					throws Terminate, GalantException {
+					GraphDispatch dispatch = graph.getDispatch();
+					states[0] = dispatch.getAlgorithmState();
+					GraphBatch batch = graph.batch();
+					for ( int i = 0; i < nodes.length; i++ ) {
+						batch.setDouble(nodes[i], AttributeKeys.WEIGHT, i);
+						batch.set(nodes[i], "label", "n" + i);
+					}
+					for ( Edge edge : edges ) batch.setBoolean(edge, "marked", true);
+					sizes[0] = batch.size();
+					batch.commit();
+					sizes[1] = batch.size();
+					states[1] = dispatch.getAlgorithmState();
+					graph.hideAllNodeLabels();
+					states[2] = dispatch.getAlgorithmState();
+					for ( Node node : nodes ) node.showLabel();
+					states[3] = dispatch.getAlgorithmState();
+				}
+			});
+
+		assertEquals(2 * run.nodes.length + run.edges.length, sizes[0]);
+		assertEquals(0, sizes[1]);
+		assertEquals(1, states[1] - states[0]);
+		assertEquals(1, states[2] - states[1]);
+		assertEquals(run.nodes.length, states[3] - states[2]);
+		// all changes of the batch are in the state of its step
+		for ( Node node : run.nodes ) {
+			assertEquals(states[0], node.nextChange("weight", states[0] - 1));
+			assertEquals(states[0], node.nextChange("label", states[0] - 1));
+			assertEquals(-1, node.nextChange("weight", states[0]));
+		}
+		assertEquals(states[1], run.nodes[3].nextChange("hiddenLabel", states[0]));
+	}
+
+	/**
+	 * A batch that would not change anything is no step at all.
+	 */
+	@Test
+	public void testEmptyBatch() {
+		final int[] states = new int[3];
+		run = new Run(new Body() {
+				public void run(Graph graph, Node[] nodes, Edge[] edges)
+					throws Terminate, GalantException {
+					GraphDispatch dispatch = graph.getDispatch();
+					states[0] = dispatch.getAlgorithmState();
+					graph.batch().commit();
+					graph.showAllNodeLabels();
+					graph.clearEdgeHighlighting();
+					states[1] = dispatch.getAlgorithmState();
+					GraphBatch batch = graph.batch();
+					batch.setBoolean(nodes[0], "marked", true);
+					batch.remove(nodes[0], "marked");
+					batch.commit();
+					states[2] = dispatch.getAlgorithmState();
+				}
+			});
+
+		assertEquals(states[0], states[1]);
+		// the node changes, back and forth, within the step
+		assertEquals(1, states[2] - states[1]);
+		assertFalse(run.nodes[0].getBoolean(run.lastState(), "marked"));
+	}
+
+	/**
+	 * Whole-graph changes end in the same state whether they are made in
+	 * batches or with the setters of the elements, one at a time: a label
+	 * hidden with set() is shown again by removing the attribute, and
+	 * elements that do not have it are left alone.
+	 */
+	@Test
+	public void testSameAsSetters() {
+		run = new Run(new Body() {
+				public void run(Graph graph, Node[] nodes, Edge[] edges)
+					throws Terminate, GalantException {
+					nodes[0].set(AttributeKeys.HIDDEN_LABEL, true);
+					edges[1].hide();
+					graph.hideAllEdgeWeights();
+					GraphBatch batch = graph.batch();
+					for ( Node node : nodes ) batch.setDouble(node, "weight", 2);
+					for ( Edge edge : edges ) batch.set(edge, "label", "e");
+					batch.commit();
+					nodes[2].mark();
+					graph.showAllNodeLabels();
+					graph.showEdges();
+					graph.clearNodeMarks();
+					graph.clearAllEdge("label");
+				}
+			});
+		GraphDispatch.unbind();
+		other = new Run(new Body() {
+				public void run(Graph graph, Node[] nodes, Edge[] edges)
+					throws Terminate, GalantException {
+					nodes[0].set(AttributeKeys.HIDDEN_LABEL, true);
+					edges[1].hide();
+					for ( Edge edge : edges ) edge.set(AttributeKeys.HIDDEN_WEIGHT, true);
+					for ( Node node : nodes ) node.setWeight(2);
+					for ( Edge edge : edges ) edge.setLabel("e");
+					nodes[2].mark();
+					for ( Node node : nodes ) node.showLabel();
+					for ( Edge edge : edges ) edge.show();
+					for ( Node node : nodes ) node.unmark();
+					for ( Edge edge : edges ) edge.clear("label");
+				}
+			});
+
+		assertEquals(other.dump(), run.dump());
+		for ( int i = 0; i < run.nodes.length; i++ ) {
+			assertSameAttributes(other.nodes[i], other.lastState(),
+								 run.nodes[i], run.lastState());
+		}
+		for ( int i = 0; i < run.edges.length; i++ ) {
+			assertSameAttributes(other.edges[i], other.lastState(),
+								 run.edges[i], run.lastState());
+		}
+		assertFalse(run.nodes[0].getBoolean(run.lastState(), "hiddenLabel"));
+		assertNull(run.edges[0].getString(run.lastState(), "label"));
+		assertTrue(run.edges[2].getBoolean(run.lastState(), "hiddenWeight"));
+		// the batches take fewer steps
+		assertTrue(run.lastState() < other.lastState());
+	}
+
+	private static void assertSameAttributes(GraphElement expected,
+											 int expectedState,
+											 GraphElement actual,
+											 int actualState) {
+		assertEquals(expected.xmlString(expectedState),
+					 actual.xmlString(actualState));
+	}
+}
@@ -0,0 +1,395 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.GalantException;
+import edu.ncsu.csc.Galant.GraphDispatch;
+import edu.ncsu.csc.Galant.algorithm.Algorithm;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmExecutor;
+import edu.ncsu.csc.Galant.algorithm.AlgorithmSynchronizer;
+import edu.ncsu.csc.Galant.algorithm.Terminate;
+import edu.ncsu.csc.Galant.graph.component.AnimationTrace;
+import edu.ncsu.csc.Galant.graph.component.AttributeList;
+import edu.ncsu.csc.Galant.graph.component.Edge;
+import edu.ncsu.csc.Galant.graph.component.Graph;
+import edu.ncsu.csc.Galant.graph.component.Node;
+
+public class TestGraphDispatch {
+
+	/**
+	 * Runs an algorithm that sets the weights of the nodes of a fresh graph
+	 * of its own session, one node per step, to the end; records the
+	 * weights of the last node in the last and the first state.
+	 */
+	private static class Session extends Thread {
+		final int steps;
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		int lastState;
+		double lastWeight;
+		Double firstWeight;
+		Throwable failure;
+
+		Session(int steps) { this.steps = steps; }
+
+		public void run() {
+			try {
+				dispatch.bind();
+				final Graph graph = new Graph();
+				dispatch.setWorkingGraph(graph, null);
+				final Node[] nodes = new Node[4];
+				for ( int i = 0; i < nodes.length; i++ ) {
+					nodes[i] = graph.addInitialNode(10 * i, 10);
+				}
+				Algorithm algorithm = new Algorithm() {
+					public void run() {
+						try {
+							initialize();
+							for ( int i = 0; i < steps; i++ ) {
+								setWeight(nodes[i % nodes.length], i);
+							}
+							finishAlgorithm();
+						}
+						catch ( Terminate t ) { }
+						catch ( GalantException e ) {
+							throw new RuntimeException(e);
+						}
+					}
+				};
+				algorithm.setGraph(graph);
+				dispatch.setAnimationMode(true);
+				AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+				AlgorithmExecutor executor
+					= new AlgorithmExecutor(algorithm, synchronizer);
+				dispatch.setAlgorithmSynchronizer(synchronizer);
+				dispatch.setAlgorithmExecutor(executor);
+				executor.startAlgorithm();
+				executor.runToCompletion();
+				lastState = executor.getAlgorithmState();
+				Node last = nodes[nodes.length - 1];
+				lastWeight = last.getWeight(lastState);
+				firstWeight = last.getWeight(1);
+				executor.stopAlgorithm();
+			}
+			catch ( Throwable t ) {
+				failure = t;
+			}
+			finally {
+				GraphDispatch.unbind();
+			}
+		}
+	}
+
+	@Test
+	public void testBind() {
+		GraphDispatch standard = GraphDispatch.getInstance();
+		GraphDispatch session = GraphDispatch.newSession();
+
+		assertTrue(standard.isDefaultSession());
+		assertFalse(session.isDefaultSession());
+		session.bind();
+		assertSame(session, GraphDispatch.getInstance());
+		assertSame(session, new Graph().getDispatch());
+		GraphDispatch.unbind();
+		assertSame(standard, GraphDispatch.getInstance());
+	}
+
+	@Test
+	public void testConcurrentSessions() throws InterruptedException {
+		Session small = new Session(100);
+		Session large = new Session(400);
+		small.start();
+		large.start();
+		small.join();
+		large.join();
+
+		assertEquals(null, small.failure);
+		assertEquals(null, large.failure);
+		// one state per step in each session, independent of the other
+		assertEquals(100, small.lastState);
+		assertEquals(400, large.lastState);
+		assertEquals(99.0, small.lastWeight, 0.0);
+		assertEquals(399.0, large.lastWeight, 0.0);
+		assertEquals(null, small.firstWeight);
+		assertEquals(0, GraphDispatch.getInstance().getAlgorithmState());
+	}
+
+	/**
+	 * A query during a run to the end comes with the state the algorithm
+	 * has reached rather than with the one the run started from.
+	 */
+	@Test
+	public void testRunToEndThroughQuery() {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		dispatch.bind();
+		try {
+			final Graph graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			final Node node = graph.addInitialNode(10, 10);
+			final int[] asked = new int[2];
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						for ( int i = 0; i < 3; i++ ) setWeight(node, i);
+						// what a query does around its dialog
+						dispatch.initStepIfRunning();
+						dispatch.beginQueryIfRunning();
+						asked[0] = dispatch.getAlgorithmState();
+						asked[1] = dispatch.getDisplayState();
+						dispatch.pauseExecutionIfRunning();
+						for ( int i = 0; i < 3; i++ ) setWeight(node, 10 + i);
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+					catch ( GalantException e ) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			AlgorithmExecutor executor
+				= new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+
+			assertTrue(asked[0] > 1);
+			assertEquals(asked[0], asked[1]);
+			assertEquals(2.0, node.getWeight(executor.getDisplayState()), 0.0);
+			assertTrue(executor.hasNextState());
+
+			executor.runToCompletion();
+			assertFalse(executor.hasNextState());
+			assertEquals(12.0, node.getWeight(executor.getDisplayState()), 0.0);
+			executor.stopAlgorithm();
+		}
+		finally {
+			GraphDispatch.unbind();
+		}
+	}
+
+	/**
+	 * Resetting the graph at the end of an animation removes the nodes and
+	 * edges the algorithm created even when the algorithm reordered the
+	 * lists so that these are no longer at the end.
+	 */
+	@Test
+	public void testResetAfterReordering() {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		dispatch.bind();
+		try {
+			final Graph graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			final Node first = graph.addInitialNode(10, 10);
+			final Node second = graph.addInitialNode(20, 10);
+			final Edge edge = graph.addInitialEdge(first, second);
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						Node added = addNode(30, 10);
+						Edge addedEdge = addEdge(added, first);
+						graph.setNodes(Arrays.asList(added, second, first));
+						graph.setEdges(Arrays.asList(addedEdge, edge));
+						setWeight(added, 1);
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+					catch ( GalantException e ) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			AlgorithmExecutor executor
+				= new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+			assertEquals(3, graph.getNodes().size());
+			executor.stopAlgorithm();
+
+			assertEquals(Arrays.asList(second, first), graph.getNodes());
+			assertEquals(Arrays.asList(edge), graph.getEdges());
+		}
+		finally {
+			GraphDispatch.unbind();
+		}
+	}
+
+	/**
+	 * The memory budget is checked as states are added, so that an
+	 * algorithm that runs away within a single step is caught before the
+	 * step ends.
+	 */
+	@Test
+	public void testMemoryBudgetWithinOneStep() {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		dispatch.bind();
+		try {
+			final Graph graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			final Node[] nodes = new Node[100];
+			for ( int i = 0; i < nodes.length; i++ ) {
+				nodes[i] = graph.addInitialNode(10 * i, 10);
+			}
+			final boolean[] over = new boolean[2];
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						graph.setMemoryBudget(1000);
+						beginStep();
+						over[0] = graph.isOverMemoryBudget();
+						for ( Node node : nodes ) setWeight(node, 1);
+						over[1] = graph.isOverMemoryBudget();
+						endStep();
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+					catch ( GalantException e ) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			AlgorithmExecutor executor
+				= new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+
+			assertFalse(over[0]);
+			assertTrue(over[1]);
+			assertTrue(graph.getLastMemoryUsage() != null);
+			executor.stopAlgorithm();
+		}
+		finally {
+			GraphDispatch.unbind();
+		}
+	}
+
+	/**
+	 * The graph attributes that changed between two states are the ones
+	 * written in between, also when the states are further apart than a
+	 * chain of deltas goes.
+	 */
+	@Test
+	public void testGraphAttributesAcrossSnapshots() {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		dispatch.bind();
+		try {
+			final Graph graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			graph.addInitialNode(10, 10);
+			final int[] from = new int[1];
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						graph.set("fixed", "a");
+						from[0] = dispatch.getAlgorithmState();
+						for ( int i = 0; i < 3 * AttributeList.MAX_DELTA_DEPTH;
+							  i++ ) {
+							graph.set("count", "" + i);
+						}
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			AlgorithmExecutor executor
+				= new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+
+			int to = executor.getAlgorithmState();
+			assertTrue(to - from[0] > 2 * AttributeList.MAX_DELTA_DEPTH);
+			assertEquals(Arrays.asList("count"),
+						 graph.changesBetween(from[0], to).getGraphAttributes());
+			assertEquals(Arrays.asList("count"),
+						 graph.changesBetween(to, from[0] + 1).getGraphAttributes());
+			executor.stopAlgorithm();
+		}
+		finally {
+			GraphDispatch.unbind();
+		}
+	}
+
+	/**
+	 * A trace that does not fit the graph it is loaded into is turned down
+	 * before any of its attribute names is registered with the graph.
+	 */
+	@Test
+	public void testTraceForAnotherGraph() throws Exception {
+		final GraphDispatch dispatch = GraphDispatch.newSession();
+		dispatch.bind();
+		File file = File.createTempFile("galant-trace", ".gtr");
+		try {
+			final Graph graph = new Graph();
+			dispatch.setWorkingGraph(graph, null);
+			final Node first = graph.addInitialNode(10, 10);
+			final Node second = graph.addInitialNode(20, 10);
+			graph.addInitialEdge(first, second);
+			Algorithm algorithm = new Algorithm() {
+				public void run() {
+					try {
+						initialize();
+						first.set("traced", 1);
+						finishAlgorithm();
+					}
+					catch ( Terminate t ) { }
+				}
+			};
+			algorithm.setGraph(graph);
+			dispatch.setAnimationMode(true);
+			AlgorithmSynchronizer synchronizer = new AlgorithmSynchronizer();
+			AlgorithmExecutor executor
+				= new AlgorithmExecutor(algorithm, synchronizer);
+			dispatch.setAlgorithmSynchronizer(synchronizer);
+			dispatch.setAlgorithmExecutor(executor);
+			executor.startAlgorithm();
+			executor.runToCompletion();
+			AnimationTrace.write(graph, executor.getAlgorithmState(), file);
+			executor.stopAlgorithm();
+
+			Graph other = new Graph();
+			other.addInitialNode(10, 10);
+			other.addInitialNode(20, 10);
+			try {
+				AnimationTrace.read(other, file);
+				fail("trace loaded into another graph");
+			}
+			catch ( GalantException e ) { }
+			assertEquals(-1, other.getAttributeKeys().lookup("traced"));
+			assertEquals(0, other.getEdges().size());
+		}
+		finally {
+			file.delete();
+			GraphDispatch.unbind();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.algorithm.code.macro.Macro;
+import edu.ncsu.csc.Galant.algorithm.code.macro.MalformedMacroException;
+import edu.ncsu.csc.Galant.algorithm.code.macro.SimpleReplacementMacro;
+
+/**
+ * Checks that the macro expander produces the same Java classes as the
+ * regular expressions of the macros, for the algorithms that come with
+ * Galant and for code that relies on their quirks.
+ */
+public class TestMacroExpander extends RegexIntegrator {
+
+	/** directories with algorithms, relative to the top of the project */
+	static final String[] ALGORITHM_DIRECTORIES = { "Algorithms", "Research", "Testing" };
+
+	private static String expand(String code, boolean withRegexes) {
+		try {
+			return withRegexes ? toJavaClassWithRegexes("Name", code) : toJavaClass("Name", code);
+		}
+		catch (MalformedMacroException e) {
+			return "MalformedMacroException: " + e.getMessage();
+		}
+	}
+
+	private static void assertSame(String code) {
+		assertEquals(code, expand(code, true), expand(code, false));
+	}
+
+	private static int checkDirectory(File directory) throws Exception {
+		int count = 0;
+		File[] files = directory.listFiles();
+		if (files == null)
+			return 0;
+		for (File file : files) {
+			if (file.isDirectory())
+				count += checkDirectory(file);
+			else if (file.getName().endsWith(".alg")) {
+				assertSame(new String(Files.readAllBytes(file.toPath())));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testAlgorithms() throws Exception {
+		int count = 0;
+		for (String directory : ALGORITHM_DIRECTORIES)
+			count += checkDirectory(new File(directory));
+		assertTrue("no algorithms found", count > 0);
+	}
+
+	@Test
+	public void testNesting() {
+		assertSame("function int f(int a, int b) { for_outgoing(v, e, w) { sort(L); } return a; }"
+			+ " algorithm { for_nodes(v) { for_adjacent( v , e , w )\n  {\n sort(L, c); } } f(1, 2); }");
+		assertSame("algorithm { for_incoming(v, e, w) { for_edges(f) { function void g() { } } } }");
+		assertSame("algorithm { for_nodes(v) { sort(L, new Comparator<Node>() {"
+			+ " public int compare(Node a, Node b) { return m.get(a, b); } }); } }");
+	}
+
+	@Test
+	public void testQuirks() {
+		// the character two positions before a macro decides whether it is
+		// part of an identifier
+		assertSame("algorithm { x.sort(L); (sort(L)); f(sort(L)); sort(sort(L)); sort( sort(L)); }");
+		assertSame("algorithm { for_nodes(v)sort(L); for_outgoing( sort(a), e, w) { } }");
+		assertSame("algorithm { String s = \"sort(x)\"; myfunction foo(x) { } }");
+		// the whitespace of the function pattern also matches ( ) ? : and *
+		assertSame("function(int) foo(x) { } function  int  bar  (Node v) { } algorithm { }");
+	}
+
+	@Test
+	public void testErrors() {
+		for (String code : new String[] { "algorithm { sort(); }", "algorithm { sort(a, b, c); }",
+			"algorithm { for_outgoing(v, e, w) x; }", "algorithm { for_nodes(v, w) { } }" }) {
+			try {
+				toJavaClass("Name", code);
+				fail(code);
+			}
+			catch (MalformedMacroException e) {
+				assertEquals(expand(code, true), "MalformedMacroException: " + e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownMacro() throws Exception {
+		Macro.MACROS.add(new SimpleReplacementMacro("swap", "swap") {
+				public String getName() {
+					return "swap";
+				}
+			});
+		try {
+			toJavaClass("Name", "algorithm { swap(a, b); }");
+			fail("the expander ignored a new macro");
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("swap"));
+		}
+		finally {
+			Macro.MACROS.remove(Macro.MACROS.size() - 1);
+		}
+		assertSame("algorithm { swap(a, b); }");
+	}
+}
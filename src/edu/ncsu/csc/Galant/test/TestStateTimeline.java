@@ -0,0 +1,77 @@
+package edu.ncsu.csc.Galant.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc.Galant.graph.component.StateTimeline;
+import edu.ncsu.csc.Galant.graph.component.TimeStamped;
+
+public class TestStateTimeline {
+
+	private static class Stamp implements TimeStamped {
+		int state;
+		Stamp(int state) { this.state = state; }
+		public int getState() { return state; }
+	}
+
+	private static StateTimeline<Stamp> generateTimeline(int... stateNumbers) {
+		StateTimeline<Stamp> timeline = new StateTimeline<Stamp>();
+		for ( int stateNumber : stateNumbers ) {
+			timeline.add(new Stamp(stateNumber));
+		}
+		return timeline;
+	}
+
+	@Test
+	public void testAtOrBefore() {
+		StateTimeline<Stamp> timeline = generateTimeline(0, 3, 4, 9, 20);
+
+		assertNull(timeline.atOrBefore(-1));
+		assertEquals(0, timeline.atOrBefore(0).getState());
+		assertEquals(0, timeline.atOrBefore(2).getState());
+		assertEquals(4, timeline.atOrBefore(4).getState());
+		assertEquals(9, timeline.atOrBefore(19).getState());
+		assertEquals(20, timeline.atOrBefore(20).getState());
+		assertEquals(20, timeline.atOrBefore(1000).getState());
+	}
+
+	@Test
+	public void testAddReplacesSameState() {
+		StateTimeline<Stamp> timeline = generateTimeline(0, 3);
+		Stamp replacement = new Stamp(3);
+
+		assertFalse(timeline.add(replacement));
+		assertEquals(2, timeline.size());
+		assertTrue(replacement == timeline.latest());
+		assertTrue(timeline.add(new Stamp(5)));
+		assertEquals(3, timeline.size());
+	}
+
+	@Test
+	public void testTruncateAfter() {
+		StateTimeline<Stamp> timeline = generateTimeline(0, 3, 4, 9);
+
+		timeline.truncateAfter(0);
+
+		assertEquals(1, timeline.size());
+		assertEquals(0, timeline.latest().getState());
+	}
+
+	@Test
+	public void testIndexWithHints() {
+		StateTimeline<Stamp> timeline = generateTimeline(0, 3, 4, 9, 20);
+
+		// correct hints
+		assertEquals(3, timeline.indexAtOrBefore(12, 3, 3));
+		assertEquals(1, timeline.indexAtOrBefore(3, 1, 2));
+		// wrong hints are ignored
+		assertEquals(3, timeline.indexAtOrBefore(12, 4, 4));
+		assertEquals(3, timeline.indexAtOrBefore(12, 0, 1));
+		assertEquals(-1, timeline.indexAtOrBefore(-1, 2, 3));
+		assertEquals(4, timeline.indexAtOrBefore(25, -1, -1));
+	}
+}